@@ -0,0 +1,175 @@
+package se.motility.inheritables.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.motility.inheritables.benchmark.HierarchyGenerator.Shape;
+import se.motility.inheritables.scanner.BytecodeScanner;
+import se.motility.inheritables.scanner.VerifyingTransformer;
+
+/**
+ * Measures the overhead of the {@link VerifyingTransformer} of the inheritables agent on class
+ * loading, by defining the classes of generated type hierarchies in a fresh class loader with
+ * and without passing each class file through the transformer first (as the JVM does with the
+ * agent installed). The overhead is the difference between <code>loadWithAgent</code> and
+ * <code>loadBaseline</code>.
+ * <p>
+ * The classes are loaded from the leaves of the hierarchies, each class making the JVM load its
+ * supertypes after it, so that the checks of the agent wait for the supertypes as with real
+ * applications. The checks still waiting at the end are settled within <code>loadWithAgent</code>.
+ * The time spent in the transformer is reported as <code>agentMillis</code>, and in proportion to
+ * the rest of the class loading time, which the agent should keep below 1%, as <code>agentPercent</code>.
+ * <p>
+ * Run with <code>java -jar target/benchmarks.jar AgentBenchmark</code>.
+ * 
+ * @author M Tegling
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+// Loading a class loads its superclass chain recursively
+@Fork(value = 1, jvmArgsAppend = "-Xss64m")
+public class AgentBenchmark {
+
+    @Param({"WIDE", "DEEP", "DIAMOND"})
+    public Shape shape;
+
+    @Param({"10000"})
+    public int classes;
+
+    /** Number of classes of each chain of the <code>DEEP</code> hierarchies */
+    @Param({"64", "1000"})
+    public int chainDepth;
+
+    private Map<String, byte[]> classFiles;
+    private List<String> classNames;
+
+    /**
+     * Time spent in the transformer, reported as secondary results
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class AgentTime {
+
+        public double agentMillis;
+        public double agentPercent;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            agentMillis = 0;
+            agentPercent = 0;
+        }
+    }
+
+    @Setup
+    public void compile() {
+        classFiles = new InMemoryCompiler()
+                .compileToClassFiles(HierarchyGenerator.generate(shape, classes, chainDepth, 42L));
+        classNames = new ArrayList<>(classFiles.keySet());
+        // Leaves first, the classes generated last, interfaces being loaded as their supertypes
+        classNames.sort(Comparator.comparingInt(AgentBenchmark::classNumber).reversed());
+    }
+
+    @Benchmark
+    public int loadBaseline() throws ClassNotFoundException {
+        return loadAll(new InMemoryClassLoader(classFiles, null));
+    }
+
+    @Benchmark
+    public int loadWithAgent(AgentTime time) throws ClassNotFoundException {
+        VerifyingTransformer transformer = new VerifyingTransformer(BytecodeScanner.DEFAULT_ANNOTATION,
+                VerifyingTransformer.Mode.LOG, System.err);
+        InMemoryClassLoader loader = new InMemoryClassLoader(classFiles, transformer);
+        long start = System.nanoTime();
+        int loaded = loadAll(loader);
+        long settleStart = System.nanoTime();
+        transformer.settle();
+        long end = System.nanoTime();
+        long agentNanos = loader.transformerNanos + end - settleStart;
+        time.agentMillis += agentNanos / 1e6;
+        time.agentPercent += 100.0 * agentNanos / (end - start - agentNanos);
+        return loaded;
+    }
+
+    // The number n of generated classes named C<n>, -1 for interfaces
+    private static int classNumber(String name) {
+        int simpleName = name.lastIndexOf('.') + 1;
+        return name.startsWith("C", simpleName) ? Integer.parseInt(name.substring(simpleName + 1)) : -1;
+    }
+
+    // Linked and initialized, as when loaded by application code
+    private int loadAll(ClassLoader loader) throws ClassNotFoundException {
+        int loaded = 0;
+        for (String name : classNames) {
+            loaded += Class.forName(name, true, loader).getModifiers() & 1;
+        }
+        return loaded;
+    }
+
+    /**
+     * Defines classes from memory, passing the class files through a transformer the way
+     * the JVM does for agents.
+     */
+    private static final class InMemoryClassLoader extends ClassLoader {
+
+        private final Map<String, byte[]> classFiles;
+        private final VerifyingTransformer transformer;
+        private long transformerNanos;
+
+        InMemoryClassLoader(Map<String, byte[]> classFiles, VerifyingTransformer transformer) {
+            super(AgentBenchmark.class.getClassLoader());
+            this.classFiles = classFiles;
+            this.transformer = transformer;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] classFile = classFiles.get(name);
+            if (classFile == null) {
+                throw new ClassNotFoundException(name);
+            }
+            if (transformer != null) {
+                long start = System.nanoTime();
+                byte[] transformed = transformer.transform(this, name.replace('.', '/'), null, null, classFile);
+                transformerNanos += System.nanoTime() - start;
+                classFile = transformed != null ? transformed : classFile;
+            }
+            return defineClass(name, classFile, 0, classFile.length);
+        }
+
+        @Override
+        public InputStream getResourceAsStream(String name) {
+            if (name.endsWith(".class")) {
+                byte[] classFile = classFiles.get(name.substring(0, name.length() - 6).replace('/', '.'));
+                if (classFile != null) {
+                    return new ByteArrayInputStream(classFile);
+                }
+            }
+            return super.getResourceAsStream(name);
+        }
+
+    }
+
+}
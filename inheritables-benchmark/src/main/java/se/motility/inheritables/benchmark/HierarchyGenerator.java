@@ -0,0 +1,189 @@
+package se.motility.inheritables.benchmark;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+
+/**
+ * Generates synthetic type hierarchies as in-memory source files. All generated classes
+ * have a default constructor, meaning that compilation always succeeds and the processor
+ * has to traverse the complete hierarchy.
+ * <p>
+ * Roughly half of the generated classes inherit the annotation
+ * {@link se.motility.inheritables.annotations.RequireDefaultConstructor} via the interface
+ * <code>gen.Message</code>, while the rest inherit from the non-annotated <code>gen.Plain</code>.
+ * Classes are named <code>C&lt;n&gt;</code> in the order generated, the subclasses of a chain
+ * following their superclasses.
+ * 
+ * @author M Tegling
+ *
+ */
+public final class HierarchyGenerator {
+
+    /** Shape of the generated type hierarchy */
+    public enum Shape {
+        /** Classes implementing many interfaces from a large pool of interfaces */
+        WIDE,
+        /** Long chains of subclasses */
+        DEEP,
+        /** Layers of interfaces, each extending two interfaces from the layer above */
+        DIAMOND
+    }
+
+    private static final int INTERFACE_POOL = 256;
+    private static final int FAN_OUT = 8;
+    /** Number of classes of each chain of a {@link Shape#DEEP} hierarchy, by default */
+    public static final int CHAIN_DEPTH = 64;
+    private static final int LAYERS = 6;
+    private static final int LAYER_WIDTH = 16;
+    private static final int TYPES_PER_PACKAGE = 1000;
+
+    private final Random random;
+    private final int chainDepth;
+    private final List<JavaFileObject> sources = new ArrayList<>();
+
+    private HierarchyGenerator(long seed, int chainDepth) {
+        this.random = new Random(seed);
+        this.chainDepth = chainDepth;
+    }
+
+    /**
+     * Generates a type hierarchy having the given shape.
+     * @param shape the shape of the hierarchy
+     * @param classes number of classes to generate (interfaces not included)
+     * @param seed seed making the generated hierarchy reproducible
+     * @return the generated source files
+     */
+    public static List<JavaFileObject> generate(Shape shape, int classes, long seed) {
+        return generate(shape, classes, CHAIN_DEPTH, seed);
+    }
+
+    /**
+     * Generates a type hierarchy having the given shape.
+     * @param shape the shape of the hierarchy
+     * @param classes number of classes to generate (interfaces not included)
+     * @param chainDepth number of classes of each chain of a {@link Shape#DEEP} hierarchy
+     * @param seed seed making the generated hierarchy reproducible
+     * @return the generated source files
+     */
+    public static List<JavaFileObject> generate(Shape shape, int classes, int chainDepth, long seed) {
+        HierarchyGenerator generator = new HierarchyGenerator(seed, chainDepth);
+        generator.add("gen", "Message",
+                "@se.motility.inheritables.annotations.RequireDefaultConstructor\npublic interface Message {}");
+        generator.add("gen", "Plain", "public interface Plain {}");
+        switch (shape) {
+        case WIDE:
+            generator.wide(classes);
+            break;
+        case DEEP:
+            generator.deep(classes);
+            break;
+        case DIAMOND:
+            generator.diamond(classes);
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown shape " + shape);
+        }
+        return Collections.unmodifiableList(generator.sources);
+    }
+
+    private void wide(int classes) {
+        for (int i = 0; i < INTERFACE_POOL; i++) {
+            String parents = i % 2 == 0 ? "gen.Message" : "gen.Plain";
+            if (i > 0) {
+                parents += ", " + pick("gen.i.I", i, 1);
+            }
+            add("gen.i", "I" + i, "public interface I" + i + " extends " + parents + " {}");
+        }
+        for (int n = 0; n < classes; n++) {
+            addClass(n, "", pick("gen.i.I", INTERFACE_POOL, FAN_OUT));
+        }
+    }
+
+    private void deep(int classes) {
+        for (int n = 0; n < classes; n++) {
+            if (n % chainDepth == 0) {
+                addClass(n, "", (n / chainDepth) % 2 == 0 ? "gen.Message" : "gen.Plain");
+            } else {
+                addClass(n, className(n - 1), "");
+            }
+        }
+    }
+
+    private void diamond(int classes) {
+        for (int layer = 0; layer < LAYERS; layer++) {
+            for (int i = 0; i < LAYER_WIDTH; i++) {
+                String name = "L" + layer + "I" + i;
+                String parents = layer == 0
+                        ? (i % 2 == 0 ? "gen.Message" : "gen.Plain")
+                        : pick("gen.d.L" + (layer - 1) + "I", LAYER_WIDTH, 2);
+                add("gen.d", name, "public interface " + name + " extends " + parents + " {}");
+            }
+        }
+        for (int n = 0; n < classes; n++) {
+            addClass(n, "", pick("gen.d.L" + (LAYERS - 1) + "I", LAYER_WIDTH, 2));
+        }
+    }
+
+    private void addClass(int n, String superclass, String interfaces) {
+        String simpleName = "C" + n;
+        StringBuilder body = new StringBuilder("public class ").append(simpleName);
+        if (!superclass.isEmpty()) {
+            body.append(" extends ").append(superclass);
+        }
+        if (!interfaces.isEmpty()) {
+            body.append(" implements ").append(interfaces);
+        }
+        body.append(" {\n    public ").append(simpleName).append("() {}\n}");
+        add(packageOf(n), simpleName, body.toString());
+    }
+
+    // Picks up to 'count' distinct names among prefix0 ... prefix(bound - 1)
+    private String pick(String prefix, int bound, int count) {
+        Set<Integer> picked = new LinkedHashSet<>();
+        for (int j = 0; j < count; j++) {
+            picked.add(random.nextInt(bound));
+        }
+        StringBuilder names = new StringBuilder();
+        for (int index : picked) {
+            names.append(names.length() == 0 ? "" : ", ").append(prefix).append(index);
+        }
+        return names.toString();
+    }
+
+    private static String className(int n) {
+        return packageOf(n) + ".C" + n;
+    }
+
+    private static String packageOf(int n) {
+        return "gen.c" + (n / TYPES_PER_PACKAGE);
+    }
+
+    private void add(String packageName, String simpleName, String body) {
+        sources.add(new SourceFile(packageName, simpleName, "package " + packageName + ";\n" + body));
+    }
+
+    private static final class SourceFile extends SimpleJavaFileObject {
+
+        private final String content;
+
+        SourceFile(String packageName, String simpleName, String content) {
+            super(URI.create("string:///" + packageName.replace('.', '/') + '/' + simpleName
+                    + Kind.SOURCE.extension), Kind.SOURCE);
+            this.content = content;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return content;
+        }
+    }
+
+}
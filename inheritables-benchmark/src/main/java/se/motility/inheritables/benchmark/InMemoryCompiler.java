@@ -0,0 +1,142 @@
+package se.motility.inheritables.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.processing.Processor;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import javax.tools.JavaFileObject.Kind;
+
+/**
+ * Compiles in-memory sources using {@link JavaCompiler}, discarding (or keeping in memory) all
+ * output so that the measurements are not affected by disk I/O.
+ * 
+ * @author M Tegling
+ *
+ */
+final class InMemoryCompiler {
+
+    private final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    private final StandardJavaFileManager standardFileManager =
+            compiler.getStandardFileManager(null, null, null);
+
+    /**
+     * @param sources the sources to compile
+     * @param processor the annotation processor to run, or <code>null</code> to compile
+     * without annotation processing
+     * @return <code>true</code> if the compilation succeeded
+     * @throws IllegalStateException if the compilation failed
+     */
+    boolean compile(List<JavaFileObject> sources, Processor processor) {
+        return compile(sources, processor, null, null);
+    }
+
+    /**
+     * Compiles the sources without annotation processing, running the compiler plugin.
+     * @param sources the sources to compile
+     * @param plugin the plugin option, e.g. <code>-Xplugin:Inheritables</code>
+     * @return <code>true</code> if the compilation succeeded
+     * @throws IllegalStateException if the compilation failed
+     */
+    boolean compileWithPlugin(List<JavaFileObject> sources, String plugin) {
+        return compile(sources, null, null, plugin);
+    }
+
+    /**
+     * Compiles the sources without annotation processing, keeping the class files.
+     * @param sources the sources to compile
+     * @return the class files by binary name
+     * @throws IllegalStateException if the compilation failed
+     */
+    Map<String, byte[]> compileToClassFiles(List<JavaFileObject> sources) {
+        Map<String, byte[]> classFiles = new HashMap<>();
+        compile(sources, null, classFiles, null);
+        return classFiles;
+    }
+
+    private boolean compile(List<JavaFileObject> sources, Processor processor, Map<String, byte[]> classFiles,
+            String plugin) {
+        StringBuilder errors = new StringBuilder();
+        List<String> options = new ArrayList<>();
+        options.add("-classpath");
+        options.add(System.getProperty("java.class.path"));
+        options.add("-Xlint:none");
+        if (processor == null) {
+            options.add("-proc:none");
+        }
+        if (plugin != null) {
+            options.add(plugin);
+        }
+        JavaCompiler.CompilationTask task = compiler.getTask(null, new DiscardingFileManager(standardFileManager, classFiles),
+                diagnostic -> {
+                    if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                        errors.append(diagnostic).append('\n');
+                    }
+                }, options, null, sources);
+        if (processor != null) {
+            task.setProcessors(Collections.singletonList(processor));
+        }
+        if (!task.call()) {
+            throw new IllegalStateException("Compilation of generated sources failed:\n" + errors);
+        }
+        return true;
+    }
+
+    private static final class DiscardingFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+
+        private final Map<String, byte[]> classFiles;
+
+        /**
+         * @param classFiles receives the class files, or <code>null</code> to discard them
+         */
+        DiscardingFileManager(JavaFileManager fileManager, Map<String, byte[]> classFiles) {
+            super(fileManager);
+            this.classFiles = classFiles;
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, Kind kind,
+                FileObject sibling) {
+            return new SimpleJavaFileObject(URI.create("discard:///" + className.replace('.', '/')
+                    + kind.extension), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    if (classFiles != null && kind == Kind.CLASS) {
+                        return new ByteArrayOutputStream() {
+                            @Override
+                            public void close() {
+                                classFiles.put(className, toByteArray());
+                            }
+                        };
+                    }
+                    return new OutputStream() {
+                        @Override
+                        public void write(int b) {
+                            // Discard
+                        }
+
+                        @Override
+                        public void write(byte[] b, int off, int len) {
+                            // Discard
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+package se.motility.inheritables.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.JavaFileObject;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.motility.inheritables.benchmark.HierarchyGenerator.Shape;
+import se.motility.inheritables.processor.DefaultConstructorProcessor;
+import se.motility.inheritables.processor.InheritablesPlugin;
+
+/**
+ * Measures the overhead of the {@link DefaultConstructorProcessor} by compiling generated
+ * type hierarchies with and without the processor. The time spent in the processor itself
+ * is reported by the secondary result <code>processorMillis</code>. The same checks run by
+ * the {@link InheritablesPlugin} with annotation processing turned off are measured by
+ * <code>javacWithPlugin</code>.
+ * <p>
+ * Run with <code>java -jar target/benchmarks.jar ProcessorBenchmark -prof gc</code> to also
+ * get the allocation rate. Use e.g. <code>-p classes=100000</code> for larger hierarchies.
+ * 
+ * @author M Tegling
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xss4m")
+public class ProcessorBenchmark {
+
+    @Param({"WIDE", "DEEP", "DIAMOND"})
+    public Shape shape;
+
+    @Param({"10000"})
+    public int classes;
+
+    private final InMemoryCompiler compiler = new InMemoryCompiler();
+    private List<JavaFileObject> sources;
+
+    /**
+     * Time spent in the processor, reported as a secondary result
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ProcessorTime {
+
+        public double processorMillis;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            processorMillis = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void generate() {
+        sources = HierarchyGenerator.generate(shape, classes, 42L);
+    }
+
+    @Benchmark
+    public boolean javacBaseline() {
+        return compiler.compile(sources, null);
+    }
+
+    @Benchmark
+    public boolean javacWithProcessor(ProcessorTime time) {
+        TimedProcessor processor = new TimedProcessor(new DefaultConstructorProcessor());
+        boolean success = compiler.compile(sources, processor);
+        time.processorMillis += processor.getNanos() / 1e6;
+        return success;
+    }
+
+    @Benchmark
+    public boolean javacWithPlugin() {
+        return compiler.compileWithPlugin(sources, "-Xplugin:" + InheritablesPlugin.NAME);
+    }
+
+}
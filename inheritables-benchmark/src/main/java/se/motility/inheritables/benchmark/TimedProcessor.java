@@ -0,0 +1,76 @@
+package se.motility.inheritables.benchmark;
+
+import java.util.Set;
+
+import javax.annotation.processing.Completion;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+
+/**
+ * Processor delegating to another processor, measuring the time spent in the delegate.
+ * 
+ * @author M Tegling
+ *
+ */
+final class TimedProcessor implements Processor {
+
+    private final Processor delegate;
+    private long nanos;
+
+    TimedProcessor(Processor delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @return total time spent in {@link #init(ProcessingEnvironment)} and
+     * {@link #process(Set, RoundEnvironment)} of the delegate
+     */
+    long getNanos() {
+        return nanos;
+    }
+
+    @Override
+    public void init(ProcessingEnvironment processingEnv) {
+        long start = System.nanoTime();
+        delegate.init(processingEnv);
+        nanos += System.nanoTime() - start;
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        long start = System.nanoTime();
+        try {
+            return delegate.process(annotations, roundEnv);
+        } finally {
+            nanos += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        return delegate.getSupportedOptions();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return delegate.getSupportedAnnotationTypes();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return delegate.getSupportedSourceVersion();
+    }
+
+    @Override
+    public Iterable<? extends Completion> getCompletions(Element element, AnnotationMirror annotation,
+            ExecutableElement member, String userText) {
+        return delegate.getCompletions(element, annotation, member, userText);
+    }
+
+}
@@ -0,0 +1,392 @@
+package se.motility.inheritables.processor;
+
+import java.io.IOException;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+
+
+/**
+ * Abstract annotation processor traversing the type hierarchy to identify classes inheriting
+ * any number of inheritable annotations. All classes compiled from source are checked, including
+ * member types (nested and inner classes) at any depth. Which annotations to look for, and how to check the
+ * annotated types, is determined by the {@link InheritableAnnotationCheck}s registered by the
+ * concrete processor.
+ * <p>
+ * The type hierarchy is traversed once regardless of the number of checks, making the cost
+ * of the processor proportional to the number of types rather than types &times; annotations.
+ * At most {@value InheritanceEngine#MAX_ANNOTATIONS} checks can be registered with one processor.
+ * If none of the annotations is found on the class path, no type can be affected and the
+ * hierarchy is not traversed at all.
+ * <p>
+ * Supported processor options:
+ * <ul>
+ * <li><code>-Ainheritables.index</code>: emit an index of the annotation status of all types
+ * compiled from source into <code>META-INF/inheritables/</code>. When compiling downstream
+ * modules, indexed types on the class path are resolved without traversing their supertypes.
+ * Indexes found on the class path are always used.</li>
+ * <li><code>-Ainheritables.typeIndex</code>: emit an index of the classes carrying each annotation, and
+ * their supertypes, into <code>META-INF/inheritables/types/</code>. The classes can then be looked up
+ * at run-time without scanning the class path, using <code>AnnotatedTypes</code> of the
+ * <code>inheritables-runtime</code> module.</li>
+ * <li><code>-Ainheritables.subtypeIndex</code>: emit the direct supertypes of all types compiled from
+ * source, interfaces included, as a reverse index into <code>META-INF/inheritables/subtypes.idx</code>.
+ * All types affected by a change to a supertype, such as an interface gaining an inheritable annotation,
+ * can then be found using <code>SubtypeIndex</code> of the <code>inheritables-runtime</code> module.</li>
+ * <li><code>-Ainheritables.maxErrors=&lt;n&gt;</code>: maximum number of errors reported on their types
+ * (default {@value ErrorReporter#DEFAULT_MAX_ERRORS}). Further errors are summarized per annotation and
+ * annotated supertype.</li>
+ * <li><code>-Ainheritables.stats</code>: report timing, traversal and cache statistics as a note
+ * when processing is over.</li>
+ * <li><code>-Ainheritables.stats.file=&lt;path&gt;</code>: also write the statistics of each round
+ * as JSON to the given file (implies <code>inheritables.stats</code>).</li>
+ * <li><code>-Ainheritables.prune</code>: trust the indexes found on the class path to list every
+ * class path type carrying an inheritable annotation. Class path types not indexed are then assumed
+ * not to carry any, and their supertypes are never traversed. Only safe if all upstream modules
+ * using inheritable annotations are compiled with <code>-Ainheritables.index</code>.</li>
+ * <li><code>-Ainheritables.include=&lt;patterns&gt;</code> and <code>-Ainheritables.exclude=&lt;patterns&gt;</code>:
+ * comma-separated patterns of qualified type names (see {@link TypeNameFilter}), e.g.
+ * <code>com.example.proto,com.example.Generated*</code>. Excluded types, such as generated code, are
+ * neither checked nor traversed, and are assumed to carry no inheritable annotations when reached as
+ * supertypes. Given include patterns, types matched by none of them are excluded.</li>
+ * <li><code>-Ainheritables.sharedCache</code>: cache the direct annotations and supertypes of class
+ * path types found in jars, shared by all compilations in the JVM. Speeds up repeated builds in
+ * long-lived compiler hosts such as the Gradle daemon.</li>
+ * <li><code>-Ainheritables.sharedCache.size=&lt;n&gt;</code>: maximum number of types held by the
+ * shared cache (default {@value SharedHierarchyCache#DEFAULT_MAX_TYPES}).</li>
+ * <li><code>-Ainheritables.parallel</code>: evaluate the {@link MemberRuleCheck}s declaring all their
+ * rules on {@link MemberFacts} in parallel on the common fork-join pool. The members are snapshotted
+ * by the processing thread first, and the errors are reported in the same order as sequentially.
+ * Other checks are still evaluated sequentially.</li>
+ * </ul>
+ * <p>
+ * Processors registered as <code>dynamic</code> in <code>META-INF/gradle/incremental.annotation.processors</code>
+ * support Gradle's incremental annotation processing, see {@link #getSupportedOptions()}.
+ * 
+ * @author M Tegling
+ *
+ */
+public abstract class AbstractMultiInheritableAnnotationProcessor extends AbstractProcessor {
+
+    private final Set<String> visitedRootElements = new HashSet<>();
+    private final Deque<TypeElement> pendingTypes = new ArrayDeque<>();
+    private List<InheritableAnnotationCheck> checks;
+    private InheritanceEngine engine;
+    private AttributeResolver attributeResolver;
+    private boolean[] hasAttributes;
+    private HierarchyIndex index;
+    private boolean writeIndex;
+    // Records the direct supertypes of the types compiled from source, null unless enabled
+    private SubtypeIndexWriter subtypeIndex;
+    // Excludes types from the checks and the traversal, null unless given patterns
+    private TypeNameFilter filter;
+    private final ProcessingStats stats = new ProcessingStats();
+    private boolean reportStats;
+    private String statsFile;
+    private final List<ProcessingListener> listeners = new ArrayList<>();
+    private ErrorReporter errors;
+    // Evaluates the fact-based checks in parallel, null unless enabled
+    private ParallelCheckEvaluator parallelChecks;
+    private boolean[] factBased;
+
+    /**
+     * Implement this method to register the checks to perform. Called once when the
+     * processor is initialized.
+     * @return the checks, each associated with an inheritable annotation
+     */
+    protected abstract List<? extends InheritableAnnotationCheck> getChecks();
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        checks = new ArrayList<>(getChecks());
+        String[] annotationNames = new String[checks.size()];
+        for (int i = 0; i < annotationNames.length; i++) {
+            annotationNames[i] = checks.get(i).getAnnotationTypeName();
+        }
+        writeIndex = ProcessorOptions.isEnabled(processingEnv.getOptions(), ProcessorOptions.INDEX);
+        index = new HierarchyIndex(processingEnv.getFiler(), processingEnv.getMessager(), annotationNames);
+        statsFile = processingEnv.getOptions().get(ProcessorOptions.STATS_FILE);
+        reportStats = ProcessorOptions.isEnabled(processingEnv.getOptions(), ProcessorOptions.STATS) || statsFile != null;
+        SharedHierarchyCache sharedCache = null;
+        if (ProcessorOptions.isEnabled(processingEnv.getOptions(), ProcessorOptions.SHARED_CACHE)) {
+            sharedCache = SharedHierarchyCache.getInstance(
+                    intOption(ProcessorOptions.SHARED_CACHE_SIZE, SharedHierarchyCache.DEFAULT_MAX_TYPES));
+        }
+        engine = new InheritanceEngine(annotationNames, index, writeIndex, stats, sharedCache,
+                processingEnv.getFiler());
+        engine.setTrustIndex(ProcessorOptions.isEnabled(processingEnv.getOptions(), ProcessorOptions.PRUNE));
+        filter = TypeNameFilter.of(processingEnv.getOptions().get(ProcessorOptions.INCLUDE),
+                processingEnv.getOptions().get(ProcessorOptions.EXCLUDE));
+        engine.setFilter(filter);
+        attributeResolver = new AttributeResolver(engine, annotationNames.length);
+        if (ProcessorOptions.isEnabled(processingEnv.getOptions(), ProcessorOptions.TYPE_INDEX)) {
+            addListener(new AnnotatedTypeIndexWriter(processingEnv.getFiler(), processingEnv.getMessager(),
+                    processingEnv.getElementUtils()));
+        }
+        if (ProcessorOptions.isEnabled(processingEnv.getOptions(), ProcessorOptions.SUBTYPE_INDEX)) {
+            subtypeIndex = new SubtypeIndexWriter(processingEnv.getFiler(), processingEnv.getMessager(),
+                    processingEnv.getElementUtils());
+            engine.setSubtypeIndex(subtypeIndex);
+            addListener(subtypeIndex);
+        }
+        hasAttributes = new boolean[annotationNames.length];
+        factBased = new boolean[annotationNames.length];
+        if (ProcessorOptions.isEnabled(processingEnv.getOptions(), ProcessorOptions.PARALLEL)) {
+            parallelChecks = new ParallelCheckEvaluator(ForkJoinPool.commonPool());
+            boolean anyFactBased = false;
+            for (int i = 0; i < factBased.length; i++) {
+                factBased[i] = checks.get(i) instanceof MemberRuleCheck
+                        && ((MemberRuleCheck) checks.get(i)).isFactBased();
+                anyFactBased |= factBased[i];
+            }
+            if (!anyFactBased) {
+                processingEnv.getMessager().printMessage(Kind.WARNING, "Option " + ProcessorOptions.PARALLEL
+                        + " is ignored, as no check of " + getClass().getName() + " declares all its rules on member facts");
+            }
+        }
+        errors = new ErrorReporter(processingEnv.getMessager(),
+                intOption(ProcessorOptions.MAX_ERRORS, ErrorReporter.DEFAULT_MAX_ERRORS));
+
+        TypeElement[] annotationTypes = engine.beginRound(processingEnv.getElementUtils());
+        for (int i = 0; i < annotationTypes.length; i++) {
+            if (annotationTypes[i] == null) {
+                processingEnv.getMessager().printMessage(Kind.NOTE, "Inheritable annotation "
+                        + annotationNames[i] + " not found. No type can be affected by it.");
+            } else {
+                warnIfSourceRetention(annotationTypes[i]);
+            }
+        }
+    }
+
+    private int intOption(String option, int defaultValue) {
+        String value = processingEnv.getOptions().get(option);
+        if (value != null) {
+            try {
+                return Math.max(0, Integer.parseInt(value.trim()));
+            } catch (NumberFormatException e) {
+                processingEnv.getMessager().printMessage(Kind.WARNING, "Invalid value of "
+                        + option + ": " + value);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Also tells Gradle which kind of incremental annotation processor this is (for
+     * processors registered as <code>dynamic</code>). The processor is <i>isolating</i>
+     * unless it writes aggregated output, such as the index of inheritable annotations,
+     * in which case it is <i>aggregating</i>.
+     */
+    @Override
+    public Set<String> getSupportedOptions() {
+        Set<String> options = new HashSet<>(super.getSupportedOptions());
+        options.addAll(ProcessorOptions.ALL);
+        options.add(isAggregating() ? ProcessorOptions.GRADLE_AGGREGATING : ProcessorOptions.GRADLE_ISOLATING);
+        return options;
+    }
+
+    /**
+     * @return <code>true</code> if this processor writes output derived from several types;
+     * <code>false</code> if all decisions are based on a single type and its supertypes only
+     */
+    protected boolean isAggregating() {
+        if (writeIndex) {
+            return true;
+        }
+        for (ProcessingListener listener : listeners) {
+            if (listener.isAggregating()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Registers a listener to be told about the outcome of all checks. Must be called
+     * from {@link #init(ProcessingEnvironment)}.
+     */
+    void addListener(ProcessingListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Registers a type compiled from source ahead of the round it is processed in, for when
+     * the types are processed one at a time by the {@link InheritablesPlugin}. Otherwise a
+     * type reached as a supertype before being processed itself would be taken for a class
+     * path type, and not be checked.
+     */
+    void addSourceType(TypeElement type) {
+        engine.addSourceType(type);
+    }
+
+    // Only annotations present in class files can be inherited from types not being recompiled
+    private void warnIfSourceRetention(TypeElement annotationType) {
+        Retention retention = annotationType.getAnnotation(Retention.class);
+        if (retention != null && retention.value() == RetentionPolicy.SOURCE) {
+            processingEnv.getMessager().printMessage(Kind.WARNING, "Inheritable annotation "
+                    + annotationType.getQualifiedName() + " has SOURCE retention and cannot be inherited from "
+                    + "compiled types. Incremental and separate compilation may give different results.");
+        }
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        long start = reportStats ? System.nanoTime() : 0L;
+        stats.beginRound();
+        boolean anyAnnotationFound = false;
+        TypeElement[] annotationTypes = engine.beginRound(processingEnv.getElementUtils());
+        for (int i = 0; i < annotationTypes.length; i++) {
+            anyAnnotationFound |= annotationTypes[i] != null;
+            hasAttributes[i] = AttributeResolver.hasAttributes(annotationTypes[i]);
+        }
+        attributeResolver.beginRound();
+
+        // Classes found to be annotated for the first time during this round
+        List<TypeElement> newlyAnnotatedClasses = new ArrayList<>();
+
+        List<TypeElement> rootTypes = new ArrayList<>();
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            if (visitedRootElements.add(type.getQualifiedName().toString())) {
+                engine.addSourceType(type);
+                rootTypes.add(type);
+            }
+        }
+        stats.round().rootTypes = rootTypes.size();
+        if (!anyAnnotationFound && subtypeIndex == null) {
+            // No type can carry an annotation not on the class path
+            rootTypes.clear();
+        }
+
+        for (TypeElement type : rootTypes) {
+            resolveWithMemberTypes(type, newlyAnnotatedClasses);
+        }
+
+        // Resolving attributes may find more annotated classes, appended to the list and checked in turn
+        for (int j = 0; j < newlyAnnotatedClasses.size(); j++) {
+            TypeElement annotatedType = newlyAnnotatedClasses.get(j);
+            long mask = engine.maskOf(annotatedType);
+            for (int i = 0; i < checks.size(); i++) {
+                InheritableAnnotationCheck check = checks.get(i);
+                if ((mask & (1L << i)) == 0) {
+                    continue;
+                }
+                if (factBased[i]) {
+                    parallelChecks.add(annotatedType, i, (MemberRuleCheck) check);
+                    continue;
+                }
+                long checkStart = reportStats ? System.nanoTime() : 0L;
+                Map<ExecutableElement, AnnotationValue> attributes = hasAttributes[i]
+                        ? attributeResolver.resolve(annotatedType, i, newlyAnnotatedClasses)
+                        : Collections.<ExecutableElement, AnnotationValue>emptyMap();
+                boolean correct = check.isCorrectlyAnnotated(annotatedType, attributes);
+                if (reportStats) {
+                    stats.round().checkNanos += System.nanoTime() - checkStart;
+                }
+                stats.round().checks++;
+                if (!correct) {
+                    errors.add(annotatedType, check.getAnnotationTypeName(),
+                            check.getErrorMessage(annotatedType, attributes), engine.derivationPath(annotatedType, i));
+                }
+                for (ProcessingListener listener : listeners) {
+                    listener.checked(annotatedType, check, correct);
+                }
+            }
+        }
+
+        if (parallelChecks != null && !parallelChecks.isEmpty()) {
+            long checkStart = reportStats ? System.nanoTime() : 0L;
+            List<ParallelCheckEvaluator.PendingCheck> evaluated = parallelChecks.evaluate();
+            if (reportStats) {
+                stats.round().checkNanos += System.nanoTime() - checkStart;
+            }
+            stats.round().checks += evaluated.size();
+            for (ParallelCheckEvaluator.PendingCheck pending : evaluated) {
+                InheritableAnnotationCheck check = checks.get(pending.checkIndex);
+                if (!pending.isCorrect()) {
+                    errors.add(pending.type, check.getAnnotationTypeName(), pending.message,
+                            engine.derivationPath(pending.type, pending.checkIndex));
+                }
+                for (ProcessingListener listener : listeners) {
+                    listener.checked(pending.type, check, pending.isCorrect());
+                }
+            }
+        }
+
+        errors.flush();
+
+        for (ProcessingListener listener : listeners) {
+            listener.endRound(roundEnv);
+        }
+
+        if (writeIndex && roundEnv.processingOver()) {
+            index.write();
+        }
+
+        if (reportStats) {
+            stats.round().wallNanos = System.nanoTime() - start;
+            if (roundEnv.processingOver()) {
+                reportStats();
+            }
+        }
+        return false;
+    }
+
+    // Resolves a root type and, iteratively, all member types nested in it
+    private void resolveWithMemberTypes(TypeElement rootType, List<TypeElement> newlyAnnotatedClasses) {
+        pendingTypes.push(rootType);
+        while (!pendingTypes.isEmpty()) {
+            TypeElement type = pendingTypes.pop();
+            if (filter != null && filter.excludes(type.getQualifiedName())) {
+                // Skipped before interning its name, its member types being filtered on their own
+                stats.round().excludedTypes++;
+            } else if (type.getKind().isClass() || writeIndex || subtypeIndex != null) {
+                // Interfaces are only resolved on their own account when they are to be indexed
+                // Perform DFS with caching in type hierarchy
+                engine.resolve(type, newlyAnnotatedClasses);
+            }
+            for (Element enclosed : type.getEnclosedElements()) {
+                if (enclosed.getKind().isClass() || enclosed.getKind().isInterface()) {
+                    stats.round().memberTypes++;
+                    pendingTypes.push((TypeElement) enclosed);
+                }
+            }
+        }
+    }
+
+    private void reportStats() {
+        String processorName = getClass().getName();
+        processingEnv.getMessager().printMessage(Kind.NOTE, stats.summary(processorName));
+        if (statsFile != null && !statsFile.isEmpty()) {
+            try {
+                stats.writeReport(Paths.get(statsFile), processorName);
+            } catch (IOException | InvalidPathException e) {
+                processingEnv.getMessager().printMessage(Kind.WARNING,
+                        "Failed to write inheritables statistics to " + statsFile + ": " + e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+package se.motility.inheritables.processor;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+
+/**
+ * Abstract annotation processor traversing the type hierarchy to identify classes inheriting
+ * an annotation given by its fully qualified name, meaning that the annotation class does not
+ * need to be available to the processor.
+ * <p>
+ * Annotations may have attributes. Their values are resolved over the type hierarchy and given
+ * to {@link #isCorrectlyAnnotated(TypeElement, Map)}, where values set closer to the annotated
+ * type take precedence: first the type itself, then its superclass, then its interfaces in
+ * declaration order. (For more on multiple inheritance and associated problems, see 
+ * <a href="https://en.wikipedia.org/wiki/Multiple_inheritance#The_diamond_problem">
+ * The Diamond Problem</a>)
+ * 
+ * @author M Tegling
+ *
+ */
+public abstract class AbstractNamedAnnotationProcessor extends AbstractMultiInheritableAnnotationProcessor {
+
+    /**
+     * Method to analyze each type annotated with the annotation of interest (either directly
+     * or via extended inheritance), given the values of the annotation attributes.
+     * @param annotatedType the type annotated with the annotation of interest
+     * @param attributes the resolved value of every attribute of the annotation (empty for
+     * annotations without attributes)
+     * @return <code>false</code> if the annotated type does not satisfy the requirements
+     * imposed by the annotation and should fail to compile; <code>true</code> otherwise.
+     */
+    protected abstract boolean isCorrectlyAnnotated(TypeElement annotatedType,
+            Map<? extends ExecutableElement, ? extends AnnotationValue> attributes);
+
+    /**
+     * Method for producing the error message to be associated with the compilation
+     * failure of the annotated type.
+     * @param errorType the annotated type failing the annotation check
+     * @return message regarding why the type failed to compile
+     */
+    protected abstract String getErrorMessage(TypeElement errorType);
+
+    /**
+     * Implement this method to tell the detection algorithm which annotation to look
+     * for by its fully qualified name.
+     * @return the fully qualified name of the annotation of interest
+     */
+    protected abstract String getAnnotationTypeName();
+
+    @Override
+    protected final List<InheritableAnnotationCheck> getChecks() {
+        return Collections.singletonList(new NamedAnnotationCheck() {
+
+            @Override
+            public String getAnnotationTypeName() {
+                return AbstractNamedAnnotationProcessor.this.getAnnotationTypeName();
+            }
+
+            @Override
+            public boolean isCorrectlyAnnotated(TypeElement annotatedType,
+                    Map<? extends ExecutableElement, ? extends AnnotationValue> attributes) {
+                return AbstractNamedAnnotationProcessor.this.isCorrectlyAnnotated(annotatedType, attributes);
+            }
+
+            @Override
+            public String getErrorMessage(TypeElement errorType) {
+                return AbstractNamedAnnotationProcessor.this.getErrorMessage(errorType);
+            }
+        });
+    }
+
+}
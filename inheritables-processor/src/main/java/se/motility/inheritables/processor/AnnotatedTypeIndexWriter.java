@@ -0,0 +1,141 @@
+package se.motility.inheritables.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.FilerException;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Writes an index of the classes carrying each inheritable annotation, for looking them up at
+ * run-time without scanning the class path (see <code>AnnotatedTypes</code> in the
+ * <code>inheritables-runtime</code> module).
+ * <p>
+ * There is one index file per annotation, located at
+ * <code>META-INF/inheritables/types/&lt;annotation&gt;.idx</code>. Each line holds the binary name
+ * of a checked class followed by the binary names of all its supertypes, separated by spaces.
+ * Supertypes in <code>java.*</code> packages (such as <code>java.io.Serializable</code>) are left out,
+ * as are their own supertypes: they are implemented by too many types to be worth looking up, and
+ * would bloat every line. The file is written when processing is over.
+ * 
+ * @author M Tegling
+ *
+ */
+final class AnnotatedTypeIndexWriter implements ProcessingListener {
+
+    static final String LOCATION = "META-INF/inheritables/types/";
+    static final String SUFFIX = ".idx";
+
+    private final Filer filer;
+    private final Messager messager;
+    private final Elements elements;
+
+    // Annotation -> binary name -> the line of the type
+    private final Map<String, Map<String, String>> recorded = new LinkedHashMap<>();
+    private final List<Element> originatingElements = new ArrayList<>();
+
+    AnnotatedTypeIndexWriter(Filer filer, Messager messager, Elements elements) {
+        this.filer = filer;
+        this.messager = messager;
+        this.elements = elements;
+    }
+
+    @Override
+    public void checked(TypeElement annotatedType, InheritableAnnotationCheck check, boolean correct) {
+        Map<String, String> types = recorded.computeIfAbsent(check.getAnnotationTypeName(), a -> new LinkedHashMap<>());
+        String name = elements.getBinaryName(annotatedType).toString();
+        if (!types.containsKey(name)) {
+            types.put(name, lineOf(annotatedType, name));
+            originatingElements.add(annotatedType);
+        }
+    }
+
+    @Override
+    public void endRound(RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            write();
+        }
+    }
+
+    @Override
+    public boolean isAggregating() {
+        return true;
+    }
+
+    static String pathOf(String annotationName) {
+        return LOCATION + annotationName + SUFFIX;
+    }
+
+    private void write() {
+        Element[] originating = originatingElements.toArray(new Element[0]);
+        for (Map.Entry<String, Map<String, String>> entry : recorded.entrySet()) {
+            String path = pathOf(entry.getKey());
+            try {
+                FileObject file = filer.createResource(StandardLocation.CLASS_OUTPUT, "", path, originating);
+                try (Writer writer = file.openWriter()) {
+                    for (String line : entry.getValue().values()) {
+                        writer.write(line);
+                        writer.write('\n');
+                    }
+                }
+            } catch (FilerException e) {
+                // Already written by another processor of the compilation checking the same annotation
+            } catch (IOException e) {
+                messager.printMessage(Kind.ERROR, "Failed to write " + path + ": " + e);
+            }
+        }
+        recorded.clear();
+        originatingElements.clear();
+    }
+
+    // The type followed by its supertypes, breadth-first
+    private String lineOf(TypeElement type, String name) {
+        Set<String> supertypes = new LinkedHashSet<>();
+        Deque<TypeElement> pending = new ArrayDeque<>();
+        pending.add(type);
+        while (!pending.isEmpty()) {
+            TypeElement current = pending.poll();
+            addSupertype(current.getSuperclass(), supertypes, pending);
+            for (TypeMirror anInterface : current.getInterfaces()) {
+                addSupertype(anInterface, supertypes, pending);
+            }
+        }
+        StringBuilder line = new StringBuilder(name);
+        for (String supertype : supertypes) {
+            line.append(' ').append(supertype);
+        }
+        return line.toString();
+    }
+
+    private void addSupertype(TypeMirror supertype, Set<String> supertypes, Deque<TypeElement> pending) {
+        if (!(supertype instanceof DeclaredType)) {
+            return;
+        }
+        TypeElement element = (TypeElement) ((DeclaredType) supertype).asElement();
+        if (elements.getPackageOf(element).getQualifiedName().toString().startsWith("java.")) {
+            return;
+        }
+        if (supertypes.add(elements.getBinaryName(element).toString())) {
+            pending.add(element);
+        }
+    }
+
+}
@@ -0,0 +1,185 @@
+package se.motility.inheritables.processor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+
+/**
+ * Resolves the attribute values of inheritable annotations inherited via extended inheritance.
+ * <p>
+ * Each attribute takes the value set closest to the annotated type. Values set on the type
+ * itself take precedence, followed by the values inherited from the superclass and then from
+ * the interfaces in declaration order. Attributes set nowhere in the hierarchy take their
+ * default values. Hence, in a diamond the superclass wins over the interfaces and an earlier
+ * interface wins over a later one, regardless of how deep in the hierarchy the values are set.
+ * <p>
+ * The merged values of every visited type are memoized, so each type is merged once per
+ * annotation regardless of the number of paths leading to it. Supertypes not carrying the
+ * annotation are never visited. As annotation values are compiler objects, memoized values
+ * are kept for one round only.
+ * 
+ * @author M Tegling
+ *
+ */
+final class AttributeResolver {
+
+    private final InheritanceEngine engine;
+    private final List<Map<String, Map<String, AnnotationValue>>> memos = new ArrayList<>();
+
+    AttributeResolver(InheritanceEngine engine, int annotationCount) {
+        this.engine = engine;
+        for (int i = 0; i < annotationCount; i++) {
+            memos.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Clears the values memoized during the previous round.
+     */
+    void beginRound() {
+        for (Map<String, Map<String, AnnotationValue>> memo : memos) {
+            memo.clear();
+        }
+    }
+
+    /**
+     * @param annotationType the annotation
+     * @return <code>true</code> if the annotation has attributes
+     */
+    static boolean hasAttributes(TypeElement annotationType) {
+        return annotationType != null && !ElementFilter.methodsIn(annotationType.getEnclosedElements()).isEmpty();
+    }
+
+    /**
+     * @param type a type carrying annotation <i>index</i>, directly or via extended inheritance
+     * @param index the index of the annotation in the engine
+     * @param newlyAnnotatedClasses list to which classes found to be annotated for the first time,
+     * when resolving supertypes not yet resolved by the engine, are added for being checked
+     * @return the resolved value of every attribute of the annotation, in declaration order
+     */
+    Map<ExecutableElement, AnnotationValue> resolve(TypeElement type, int index,
+            List<TypeElement> newlyAnnotatedClasses) {
+        TypeElement annotationType = engine.annotationElement(index);
+        Map<String, AnnotationValue> merged = merge(type, index, annotationType, newlyAnnotatedClasses);
+        Map<ExecutableElement, AnnotationValue> attributes = new LinkedHashMap<>();
+        for (ExecutableElement attribute : ElementFilter.methodsIn(annotationType.getEnclosedElements())) {
+            AnnotationValue value = merged.get(attribute.getSimpleName().toString());
+            if (value == null) {
+                value = attribute.getDefaultValue();
+            }
+            if (value != null) {
+                attributes.put(attribute, value);
+            }
+        }
+        return Collections.unmodifiableMap(attributes);
+    }
+
+    // Iterative post-order traversal of the supertypes carrying the annotation
+    private Map<String, AnnotationValue> merge(TypeElement type, int index, TypeElement annotationType,
+            List<TypeElement> newlyAnnotatedClasses) {
+        Map<String, Map<String, AnnotationValue>> memo = memos.get(index);
+        String typeName = type.getQualifiedName().toString();
+        Map<String, AnnotationValue> known = memo.get(typeName);
+        if (known != null) {
+            return known;
+        }
+
+        Deque<TypeElement> types = new ArrayDeque<>();
+        Deque<List<TypeElement>> supertypes = new ArrayDeque<>();
+        Deque<int[]> nexts = new ArrayDeque<>();
+        Set<String> inProgress = new HashSet<>();
+        types.push(type);
+        supertypes.push(annotatedSupertypes(type, index, newlyAnnotatedClasses));
+        nexts.push(new int[1]);
+        inProgress.add(typeName);
+        while (!types.isEmpty()) {
+            List<TypeElement> pending = supertypes.peek();
+            int[] next = nexts.peek();
+            if (next[0] < pending.size()) {
+                TypeElement supertype = pending.get(next[0]++);
+                String name = supertype.getQualifiedName().toString();
+                if (!memo.containsKey(name) && inProgress.add(name)) {
+                    types.push(supertype);
+                    supertypes.push(annotatedSupertypes(supertype, index, newlyAnnotatedClasses));
+                    nexts.push(new int[1]);
+                }
+                continue;
+            }
+
+            TypeElement current = types.pop();
+            supertypes.pop();
+            nexts.pop();
+            Map<String, AnnotationValue> values = new HashMap<>(directValues(current, annotationType));
+            for (TypeElement supertype : pending) {
+                Map<String, AnnotationValue> inherited = memo.get(supertype.getQualifiedName().toString());
+                if (inherited != null) {
+                    for (Map.Entry<String, AnnotationValue> entry : inherited.entrySet()) {
+                        values.putIfAbsent(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+            String name = current.getQualifiedName().toString();
+            inProgress.remove(name);
+            memo.put(name, values);
+        }
+        return memo.get(typeName);
+    }
+
+    // The superclass, then the interfaces, keeping only those carrying the annotation
+    private List<TypeElement> annotatedSupertypes(TypeElement type, int index,
+            List<TypeElement> newlyAnnotatedClasses) {
+        List<TypeElement> result = new ArrayList<>();
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.NONE) {
+            addIfAnnotated(superclass, index, result, newlyAnnotatedClasses);
+        }
+        for (TypeMirror anInterface : type.getInterfaces()) {
+            addIfAnnotated(anInterface, index, result, newlyAnnotatedClasses);
+        }
+        return result;
+    }
+
+    private void addIfAnnotated(TypeMirror supertype, int index, List<TypeElement> result,
+            List<TypeElement> newlyAnnotatedClasses) {
+        if (!(supertype instanceof DeclaredType)) {
+            return;
+        }
+        TypeElement element = (TypeElement) ((DeclaredType) supertype).asElement();
+        // Supertypes after the first one completing the bitmask may not have been resolved yet
+        long mask = engine.resolve(element, newlyAnnotatedClasses);
+        if ((mask & (1L << index)) != 0) {
+            result.add(element);
+        }
+    }
+
+    private static Map<String, AnnotationValue> directValues(TypeElement type, TypeElement annotationType) {
+        for (AnnotationMirror mirror : type.getAnnotationMirrors()) {
+            if (mirror.getAnnotationType().asElement().equals(annotationType)) {
+                Map<String, AnnotationValue> values = new HashMap<>();
+                for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                        : mirror.getElementValues().entrySet()) {
+                    values.put(entry.getKey().getSimpleName().toString(), entry.getValue());
+                }
+                return values;
+            }
+        }
+        return Collections.emptyMap();
+    }
+
+}
@@ -0,0 +1,37 @@
+package se.motility.inheritables.processor;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+
+import se.motility.inheritables.annotations.RequireDefaultConstructor;
+
+/**
+ * Check failing any class inheriting the annotation {@link RequireDefaultConstructor}
+ * without having a default constructor. This is the check performed by the
+ * {@link DefaultConstructorProcessor}, made available for registration with an
+ * {@link AbstractMultiInheritableAnnotationProcessor} alongside other checks.
+ * 
+ * @author M Tegling
+ *
+ */
+public class DefaultConstructorCheck extends MemberRuleCheck {
+
+    private static final String ERROR_MESSAGE = "Missing default constructor. NB: This constructor can be set to 'private' access.";
+
+    @Override
+    protected List<MemberRule> getRules() {
+        // Evaluated on the elements when sequential, not taking snapshots of the constructors
+        return Collections.singletonList(MemberRule.require(ElementKind.CONSTRUCTOR,
+                constructor -> ((ExecutableElement) constructor).getParameters().isEmpty(),
+                constructor -> constructor.getParameterTypes().isEmpty(), ERROR_MESSAGE));
+    }
+
+    @Override
+    public Class<RequireDefaultConstructor> getAnnotationType() {
+        return RequireDefaultConstructor.class;
+    }
+
+}
@@ -1,10 +1,11 @@
 package se.motility.inheritables.processor;
 
+import java.lang.reflect.Method;
+
+import javax.annotation.processing.ProcessingEnvironment;
 import javax.annotation.processing.SupportedAnnotationTypes;
 import javax.annotation.processing.SupportedSourceVersion;
 import javax.lang.model.SourceVersion;
-import javax.lang.model.element.ElementKind;
-import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
 
 import se.motility.inheritables.annotations.RequireDefaultConstructor;
@@ -24,6 +25,25 @@ import se.motility.inheritables.annotations.RequireDefaultConstructor;
  * <p>
  * NB. Classes with no explicit constructor defined will get a default constructor added
  * by the Java compiler and will hence pass the check.
+ * <p>
+ * To combine this check with other checks in a single traversal of the type hierarchy,
+ * register a {@link DefaultConstructorCheck} with an {@link AbstractMultiInheritableAnnotationProcessor}.
+ * The processor itself runs that check, declaring its rules on member facts so that it can be
+ * evaluated in parallel, unless a subclass overrides {@link #isCorrectlyAnnotated(TypeElement)},
+ * {@link #getErrorMessage(TypeElement)} or {@link #getAnnotationType()}, in which case the
+ * overridden methods are called.
+ * <p>
+ * With the processor option <code>-Ainheritables.instantiators=&lt;class name&gt;</code>,
+ * a registry calling the default constructors of all checked classes directly is generated
+ * with the given name. Use <code>Instantiators</code> of the <code>inheritables-runtime</code>
+ * module for instantiating the checked classes without reflection, or its <code>Pools</code> for reusing
+ * instances of the checked classes implementing <code>Recyclable</code>.
+ * <p>
+ * With the processor option <code>-Ainheritables.nativeImage[=&lt;directory&gt;]</code>, the reflection
+ * configuration of GraalVM <code>native-image</code> registering the default constructors of the checked
+ * classes, and nothing else, is emitted into <code>META-INF/native-image/&lt;directory&gt;/reflect-config.json</code>.
+ * The directory is conventionally <code>&lt;group id&gt;/&lt;artifact id&gt;</code> of the module (default
+ * <code>{@value NativeImageConfigWriter#DEFAULT_DIRECTORY}</code>).
  * 
  * @author M Tegling
  *
@@ -32,24 +52,66 @@ import se.motility.inheritables.annotations.RequireDefaultConstructor;
 @SupportedAnnotationTypes("*")
 public class DefaultConstructorProcessor extends AbstractInheritableAnnotationProcessor{
 
-    private static final String ERROR_MESSAGE = "Missing default constructor. NB: This constructor can be set to 'private' access.";
+    private final DefaultConstructorCheck check = new DefaultConstructorCheck();
+    // Whether a subclass overrides the methods of the check
+    private final boolean overridden = overridesCheck(getClass());
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        String registryName = processingEnv.getOptions().get(ProcessorOptions.INSTANTIATORS);
+        if (registryName != null && !registryName.isEmpty()) {
+            addListener(new InstantiatorRegistryWriter(processingEnv.getFiler(), processingEnv.getMessager(),
+                    processingEnv.getElementUtils(), processingEnv.getTypeUtils(), registryName));
+        }
+        if (processingEnv.getOptions().containsKey(ProcessorOptions.NATIVE_IMAGE)) {
+            addListener(new NativeImageConfigWriter(processingEnv.getFiler(), processingEnv.getMessager(),
+                    processingEnv.getElementUtils(), processingEnv.getOptions().get(ProcessorOptions.NATIVE_IMAGE)));
+        }
+    }
+
+    @Override
+    protected InheritableAnnotationCheck getCheck() {
+        return overridden ? super.getCheck() : check;
+    }
 
     @Override
     protected boolean isCorrectlyAnnotated(TypeElement annotatedType) {
-        return annotatedType.getEnclosedElements().stream()
-                .filter(element -> element.getKind() == ElementKind.CONSTRUCTOR)
-                .map(ExecutableElement.class::cast)
-                .anyMatch(constructor -> constructor.getParameters().isEmpty());
+        return check.isCorrectlyAnnotated(annotatedType);
     }
 
     @Override
     protected String getErrorMessage(TypeElement errorType) {
-        return ERROR_MESSAGE;
+        return check.getErrorMessage(errorType);
     }
 
     @Override
     protected Class<RequireDefaultConstructor> getAnnotationType() {
-        return RequireDefaultConstructor.class;
+        return check.getAnnotationType();
+    }
+
+    private static boolean overridesCheck(Class<?> type) {
+        for (Class<?> c = type; c != DefaultConstructorProcessor.class; c = c.getSuperclass()) {
+            for (Method method : c.getDeclaredMethods()) {
+                if (isCheckMethod(method)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isCheckMethod(Method method) {
+        Class<?>[] parameters = method.getParameterTypes();
+        switch (method.getName()) {
+        case "isCorrectlyAnnotated":
+        case "getErrorMessage":
+            return parameters.length == 1 && parameters[0] == TypeElement.class;
+        case "getAnnotationType":
+            return parameters.length == 0 && !method.isBridge();
+        default:
+            return false;
+        }
     }
 
 }
@@ -0,0 +1,136 @@
+package se.motility.inheritables.processor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * Collects the errors of the failed checks of a round and reports them in one batch at the
+ * end of the round, ordered by type name and with duplicates removed.
+ * <p>
+ * Each error tells the path the annotation was inherited through. At most <i>maxErrors</i>
+ * errors are reported on their types during the compilation. The errors beyond that are
+ * aggregated into one error per annotation and annotated supertype, so that an annotation
+ * added to a widely used interface does not flood the compiler output.
+ *
+ * @author M Tegling
+ *
+ */
+final class ErrorReporter {
+
+    /** Default maximum number of errors reported on their types */
+    static final int DEFAULT_MAX_ERRORS = 100;
+
+    private static final int LISTED_TYPES = 10;
+    private static final String PATH_SEPARATOR = " -> ";
+
+    private final Messager messager;
+    private final int maxErrors;
+    private final List<Error> pending = new ArrayList<>();
+    private final Set<String> reported = new HashSet<>();
+    private int printed;
+
+    ErrorReporter(Messager messager, int maxErrors) {
+        this.messager = messager;
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Adds an error to be reported at the end of the round. Errors already added for the same
+     * type and annotation are ignored.
+     * @param type the type failing the check
+     * @param annotationName the annotation of the check
+     * @param message the error message of the check
+     * @param derivationPath the types the annotation was inherited through, starting with the
+     * failing type and ending with the type carrying the annotation
+     */
+    void add(TypeElement type, String annotationName, String message, List<String> derivationPath) {
+        String typeName = type.getQualifiedName().toString();
+        if (reported.add(annotationName + ' ' + typeName)) {
+            pending.add(new Error(type, typeName, annotationName, message, derivationPath));
+        }
+    }
+
+    /**
+     * Reports all errors added during the round.
+     */
+    void flush() {
+        pending.sort(Comparator.comparing((Error error) -> error.typeName).thenComparing(error -> error.annotationName));
+        // Errors beyond the cap, per annotation and annotated supertype
+        Map<String, List<Error>> suppressed = new LinkedHashMap<>();
+        for (Error error : pending) {
+            if (printed < maxErrors) {
+                printed++;
+                messager.printMessage(Kind.ERROR, messageOf(error), error.type);
+            } else {
+                String origin = error.derivationPath.isEmpty()
+                        ? error.typeName
+                        : error.derivationPath.get(error.derivationPath.size() - 1);
+                suppressed.computeIfAbsent(error.annotationName + ' ' + origin, k -> new ArrayList<>()).add(error);
+            }
+        }
+        for (List<Error> errors : suppressed.values()) {
+            messager.printMessage(Kind.ERROR, summaryOf(errors));
+        }
+        pending.clear();
+    }
+
+    private static String messageOf(Error error) {
+        if (error.derivationPath.size() < 2) {
+            return error.message;
+        }
+        return error.message + " (@" + simpleNameOf(error.annotationName) + " inherited via "
+                + String.join(PATH_SEPARATOR, error.derivationPath) + ")";
+    }
+
+    private String summaryOf(List<Error> errors) {
+        Error first = errors.get(0);
+        List<String> path = first.derivationPath;
+        StringBuilder summary = new StringBuilder()
+            .append(errors.size()).append(" more type(s) inheriting @").append(simpleNameOf(first.annotationName));
+        if (!path.isEmpty()) {
+            summary.append(" from ").append(path.get(path.size() - 1));
+        }
+        summary.append(" failed the check: ");
+        for (int i = 0; i < errors.size() && i < LISTED_TYPES; i++) {
+            summary.append(i == 0 ? "" : ", ").append(errors.get(i).typeName);
+        }
+        if (errors.size() > LISTED_TYPES) {
+            summary.append(", ...");
+        }
+        return summary.append(". First error: ").append(first.message)
+            .append(" Use -A").append(ProcessorOptions.MAX_ERRORS).append(" to report more errors (currently ")
+            .append(maxErrors).append(").").toString();
+    }
+
+    private static String simpleNameOf(String qualifiedName) {
+        return qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1);
+    }
+
+    private static final class Error {
+
+        final TypeElement type;
+        final String typeName;
+        final String annotationName;
+        final String message;
+        final List<String> derivationPath;
+
+        Error(TypeElement type, String typeName, String annotationName, String message, List<String> derivationPath) {
+            this.type = type;
+            this.typeName = typeName;
+            this.annotationName = annotationName;
+            this.message = message;
+            this.derivationPath = derivationPath;
+        }
+
+    }
+
+}
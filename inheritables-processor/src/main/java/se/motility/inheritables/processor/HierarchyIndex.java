@@ -0,0 +1,166 @@
+package se.motility.inheritables.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * Index of the inheritable annotations carried by compiled types, emitted into the class
+ * output of upstream modules and read from the class path when compiling downstream modules.
+ * This allows the annotation status of a class path type to be resolved without traversing
+ * its supertypes.
+ * <p>
+ * There is one index file per annotation and package, located at
+ * <code>META-INF/inheritables/&lt;annotation&gt;/&lt;package&gt;.idx</code>. Each line holds the
+ * name of a type (relative to the package) prefixed by <code>+</code> if the type carries
+ * the annotation and <code>-</code> otherwise. Types not listed are resolved by traversal.
+ * 
+ * @author M Tegling
+ *
+ */
+final class HierarchyIndex {
+
+    static final String LOCATION = "META-INF/inheritables/";
+    static final String SUFFIX = ".idx";
+    private static final String DEFAULT_PACKAGE = "default-package";
+
+    private final Filer filer;
+    private final Messager messager;
+    private final String[] annotationNames;
+
+    // Index files read from the class path: package -> one map per annotation (null if absent)
+    private final Map<String, Map<String, Boolean>[]> loaded = new HashMap<>();
+
+    // Source types resolved during this compilation: package -> relative name -> mask
+    private final Map<String, Map<String, Long>> recorded = new TreeMap<>();
+    private final List<Element> originatingElements = new ArrayList<>();
+
+    HierarchyIndex(Filer filer, Messager messager, String[] annotationNames) {
+        this.filer = filer;
+        this.messager = messager;
+        this.annotationNames = annotationNames;
+    }
+
+    /**
+     * Looks up a class path type in the index files of its package.
+     * @param type the type to look up
+     * @param result receives the annotation bitmask of the type, if indexed
+     * @return <code>true</code> if the type is indexed for all annotations; <code>false</code>
+     * if it must be resolved by traversal
+     */
+    boolean lookup(TypeElement type, long[] result) {
+        String packageName = packageOf(type).getQualifiedName().toString();
+        Map<String, Boolean>[] indexes = loaded.computeIfAbsent(packageName, this::load);
+        String name = relativeName(type, packageName);
+        long mask = 0;
+        for (int i = 0; i < indexes.length; i++) {
+            Boolean annotated = indexes[i] == null ? null : indexes[i].get(name);
+            if (annotated == null) {
+                return false;
+            } else if (annotated) {
+                mask |= 1L << i;
+            }
+        }
+        result[0] = mask;
+        return true;
+    }
+
+    /**
+     * Records the resolved annotation bitmask of a type compiled from source.
+     */
+    void record(TypeElement type, long mask) {
+        String packageName = packageOf(type).getQualifiedName().toString();
+        recorded.computeIfAbsent(packageName, p -> new TreeMap<>())
+            .put(relativeName(type, packageName), mask);
+        originatingElements.add(type);
+    }
+
+    /**
+     * Writes the index files for all recorded source types to the class output.
+     */
+    void write() {
+        Element[] originating = originatingElements.toArray(new Element[0]);
+        for (Map.Entry<String, Map<String, Long>> entry : recorded.entrySet()) {
+            for (int i = 0; i < annotationNames.length; i++) {
+                String path = pathOf(annotationNames[i], entry.getKey());
+                try {
+                    FileObject file = filer.createResource(StandardLocation.CLASS_OUTPUT, "", path, originating);
+                    try (Writer writer = file.openWriter()) {
+                        for (Map.Entry<String, Long> type : entry.getValue().entrySet()) {
+                            writer.write((type.getValue() & (1L << i)) != 0 ? '+' : '-');
+                            writer.write(type.getKey());
+                            writer.write('\n');
+                        }
+                    }
+                } catch (IOException e) {
+                    messager.printMessage(Kind.WARNING, "Could not write inheritables index " + path + ": " + e);
+                }
+            }
+        }
+        recorded.clear();
+        originatingElements.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Boolean>[] load(String packageName) {
+        Map<String, Boolean>[] indexes = new Map[annotationNames.length];
+        for (int i = 0; i < annotationNames.length; i++) {
+            indexes[i] = read(pathOf(annotationNames[i], packageName));
+        }
+        return indexes;
+    }
+
+    private Map<String, Boolean> read(String path) {
+        try {
+            FileObject file = filer.getResource(StandardLocation.CLASS_PATH, "", path);
+            Map<String, Boolean> index = new HashMap<>();
+            try (Reader reader = file.openReader(true); BufferedReader lines = new BufferedReader(reader)) {
+                String line;
+                while ((line = lines.readLine()) != null) {
+                    if (line.length() > 1) {
+                        index.put(line.substring(1), line.charAt(0) == '+');
+                    }
+                }
+            }
+            return index;
+        } catch (IOException | IllegalArgumentException e) {
+            // No index available for this package
+            return null;
+        }
+    }
+
+    static String pathOf(String annotationName, String packageName) {
+        return LOCATION + annotationName + '/'
+                + (packageName.isEmpty() ? DEFAULT_PACKAGE : packageName) + SUFFIX;
+    }
+
+    private static String relativeName(TypeElement type, String packageName) {
+        String name = type.getQualifiedName().toString();
+        return packageName.isEmpty() ? name : name.substring(packageName.length() + 1);
+    }
+
+    private static PackageElement packageOf(Element element) {
+        Element current = element;
+        while (current.getKind() != ElementKind.PACKAGE) {
+            current = current.getEnclosingElement();
+        }
+        return (PackageElement) current;
+    }
+
+}
@@ -0,0 +1,82 @@
+package se.motility.inheritables.processor;
+
+import java.lang.annotation.Annotation;
+import java.util.Map;
+
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+
+/**
+ * A check associated with an inheritable annotation. Several checks can be registered
+ * with an {@link AbstractMultiInheritableAnnotationProcessor}, in which case the type
+ * hierarchy is traversed only once regardless of the number of checks.
+ * <p>
+ * To give the annotation by name, or to analyze types given the values of the annotation
+ * attributes, implement {@link NamedAnnotationCheck} instead.
+ * 
+ * @author M Tegling
+ *
+ */
+public interface InheritableAnnotationCheck {
+
+    /**
+     * Tells the detection algorithm which annotation to look for.
+     * @return the class of the annotation of interest
+     * @throws UnsupportedOperationException for a {@link NamedAnnotationCheck}, giving the annotation by name
+     */
+    Class<? extends Annotation> getAnnotationType();
+
+    /**
+     * The fully qualified name of the annotation to look for, as used by the detection algorithm.
+     * Defaults to the name of the class returned by {@link #getAnnotationType()}.
+     * @return the fully qualified name of the annotation of interest
+     */
+    default String getAnnotationTypeName() {
+        return getAnnotationType().getCanonicalName();
+    }
+
+    /**
+     * Method to analyze each type annotated with the annotation of interest (either directly
+     * or via extended inheritance).
+     * @param annotatedType the type annotated with the annotation of interest
+     * @return <code>false</code> if the annotated type does not satisfy the requirements
+     * imposed by the annotation and should fail to compile; <code>true</code> otherwise.
+     */
+    boolean isCorrectlyAnnotated(TypeElement annotatedType);
+
+    /**
+     * Method to analyze each annotated type given the values of the annotation attributes,
+     * as called by the detection algorithm. Defaults to {@link #isCorrectlyAnnotated(TypeElement)}.
+     * @param annotatedType the type annotated with the annotation of interest
+     * @param attributes the resolved value of every attribute of the annotation (empty for
+     * annotations without attributes)
+     * @return <code>false</code> if the annotated type does not satisfy the requirements
+     * imposed by the annotation and should fail to compile; <code>true</code> otherwise.
+     */
+    default boolean isCorrectlyAnnotated(TypeElement annotatedType,
+            Map<? extends ExecutableElement, ? extends AnnotationValue> attributes) {
+        return isCorrectlyAnnotated(annotatedType);
+    }
+
+    /**
+     * Method for producing the error message to be associated with the compilation
+     * failure of the annotated type.
+     * @param errorType the annotated type failing the annotation check
+     * @return message regarding why the type failed to compile
+     */
+    String getErrorMessage(TypeElement errorType);
+
+    /**
+     * Method for producing the error message of a type failing {@link #isCorrectlyAnnotated(TypeElement, Map)},
+     * as called by the detection algorithm. Defaults to {@link #getErrorMessage(TypeElement)}.
+     * @param errorType the annotated type failing the annotation check
+     * @param attributes the resolved value of every attribute of the annotation
+     * @return message regarding why the type failed to compile
+     */
+    default String getErrorMessage(TypeElement errorType,
+            Map<? extends ExecutableElement, ? extends AnnotationValue> attributes) {
+        return getErrorMessage(errorType);
+    }
+
+}
@@ -0,0 +1,399 @@
+package se.motility.inheritables.processor;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.FilerException;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.JavaFileManager.Location;
+import javax.tools.JavaFileObject;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.Plugin;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.Trees;
+
+/**
+ * Compiler plugin performing the checks of inheritable annotation processors without running
+ * them as annotation processors. Each class is checked as soon as the compiler has analyzed it,
+ * rather than in processing rounds. Modules without other annotation processors can then be
+ * compiled with annotation processing turned off, and the catch-all <code>"*"</code> processor
+ * no longer takes part in the round planning of other processors.
+ * <p>
+ * Enable the plugin with <code>-proc:none -Xplugin:Inheritables</code>, having the processor
+ * artifact on the class path. The plugin runs the {@link DefaultConstructorProcessor} unless
+ * given the class names of other processors. Processor options are given as
+ * <code>&lt;option&gt;=&lt;value&gt;</code>, e.g.
+ * <code>-Xplugin:"Inheritables com.example.MyProcessor inheritables.maxErrors=20"</code>.
+ * <p>
+ * The processors are run with the same checks, caches and error reporting as by the compiler,
+ * with each analyzed class making a round of its own. The compiler does not give plugins a
+ * {@link Filer}, so options writing files (<code>inheritables.index</code>,
+ * <code>inheritables.typeIndex</code>, <code>inheritables.subtypeIndex</code>,
+ * <code>inheritables.nativeImage</code> and <code>inheritables.instantiators</code>) are not
+ * supported, nor is <code>inheritables.sharedCache</code>, which locates class files through the
+ * filer. Indexes on the class path are not read.
+ * <p>
+ * The plugin requires the compiler of Java 9 or later, which tells plugins when the compilation
+ * is over. Checks reporting once all classes are checked depend on it, so the plugin reports an
+ * error on Java 8 rather than checking part of the classes. Run the processors as annotation
+ * processors on Java 8.
+ *
+ * @author M Tegling
+ *
+ */
+public final class InheritablesPlugin implements Plugin {
+
+    /** Name of the plugin, as given to <code>-Xplugin</code> */
+    public static final String NAME = "Inheritables";
+
+    private static final String OPTION_PREFIX = "inheritables.";
+    // Not declared by the compiler of Java 8
+    private static final String COMPILATION_EVENT = "COMPILATION";
+    private static final List<String> UNSUPPORTED_OPTIONS = Arrays.asList(ProcessorOptions.INDEX,
+            ProcessorOptions.TYPE_INDEX, ProcessorOptions.SUBTYPE_INDEX, ProcessorOptions.INSTANTIATORS,
+            ProcessorOptions.NATIVE_IMAGE, ProcessorOptions.SHARED_CACHE);
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void init(JavacTask task, String... args) {
+        Trees trees = Trees.instance(task);
+        PluginMessager messager = new PluginMessager(trees);
+        Map<String, String> options = new HashMap<>();
+        List<String> processorNames = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith(OPTION_PREFIX)) {
+                int separator = arg.indexOf('=');
+                options.put(separator < 0 ? arg : arg.substring(0, separator),
+                        separator < 0 ? null : arg.substring(separator + 1));
+            } else if (!arg.isEmpty()) {
+                processorNames.add(arg);
+            }
+        }
+        for (String option : UNSUPPORTED_OPTIONS) {
+            if (options.containsKey(option)) {
+                options.remove(option);
+                messager.printMessage(Kind.WARNING, "Option " + option + " is not supported by the "
+                        + NAME + " plugin and is ignored. Run the processor as an annotation processor to use it.");
+            }
+        }
+        if (processorNames.isEmpty()) {
+            processorNames.add(DefaultConstructorProcessor.class.getName());
+        }
+
+        ProcessingEnvironment environment = new PluginEnvironment(task.getElements(), task.getTypes(),
+                messager, Collections.unmodifiableMap(options));
+        List<AbstractMultiInheritableAnnotationProcessor> processors = new ArrayList<>();
+        if (!isCompilationEventSupported()) {
+            // Still listening, as messages are printed once a compilation unit is entered
+            messager.printMessage(Kind.ERROR, "The " + NAME + " plugin requires Java 9 or later. "
+                    + "Run the processor as an annotation processor on Java 8.");
+            processorNames.clear();
+        }
+        for (String processorName : processorNames) {
+            AbstractMultiInheritableAnnotationProcessor processor = instantiate(processorName, messager);
+            if (processor != null) {
+                processors.add(processor);
+            }
+        }
+        task.addTaskListener(new CheckingListener(processors, environment, trees, messager));
+    }
+
+    // The end of the compilation is only told by Java 9 and later
+    static boolean isCompilationEventSupported() {
+        for (TaskEvent.Kind kind : TaskEvent.Kind.values()) {
+            if (COMPILATION_EVENT.equals(kind.name())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static AbstractMultiInheritableAnnotationProcessor instantiate(String className, Messager messager) {
+        try {
+            Class<?> type = Class.forName(className, true, InheritablesPlugin.class.getClassLoader());
+            if (!AbstractMultiInheritableAnnotationProcessor.class.isAssignableFrom(type)) {
+                messager.printMessage(Kind.ERROR, className + " given to the " + NAME + " plugin is not an "
+                        + AbstractMultiInheritableAnnotationProcessor.class.getSimpleName());
+                return null;
+            }
+            return (AbstractMultiInheritableAnnotationProcessor) type.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            messager.printMessage(Kind.ERROR, "Could not instantiate " + className + " given to the "
+                    + NAME + " plugin: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Registers the classes of each compilation unit as compiled from source once entered, and
+     * runs the processors on each class once analyzed. The processors are initialized once the
+     * sources are entered, so that annotations declared in the sources are found.
+     */
+    private static final class CheckingListener implements TaskListener {
+
+        private final List<AbstractMultiInheritableAnnotationProcessor> processors;
+        private final ProcessingEnvironment environment;
+        private final Trees trees;
+        private final PluginMessager messager;
+        private boolean initialized;
+
+        CheckingListener(List<AbstractMultiInheritableAnnotationProcessor> processors,
+                ProcessingEnvironment environment, Trees trees, PluginMessager messager) {
+            this.processors = processors;
+            this.environment = environment;
+            this.trees = trees;
+            this.messager = messager;
+        }
+
+        @Override
+        public void started(TaskEvent event) {
+            // Only finished tasks are of interest
+        }
+
+        @Override
+        public void finished(TaskEvent event) {
+            if (event.getCompilationUnit() != null) {
+                messager.setCompilationUnit(event.getCompilationUnit());
+            }
+            if (event.getKind() == TaskEvent.Kind.ENTER) {
+                if (!initialized) {
+                    initialized = true;
+                    for (AbstractMultiInheritableAnnotationProcessor processor : processors) {
+                        processor.init(environment);
+                    }
+                }
+                CompilationUnitTree unit = event.getCompilationUnit();
+                for (Tree declaration : unit.getTypeDecls()) {
+                    Element element = trees.getElement(new TreePath(new TreePath(unit), declaration));
+                    if (element instanceof TypeElement) {
+                        for (AbstractMultiInheritableAnnotationProcessor processor : processors) {
+                            processor.addSourceType((TypeElement) element);
+                        }
+                    }
+                }
+            } else if (event.getKind() == TaskEvent.Kind.ANALYZE && event.getTypeElement() != null) {
+                process(new PluginRound(Collections.singleton(event.getTypeElement()), false));
+            } else if (COMPILATION_EVENT.equals(event.getKind().name())) {
+                process(new PluginRound(Collections.<Element>emptySet(), true));
+            }
+        }
+
+        private void process(RoundEnvironment round) {
+            if (!initialized) {
+                // No sources entered
+                return;
+            }
+            for (AbstractMultiInheritableAnnotationProcessor processor : processors) {
+                processor.process(Collections.<TypeElement>emptySet(), round);
+            }
+        }
+
+    }
+
+    private static final class PluginRound implements RoundEnvironment {
+
+        private final Set<? extends Element> rootElements;
+        private final boolean over;
+
+        PluginRound(Set<? extends Element> rootElements, boolean over) {
+            this.rootElements = rootElements;
+            this.over = over;
+        }
+
+        @Override
+        public boolean processingOver() {
+            return over;
+        }
+
+        @Override
+        public boolean errorRaised() {
+            return false;
+        }
+
+        @Override
+        public Set<? extends Element> getRootElements() {
+            return rootElements;
+        }
+
+        @Override
+        public Set<? extends Element> getElementsAnnotatedWith(TypeElement a) {
+            throw new UnsupportedOperationException("Not supported by the " + NAME + " plugin");
+        }
+
+        @Override
+        public Set<? extends Element> getElementsAnnotatedWith(Class<? extends java.lang.annotation.Annotation> a) {
+            throw new UnsupportedOperationException("Not supported by the " + NAME + " plugin");
+        }
+
+    }
+
+    private static final class PluginEnvironment implements ProcessingEnvironment {
+
+        private final Elements elements;
+        private final Types types;
+        private final Messager messager;
+        private final Map<String, String> options;
+        private final Filer filer = new PluginFiler();
+
+        PluginEnvironment(Elements elements, Types types, Messager messager, Map<String, String> options) {
+            this.elements = elements;
+            this.types = types;
+            this.messager = messager;
+            this.options = options;
+        }
+
+        @Override
+        public Map<String, String> getOptions() {
+            return options;
+        }
+
+        @Override
+        public Messager getMessager() {
+            return messager;
+        }
+
+        @Override
+        public Filer getFiler() {
+            return filer;
+        }
+
+        @Override
+        public Elements getElementUtils() {
+            return elements;
+        }
+
+        @Override
+        public Types getTypeUtils() {
+            return types;
+        }
+
+        @Override
+        public SourceVersion getSourceVersion() {
+            return SourceVersion.latest();
+        }
+
+        @Override
+        public Locale getLocale() {
+            return Locale.getDefault();
+        }
+
+    }
+
+    /**
+     * Reports messages through the compiler, on the source of the given element if any. The
+     * compiler requires a position for every message. Messages without an element are reported
+     * on the compilation unit last told about, or held until the first compilation unit.
+     */
+    private static final class PluginMessager implements Messager {
+
+        private final Trees trees;
+        private final List<Object[]> pending = new ArrayList<>();
+        private CompilationUnitTree unit;
+
+        PluginMessager(Trees trees) {
+            this.trees = trees;
+        }
+
+        void setCompilationUnit(CompilationUnitTree unit) {
+            this.unit = unit;
+            for (Object[] message : pending) {
+                printMessage((Kind) message[0], (CharSequence) message[1]);
+            }
+            pending.clear();
+        }
+
+        @Override
+        public void printMessage(Kind kind, CharSequence msg) {
+            if (unit == null) {
+                pending.add(new Object[] {kind, msg});
+            } else {
+                trees.printMessage(kind, msg, unit, unit);
+            }
+        }
+
+        @Override
+        public void printMessage(Kind kind, CharSequence msg, Element e) {
+            TreePath path = e != null ? trees.getPath(e) : null;
+            if (path == null) {
+                printMessage(kind, msg);
+            } else {
+                trees.printMessage(kind, msg, path.getLeaf(), path.getCompilationUnit());
+            }
+        }
+
+        @Override
+        public void printMessage(Kind kind, CharSequence msg, Element e, AnnotationMirror a) {
+            printMessage(kind, msg, e);
+        }
+
+        @Override
+        public void printMessage(Kind kind, CharSequence msg, Element e, AnnotationMirror a, AnnotationValue v) {
+            printMessage(kind, msg, e);
+        }
+
+    }
+
+    /**
+     * Compilers do not give plugins a filer. Resources are never found and files cannot be created.
+     */
+    private static final class PluginFiler implements Filer {
+
+        @Override
+        public JavaFileObject createSourceFile(CharSequence name, Element... originatingElements)
+                throws FilerException {
+            throw unsupported();
+        }
+
+        @Override
+        public JavaFileObject createClassFile(CharSequence name, Element... originatingElements)
+                throws FilerException {
+            throw unsupported();
+        }
+
+        @Override
+        public FileObject createResource(Location location, CharSequence pkg, CharSequence relativeName,
+                Element... originatingElements) throws FilerException {
+            throw unsupported();
+        }
+
+        @Override
+        public FileObject getResource(Location location, CharSequence pkg, CharSequence relativeName)
+                throws FileNotFoundException {
+            throw new FileNotFoundException("Resources are not available to the " + NAME + " plugin");
+        }
+
+        private static FilerException unsupported() {
+            return new FilerException("Files cannot be written by the " + NAME + " plugin");
+        }
+
+    }
+
+}
@@ -0,0 +1,512 @@
+package se.motility.inheritables.processor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import javax.annotation.processing.Filer;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+
+/**
+ * Traverses the type hierarchy once for any number of inheritable annotations. For each
+ * visited type a bitmask is recorded in which bit <i>i</i> tells whether the type carries
+ * annotation <i>i</i> (directly or via extended inheritance).
+ * <p>
+ * The traversal is a depth-first search using an explicit stack, so deep hierarchies
+ * cannot overflow the call stack. Each visited type is given a dense integer id by a
+ * {@link TypeIdTable} and all per-type state is kept in primitive arrays indexed by id.
+ * Results are cached for the whole compilation and keyed by qualified name since the
+ * compiler is free to hand out new element instances for the same type in each round;
+ * no references to compiler elements are kept between calls. Results depending on a supertype
+ * not found by the compiler (an error type) are only kept for the round, as the supertype may be
+ * generated by another processor in a later round.
+ * <p>
+ * Types on the class path covered by a {@link HierarchyIndex} are resolved without traversal.
+ * Other class path types are traversed by name using their shapes from the {@link SharedHierarchyCache},
+ * if enabled, sparing the compiler from reading their class files. When the index is trusted,
+ * class path types missing from it are not traversed at all. Nor are types excluded by a
+ * {@link TypeNameFilter}, which are assumed to carry no annotations.
+ * <p>
+ * For each resolved type the supertype first contributing an annotation is kept as a parent pointer,
+ * giving the {@link #derivationPath(TypeElement, int) derivation path} of an annotation without
+ * another traversal. The direct supertypes of types compiled from source may also be recorded, as
+ * the edges of a {@link SubtypeIndexWriter reverse subtype index}.
+ * <p>
+ * Annotations are detected by comparing the annotation mirrors of each type with the
+ * annotation types resolved at the start of each round, meaning that the annotation
+ * classes never need to be loaded by the processor.
+ * 
+ * @author M Tegling
+ *
+ */
+final class InheritanceEngine {
+
+    /** Maximum number of annotations handled by one engine (one bit each) */
+    static final int MAX_ANNOTATIONS = Long.SIZE;
+
+    private static final byte UNRESOLVED = 0;
+    private static final byte IN_PROGRESS = 1;
+    private static final byte RESOLVED = 2;
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int INITIAL_DEPTH = 32;
+
+    private final String[] annotationNames;
+    private final TypeElement[] annotationElements;
+    private final long fullMask;
+    private final HierarchyIndex index;
+    private final boolean recordIndex;
+    private final ProcessingStats stats;
+    private final SharedHierarchyCache sharedCache;
+    private final SharedHierarchyCache.Locator sharedCacheLocator;
+    private Elements elements;
+    private boolean trustIndex;
+    private SubtypeIndexWriter subtypeIndex;
+    private TypeNameFilter filter;
+    private final long[] lookupResult = new long[1];
+
+    // Per-type state, indexed by type id
+    private final TypeIdTable ids = new TypeIdTable();
+    private byte[] states = new byte[INITIAL_CAPACITY];
+    private long[] masks = new long[INITIAL_CAPACITY];
+    // Annotations carried directly (or taken from an index), and the supertype first contributing any other
+    private long[] directMasks = new long[INITIAL_CAPACITY];
+    private int[] parents = new int[INITIAL_CAPACITY];
+    private final BitSet sourceTypes = new BitSet();
+    // Types resolved with an error type among their supertypes, resolved again in the next round
+    private final BitSet provisional = new BitSet();
+    // Classes already collected as annotated, not to be checked twice when resolved again
+    private final BitSet collected = new BitSet();
+
+    // Explicit DFS stack, one frame per type being resolved
+    private TypeElement[] stackTypes = new TypeElement[INITIAL_DEPTH];
+    private List<?>[] stackInterfaces = new List<?>[INITIAL_DEPTH];
+    private String[][] stackSuperNames = new String[INITIAL_DEPTH][];
+    private int[] stackInterfaceCounts = new int[INITIAL_DEPTH];
+    private int[] stackIds = new int[INITIAL_DEPTH];
+    private int[] stackNext = new int[INITIAL_DEPTH];
+    private long[] stackMasks = new long[INITIAL_DEPTH];
+    private int[] stackParents = new int[INITIAL_DEPTH];
+    private boolean[] stackFromSource = new boolean[INITIAL_DEPTH];
+    private boolean[] stackIncomplete = new boolean[INITIAL_DEPTH];
+    private int depth;
+
+    /**
+     * @param annotationNames qualified names of the annotations to look for, one bit each
+     * @param index index used for class path types and for recording source types
+     * @param recordIndex whether to record resolved source types in the index
+     * @param stats receives the counters of the traversal
+     * @param sharedCache cache of class path types shared between compilations, <code>null</code> if disabled
+     * @param filer used for locating class path types
+     */
+    InheritanceEngine(String[] annotationNames, HierarchyIndex index, boolean recordIndex, ProcessingStats stats,
+            SharedHierarchyCache sharedCache, Filer filer) {
+        if (annotationNames.length > MAX_ANNOTATIONS) {
+            throw new IllegalStateException("At most " + MAX_ANNOTATIONS
+                    + " inheritable annotations can be handled by one processor");
+        }
+        this.annotationNames = annotationNames.clone();
+        this.annotationElements = new TypeElement[annotationNames.length];
+        this.fullMask = annotationNames.length == MAX_ANNOTATIONS ? -1L : (1L << annotationNames.length) - 1;
+        this.index = index;
+        this.recordIndex = recordIndex;
+        this.stats = stats;
+        this.sharedCache = sharedCache;
+        this.sharedCacheLocator = sharedCache != null ? sharedCache.newLocator(filer) : null;
+    }
+
+    /**
+     * Resolves the annotation types for the current round. Must be called at the start of
+     * each round since the compiler is free to hand out new elements in each round.
+     * @param elements the element utilities of the current processing environment
+     * @return the resolved annotation types, <code>null</code> for annotations not found
+     */
+    TypeElement[] beginRound(Elements elements) {
+        this.elements = elements;
+        for (int id = provisional.nextSetBit(0); id >= 0; id = provisional.nextSetBit(id + 1)) {
+            states[id] = UNRESOLVED;
+        }
+        provisional.clear();
+        for (int i = 0; i < annotationNames.length; i++) {
+            annotationElements[i] = elements.getTypeElement(annotationNames[i]);
+        }
+        return annotationElements.clone();
+    }
+
+    /**
+     * @param index the index of an annotation
+     * @return the annotation type resolved for the current round, <code>null</code> if not found
+     */
+    TypeElement annotationElement(int index) {
+        return annotationElements[index];
+    }
+
+    /**
+     * @param trustIndex whether class path types missing from the index are assumed to carry
+     * no annotations, pruning their supertypes from the traversal
+     */
+    void setTrustIndex(boolean trustIndex) {
+        this.trustIndex = trustIndex;
+    }
+
+    /**
+     * @param subtypeIndex receives the direct supertypes of every type compiled from source, or
+     * <code>null</code> not to record them. When recording, the supertypes of types compiled from
+     * source are all visited even once every annotation is found.
+     */
+    void setSubtypeIndex(SubtypeIndexWriter subtypeIndex) {
+        this.subtypeIndex = subtypeIndex;
+    }
+
+    /**
+     * @param filter excludes types from the traversal, treating them as carrying no annotations
+     * and not checking them; <code>null</code> not to exclude any
+     */
+    void setFilter(TypeNameFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Registers a root element of the current round as compiled from source. Such types
+     * (and their member types) are never resolved from an index on the class path, which
+     * could be stale.
+     */
+    void addSourceType(TypeElement rootType) {
+        sourceTypes.set(idOf(rootType));
+    }
+
+    /**
+     * Resolves the annotation bitmask of the given type, traversing its supertypes as needed.
+     * @param type the type to resolve
+     * @param newlyAnnotatedClasses collects the classes compiled from source found to be annotated
+     * for the first time
+     * @return the annotation bitmask of the type
+     */
+    long resolve(TypeElement type, List<TypeElement> newlyAnnotatedClasses) {
+        int id = idOf(type);
+        if (states[id] == RESOLVED) {
+            stats.round().cacheHit(type.getKind().isInterface());
+            return masks[id];
+        }
+
+        stats.round().cacheMiss(type.getKind().isInterface());
+        push(type, id, newlyAnnotatedClasses);
+        while (depth > 0) {
+            int top = depth - 1;
+            List<?> interfaces = stackInterfaces[top];
+            String[] superNames = stackSuperNames[top];
+            int next = stackNext[top];
+            int supertypes = superNames != null ? superNames.length : interfaces.size() + 1;
+            boolean annotated = stackMasks[top] == fullMask;
+            // Shapes from the shared cache are only used for class path types, so edges are always read from mirrors
+            boolean recordEdges = subtypeIndex != null && stackFromSource[top];
+            if ((annotated && !recordEdges) || next >= supertypes) {
+                pop(newlyAnnotatedClasses);
+                continue;
+            }
+
+            // Interfaces first, then the superclass
+            stackNext[top] = next + 1;
+            // Kinds are told from positions, as asking a type for its kind makes the compiler complete it
+            boolean superIsInterface = next < stackInterfaceCounts[top];
+            TypeElement superElement;
+            if (superNames != null) {
+                superElement = elements.getTypeElement(superNames[next]);
+                if (superElement == null) {
+                    continue;
+                }
+            } else {
+                TypeMirror superMirror = next < interfaces.size()
+                        ? (TypeMirror) interfaces.get(next)
+                        : stackTypes[top].getSuperclass();
+                if (superMirror.getKind() == TypeKind.NONE) {
+                    continue;
+                }
+                if (superMirror.getKind() == TypeKind.ERROR) {
+                    // Possibly generated in a later round
+                    stackIncomplete[top] = true;
+                    continue;
+                }
+                superElement = asElement(superMirror);
+            }
+            if (recordEdges) {
+                subtypeIndex.add(superElement, stackTypes[top]);
+                if (annotated) {
+                    // Nothing more to inherit
+                    continue;
+                }
+            }
+            int superId = idOf(superElement);
+            if (states[superId] == RESOLVED) {
+                stats.round().cacheHit(superIsInterface);
+                inherit(top, superId, masks[superId]);
+                stackIncomplete[top] |= provisional.get(superId);
+            } else if (states[superId] == UNRESOLVED) {
+                stats.round().cacheMiss(superIsInterface);
+                push(superElement, superId, newlyAnnotatedClasses);
+            }
+            // else cyclic inheritance, which is reported by the compiler
+        }
+        return masks[id];
+    }
+
+    /**
+     * @param type a type previously resolved by this engine
+     * @return the annotation bitmask of the type, or <code>0</code> if not yet resolved
+     */
+    long maskOf(TypeElement type) {
+        int id = ids.find(nameOf(type));
+        return id >= 0 && states[id] == RESOLVED ? masks[id] : 0L;
+    }
+
+    /**
+     * Follows the parent pointers recorded during the traversal from a type to the supertype
+     * carrying an annotation directly. Types resolved from an index end the path, as their
+     * supertypes are unknown.
+     * @param type a type previously resolved by this engine
+     * @param index the index of an annotation carried by the type
+     * @return the qualified names of the types on the path, starting with the given type
+     */
+    List<String> derivationPath(TypeElement type, int index) {
+        long bit = 1L << index;
+        List<String> path = new ArrayList<>();
+        int id = ids.find(nameOf(type));
+        while (id >= 0 && states[id] == RESOLVED && (masks[id] & bit) != 0 && path.size() < ids.size()) {
+            path.add(ids.nameOf(id));
+            if ((directMasks[id] & bit) != 0) {
+                break;
+            }
+            int parent = parents[id];
+            if (parent < 0 || (masks[parent] & bit) == 0) {
+                // The parent contributed other annotations only
+                parent = contributingSupertype(ids.nameOf(id), bit);
+            }
+            id = parent;
+        }
+        return path;
+    }
+
+    // Looks among the resolved direct supertypes of a type, without resolving anything
+    private int contributingSupertype(String name, long bit) {
+        TypeElement type = elements.getTypeElement(name);
+        if (type == null) {
+            return -1;
+        }
+        List<TypeMirror> supertypes = new ArrayList<>(type.getInterfaces());
+        supertypes.add(type.getSuperclass());
+        for (TypeMirror supertype : supertypes) {
+            if (supertype.getKind() == TypeKind.DECLARED) {
+                int id = ids.find(nameOf(asElement(supertype)));
+                if (id >= 0 && states[id] == RESOLVED && (masks[id] & bit) != 0) {
+                    return id;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void push(TypeElement type, int id, List<TypeElement> newlyAnnotatedClasses) {
+        if (filter != null && filter.excludes(ids.nameOf(id))) {
+            // A terminal node, neither traversed nor checked
+            stats.round().excludedTypes++;
+            directMasks[id] = 0L;
+            complete(type, id, 0L, -1, false, false, newlyAnnotatedClasses);
+            return;
+        }
+        SharedHierarchyCache.TypeShape shape = null;
+        boolean fromSource = isFromSource(type);
+        if (!fromSource) {
+            if (index.lookup(type, lookupResult)) {
+                stats.round().indexHits++;
+                directMasks[id] = lookupResult[0];
+                complete(type, id, lookupResult[0], -1, false, false, newlyAnnotatedClasses);
+                return;
+            }
+            if (trustIndex) {
+                stats.round().prunedTypes++;
+                directMasks[id] = 0L;
+                complete(type, id, 0L, -1, false, false, newlyAnnotatedClasses);
+                return;
+            }
+            if (sharedCache != null) {
+                shape = sharedShapeOf(type);
+            }
+        }
+        stats.round().typesTraversed++;
+        if (depth == stackIds.length) {
+            int capacity = depth * 2;
+            stackTypes = Arrays.copyOf(stackTypes, capacity);
+            stackInterfaces = Arrays.copyOf(stackInterfaces, capacity);
+            stackSuperNames = Arrays.copyOf(stackSuperNames, capacity);
+            stackInterfaceCounts = Arrays.copyOf(stackInterfaceCounts, capacity);
+            stackIds = Arrays.copyOf(stackIds, capacity);
+            stackNext = Arrays.copyOf(stackNext, capacity);
+            stackMasks = Arrays.copyOf(stackMasks, capacity);
+            stackParents = Arrays.copyOf(stackParents, capacity);
+            stackFromSource = Arrays.copyOf(stackFromSource, capacity);
+            stackIncomplete = Arrays.copyOf(stackIncomplete, capacity);
+        }
+        states[id] = IN_PROGRESS;
+        stackTypes[depth] = type;
+        stackIds[depth] = id;
+        stackNext[depth] = 0;
+        stackParents[depth] = -1;
+        stackFromSource[depth] = fromSource;
+        stackIncomplete[depth] = false;
+        if (shape != null) {
+            // Resolved from names, without the compiler reading the class file
+            stackInterfaces[depth] = null;
+            stackSuperNames[depth] = shape.supertypes;
+            stackInterfaceCounts[depth] = shape.interfaceCount;
+            stackMasks[depth] = directMask(shape.annotations);
+        } else {
+            List<? extends TypeMirror> interfaces = type.getInterfaces();
+            stackInterfaces[depth] = interfaces;
+            stackSuperNames[depth] = null;
+            stackInterfaceCounts[depth] = interfaces.size();
+            stackMasks[depth] = directMask(type);
+        }
+        directMasks[id] = stackMasks[depth];
+        depth++;
+    }
+
+    // Returns the cached shape of a class path type, or caches it and returns null if missing
+    private SharedHierarchyCache.TypeShape sharedShapeOf(TypeElement type) {
+        String key = sharedCacheLocator.keyOf(elements.getPackageOf(type).getQualifiedName().toString(),
+                elements.getBinaryName(type).toString());
+        if (key == null) {
+            return null;
+        }
+        SharedHierarchyCache.TypeShape shape = sharedCache.get(key);
+        if (shape != null) {
+            stats.round().sharedCacheHits++;
+            return shape;
+        }
+        stats.round().sharedCacheMisses++;
+
+        List<? extends AnnotationMirror> mirrors = type.getAnnotationMirrors();
+        String[] annotations = new String[mirrors.size()];
+        for (int i = 0; i < annotations.length; i++) {
+            annotations[i] = nameOf((TypeElement) mirrors.get(i).getAnnotationType().asElement());
+        }
+        List<? extends TypeMirror> interfaces = type.getInterfaces();
+        TypeMirror superclass = type.getSuperclass();
+        int count = interfaces.size() + (superclass.getKind() == TypeKind.NONE ? 0 : 1);
+        String[] supertypes = new String[count];
+        for (int i = 0; i < interfaces.size(); i++) {
+            supertypes[i] = nameOf(asElement(interfaces.get(i)));
+        }
+        if (count > interfaces.size()) {
+            supertypes[count - 1] = nameOf(asElement(superclass));
+        }
+        sharedCache.put(key, new SharedHierarchyCache.TypeShape(annotations, supertypes, interfaces.size()));
+        return null;
+    }
+
+    private void pop(List<TypeElement> newlyAnnotatedClasses) {
+        depth--;
+        TypeElement type = stackTypes[depth];
+        // Do not hold on to compiler elements
+        stackTypes[depth] = null;
+        stackInterfaces[depth] = null;
+        stackSuperNames[depth] = null;
+        complete(type, stackIds[depth], stackMasks[depth], stackParents[depth], stackFromSource[depth],
+                stackIncomplete[depth], newlyAnnotatedClasses);
+    }
+
+    private void complete(TypeElement type, int id, long mask, int parent, boolean fromSource, boolean incomplete,
+            List<TypeElement> newlyAnnotatedClasses) {
+        states[id] = RESOLVED;
+        masks[id] = mask;
+        parents[id] = parent;
+        if (incomplete) {
+            provisional.set(id);
+        }
+        if (recordIndex && fromSource) {
+            index.record(type, mask);
+        }
+        // Classes on the class path were checked when compiled, and cannot be fixed by this compilation
+        if (mask != 0 && fromSource && type.getKind().isClass() && !collected.get(id)) {
+            collected.set(id);
+            newlyAnnotatedClasses.add(type);
+        }
+        if (depth > 0) {
+            inherit(depth - 1, id, mask);
+            stackIncomplete[depth - 1] |= incomplete;
+        }
+    }
+
+    // Adds the mask of a supertype to a frame, keeping the first supertype contributing anything
+    private void inherit(int frame, int superId, long superMask) {
+        if (stackParents[frame] < 0 && (superMask & ~stackMasks[frame]) != 0) {
+            stackParents[frame] = superId;
+        }
+        stackMasks[frame] |= superMask;
+    }
+
+    private long directMask(TypeElement type) {
+        List<? extends AnnotationMirror> mirrors = type.getAnnotationMirrors();
+        if (mirrors.isEmpty()) {
+            return 0L;
+        }
+        long mask = 0;
+        for (int m = 0; m < mirrors.size(); m++) {
+            Element annotationType = mirrors.get(m).getAnnotationType().asElement();
+            for (int i = 0; i < annotationElements.length; i++) {
+                if (annotationType.equals(annotationElements[i])) {
+                    mask |= 1L << i;
+                }
+            }
+        }
+        return mask;
+    }
+
+    private long directMask(String[] annotations) {
+        long mask = 0;
+        for (String annotation : annotations) {
+            for (int i = 0; i < annotationNames.length; i++) {
+                if (annotation.equals(annotationNames[i])) {
+                    mask |= 1L << i;
+                }
+            }
+        }
+        return mask;
+    }
+
+    private int idOf(TypeElement type) {
+        int id = ids.intern(nameOf(type));
+        if (id == states.length) {
+            states = Arrays.copyOf(states, id * 2);
+            masks = Arrays.copyOf(masks, id * 2);
+            directMasks = Arrays.copyOf(directMasks, id * 2);
+            parents = Arrays.copyOf(parents, id * 2);
+        }
+        return id;
+    }
+
+    private boolean isFromSource(TypeElement type) {
+        // The outermost type is found by name, as walking the enclosing types makes the compiler complete them
+        String name = nameOf(type);
+        int packageLength = elements.getPackageOf(type).getQualifiedName().length();
+        int start = packageLength == 0 ? 0 : packageLength + 1;
+        int end = name.indexOf('.', start);
+        int id = ids.find(end < 0 ? name : name.substring(0, end));
+        return id >= 0 && sourceTypes.get(id);
+    }
+
+    private static TypeElement asElement(TypeMirror mirror) {
+        return (TypeElement) ((DeclaredType) mirror).asElement();
+    }
+
+    private static String nameOf(TypeElement type) {
+        return type.getQualifiedName().toString();
+    }
+
+}
@@ -0,0 +1,187 @@
+package se.motility.inheritables.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import se.motility.inheritables.annotations.RequireDefaultConstructor;
+
+/**
+ * Generates an <code>InstantiatorRegistry</code> (see the <code>inheritables-runtime</code>
+ * module) calling the default constructors of the classes passing a {@link DefaultConstructorCheck}
+ * (or any other check of {@link RequireDefaultConstructor}) directly, making reflection unnecessary when instantiating them.
+ * <p>
+ * One registry class is generated in each round finding such classes; rounds after the first
+ * append the round number to the class name. All generated registries are listed in
+ * <code>META-INF/services/</code> when processing is over.
+ * <p>
+ * Classes whose default constructor cannot be called from the package of the registry
+ * (e.g. private constructors or inner classes), or declares checked exceptions, are left out;
+ * the run-time falls back to reflection for these.
+ * 
+ * @author M Tegling
+ *
+ */
+final class InstantiatorRegistryWriter implements ProcessingListener {
+
+    static final String REGISTRY_INTERFACE = "se.motility.inheritables.runtime.InstantiatorRegistry";
+    private static final String ANNOTATION = RequireDefaultConstructor.class.getCanonicalName();
+
+    static final String SERVICE_FILE = "META-INF/services/" + REGISTRY_INTERFACE;
+
+    private final Filer filer;
+    private final Messager messager;
+    private final Elements elements;
+    private final Types types;
+    private final String packageName;
+    private final String simpleName;
+    private final List<String> writtenRegistries = new ArrayList<>();
+    private final List<TypeElement> roundTypes = new ArrayList<>();
+    private int round;
+
+    /**
+     * @param registryName qualified name of the registry class to generate
+     */
+    InstantiatorRegistryWriter(Filer filer, Messager messager, Elements elements, Types types, String registryName) {
+        this.filer = filer;
+        this.messager = messager;
+        this.elements = elements;
+        this.types = types;
+        int lastDot = registryName.lastIndexOf('.');
+        this.packageName = lastDot < 0 ? "" : registryName.substring(0, lastDot);
+        this.simpleName = registryName.substring(lastDot + 1);
+    }
+
+    @Override
+    public void checked(TypeElement annotatedType, InheritableAnnotationCheck check, boolean correct) {
+        if (correct && ANNOTATION.equals(check.getAnnotationTypeName()) && isInstantiable(annotatedType)) {
+            roundTypes.add(annotatedType);
+        }
+    }
+
+    @Override
+    public void endRound(RoundEnvironment roundEnv) {
+        round++;
+        if (!roundTypes.isEmpty()) {
+            writeRegistry(round == 1 ? simpleName : simpleName + round);
+            roundTypes.clear();
+        }
+        if (roundEnv.processingOver() && !writtenRegistries.isEmpty()) {
+            writeServiceFile();
+        }
+    }
+
+    @Override
+    public boolean isAggregating() {
+        return true;
+    }
+
+    private void writeRegistry(String className) {
+        String qualifiedName = packageName.isEmpty() ? className : packageName + '.' + className;
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("import java.util.Map;\n")
+            .append("import java.util.function.Supplier;\n\n")
+            .append("/** Generated by the inheritables annotation processor. Do not edit. */\n")
+            .append("public final class ").append(className).append(" implements ")
+            .append(REGISTRY_INTERFACE).append(" {\n\n")
+            .append("    @Override\n")
+            .append("    public void registerInstantiators(Map<String, Supplier<?>> instantiators) {\n");
+        for (TypeElement type : roundTypes) {
+            source.append("        instantiators.put(\"").append(elements.getBinaryName(type))
+                .append("\", ").append(type.getQualifiedName()).append("::new);\n");
+        }
+        source.append("    }\n\n}\n");
+
+        try (Writer writer = filer.createSourceFile(qualifiedName, roundTypes.toArray(new Element[0])).openWriter()) {
+            writer.write(source.toString());
+            writtenRegistries.add(qualifiedName);
+        } catch (IOException e) {
+            messager.printMessage(Kind.ERROR, "Failed to write instantiator registry " + qualifiedName + ": " + e);
+        }
+    }
+
+    private void writeServiceFile() {
+        try {
+            FileObject file = filer.createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+            try (Writer writer = file.openWriter()) {
+                for (String registry : writtenRegistries) {
+                    writer.write(registry);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            messager.printMessage(Kind.ERROR, "Failed to write " + SERVICE_FILE + ": " + e);
+        }
+    }
+
+    private boolean isInstantiable(TypeElement type) {
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+        // Every enclosing class must be accessible, and the class itself must not be inner
+        for (Element element = type; element.getKind() != ElementKind.PACKAGE; element = element.getEnclosingElement()) {
+            TypeElement enclosing = (TypeElement) element;
+            NestingKind nesting = enclosing.getNestingKind();
+            if (nesting == NestingKind.LOCAL || nesting == NestingKind.ANONYMOUS
+                    || nesting == NestingKind.MEMBER && enclosing.getKind() == ElementKind.CLASS
+                            && !enclosing.getModifiers().contains(Modifier.STATIC)
+                            && enclosing.getEnclosingElement().getKind().isClass()
+                    || !isAccessible(enclosing.getModifiers(), type)) {
+                return false;
+            }
+        }
+        for (Element element : type.getEnclosedElements()) {
+            if (element.getKind() == ElementKind.CONSTRUCTOR
+                    && ((ExecutableElement) element).getParameters().isEmpty()) {
+                return isAccessible(element.getModifiers(), type)
+                        && !throwsCheckedException((ExecutableElement) element);
+            }
+        }
+        return false;
+    }
+
+    // A constructor reference to such a constructor is not a Supplier
+    private boolean throwsCheckedException(ExecutableElement constructor) {
+        for (TypeMirror thrown : constructor.getThrownTypes()) {
+            if (!types.isSubtype(thrown, elements.getTypeElement(RuntimeException.class.getCanonicalName()).asType())
+                    && !types.isSubtype(thrown, elements.getTypeElement(Error.class.getCanonicalName()).asType())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isAccessible(Set<Modifier> modifiers, TypeElement type) {
+        if (modifiers.contains(Modifier.PUBLIC)) {
+            return true;
+        }
+        if (modifiers.contains(Modifier.PRIVATE)) {
+            return false;
+        }
+        PackageElement typePackage = elements.getPackageOf(type);
+        return typePackage.getQualifiedName().contentEquals(packageName);
+    }
+
+}
@@ -0,0 +1,112 @@
+package se.motility.inheritables.processor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.VariableElement;
+
+/**
+ * Immutable snapshot of a member of a checked type, taken from the compiler's element model.
+ * Unlike the elements themselves, which are not thread-safe, the snapshots can be inspected
+ * by {@link MemberRule}s running in parallel (see {@link MemberRule#requireFact}).
+ * <p>
+ * Types are given by their string representation, e.g. <code>java.util.List&lt;java.lang.String&gt;</code>
+ * or <code>int</code>.
+ *
+ * @author M Tegling
+ *
+ */
+public final class MemberFacts {
+
+    private final ElementKind kind;
+    private final String simpleName;
+    private final Set<Modifier> modifiers;
+    private final String type;
+    private final List<String> parameterTypes;
+
+    private MemberFacts(ElementKind kind, String simpleName, Set<Modifier> modifiers, String type,
+            List<String> parameterTypes) {
+        this.kind = kind;
+        this.simpleName = simpleName;
+        this.modifiers = modifiers;
+        this.type = type;
+        this.parameterTypes = parameterTypes;
+    }
+
+    /**
+     * Takes a snapshot of a member. Must be called by the processing thread.
+     * @param member the member
+     * @return the snapshot
+     */
+    static MemberFacts of(Element member) {
+        Set<Modifier> modifiers = member.getModifiers().isEmpty()
+                ? Collections.<Modifier>emptySet()
+                : Collections.unmodifiableSet(EnumSet.copyOf(member.getModifiers()));
+        String type = null;
+        List<String> parameterTypes = Collections.emptyList();
+        if (member instanceof ExecutableElement) {
+            ExecutableElement executable = (ExecutableElement) member;
+            type = executable.getReturnType().toString();
+            List<? extends VariableElement> parameters = executable.getParameters();
+            if (!parameters.isEmpty()) {
+                List<String> types = new ArrayList<>(parameters.size());
+                for (VariableElement parameter : parameters) {
+                    types.add(parameter.asType().toString());
+                }
+                parameterTypes = Collections.unmodifiableList(types);
+            }
+        } else if (member instanceof VariableElement) {
+            type = member.asType().toString();
+        }
+        return new MemberFacts(member.getKind(), member.getSimpleName().toString(), modifiers, type, parameterTypes);
+    }
+
+    /**
+     * @return the kind of the member
+     */
+    public ElementKind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return the simple name of the member (<code>&lt;init&gt;</code> for constructors)
+     */
+    public String getSimpleName() {
+        return simpleName;
+    }
+
+    /**
+     * @return the modifiers of the member
+     */
+    public Set<Modifier> getModifiers() {
+        return modifiers;
+    }
+
+    /**
+     * @return the type of a field, or the return type of a method (<code>void</code> for
+     * constructors); <code>null</code> for other members
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return the parameter types of a method or constructor; empty for other members
+     */
+    public List<String> getParameterTypes() {
+        return parameterTypes;
+    }
+
+    @Override
+    public String toString() {
+        return kind + " " + simpleName;
+    }
+
+}
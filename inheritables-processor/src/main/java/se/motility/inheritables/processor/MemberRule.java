@@ -0,0 +1,147 @@
+package se.motility.inheritables.processor;
+
+import java.util.function.Predicate;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+
+/**
+ * Rule on the members (as given by {@link javax.lang.model.element.TypeElement#getEnclosedElements()})
+ * of the types checked by a {@link MemberRuleCheck}. A rule subscribes to one kind of member and
+ * either requires at least one member of that kind to satisfy a condition, or forbids any member
+ * of that kind from satisfying it.
+ * <p>
+ * Example rules:
+ * <pre>
+ * MemberRule.require(ElementKind.CONSTRUCTOR, c -&gt; ((ExecutableElement) c).getParameters().isEmpty(),
+ *         "Missing default constructor.");
+ * MemberRule.forbid(ElementKind.FIELD, f -&gt; f.getModifiers().contains(Modifier.FINAL),
+ *         "Final fields are not allowed.");
+ * </pre>
+ * Rules declared on {@link MemberFacts} rather than elements, using {@link #requireFact} and
+ * {@link #forbidFact}, can be evaluated in parallel when the processor is given the option
+ * <code>-Ainheritables.parallel</code>:
+ * <pre>
+ * MemberRule.requireFact(ElementKind.CONSTRUCTOR, c -&gt; c.getParameterTypes().isEmpty(),
+ *         "Missing default constructor.");
+ * </pre>
+ * Rules evaluated on facts take a snapshot of each member when evaluated sequentially. Rules
+ * given a condition on both, which must agree, evaluate the element directly when sequential:
+ * <pre>
+ * MemberRule.require(ElementKind.CONSTRUCTOR, c -&gt; ((ExecutableElement) c).getParameters().isEmpty(),
+ *         c -&gt; c.getParameterTypes().isEmpty(), "Missing default constructor.");
+ * </pre>
+ * 
+ * @author M Tegling
+ *
+ */
+public final class MemberRule {
+
+    private final ElementKind kind;
+    private final Predicate<? super Element> condition;
+    private final Predicate<? super MemberFacts> factCondition;
+    private final boolean required;
+    private final String message;
+
+    private MemberRule(ElementKind kind, Predicate<? super Element> condition,
+            Predicate<? super MemberFacts> factCondition, boolean required, String message) {
+        this.kind = kind;
+        this.condition = condition;
+        this.factCondition = factCondition;
+        this.required = required;
+        this.message = message;
+    }
+
+    /**
+     * @param kind the kind of members to apply the condition to
+     * @param condition the condition at least one member of the kind must satisfy
+     * @param message the error message of types not having such a member
+     * @return rule failing types without any member of the given kind satisfying the condition
+     */
+    public static MemberRule require(ElementKind kind, Predicate<? super Element> condition, String message) {
+        return new MemberRule(kind, condition, null, true, message);
+    }
+
+    /**
+     * @param kind the kind of members to apply the condition to
+     * @param condition the condition no member of the kind may satisfy
+     * @param message the error message of types having such a member
+     * @return rule failing types having any member of the given kind satisfying the condition
+     */
+    public static MemberRule forbid(ElementKind kind, Predicate<? super Element> condition, String message) {
+        return new MemberRule(kind, condition, null, false, message);
+    }
+
+    /**
+     * @param kind the kind of members to apply the conditions to
+     * @param condition the condition at least one member of the kind must satisfy
+     * @param factCondition the same condition, on the facts of the member
+     * @param message the error message of types not having such a member
+     * @return rule failing types without any member of the given kind satisfying the condition,
+     * safe to evaluate in parallel
+     */
+    public static MemberRule require(ElementKind kind, Predicate<? super Element> condition,
+            Predicate<? super MemberFacts> factCondition, String message) {
+        return new MemberRule(kind, condition, factCondition, true, message);
+    }
+
+    /**
+     * @param kind the kind of members to apply the conditions to
+     * @param condition the condition no member of the kind may satisfy
+     * @param factCondition the same condition, on the facts of the member
+     * @param message the error message of types having such a member
+     * @return rule failing types having any member of the given kind satisfying the condition,
+     * safe to evaluate in parallel
+     */
+    public static MemberRule forbid(ElementKind kind, Predicate<? super Element> condition,
+            Predicate<? super MemberFacts> factCondition, String message) {
+        return new MemberRule(kind, condition, factCondition, false, message);
+    }
+
+    /**
+     * @param kind the kind of members to apply the condition to
+     * @param condition the condition at least one member of the kind must satisfy
+     * @param message the error message of types not having such a member
+     * @return rule failing types without any member of the given kind satisfying the condition,
+     * safe to evaluate in parallel
+     */
+    public static MemberRule requireFact(ElementKind kind, Predicate<? super MemberFacts> condition, String message) {
+        return new MemberRule(kind, null, condition, true, message);
+    }
+
+    /**
+     * @param kind the kind of members to apply the condition to
+     * @param condition the condition no member of the kind may satisfy
+     * @param message the error message of types having such a member
+     * @return rule failing types having any member of the given kind satisfying the condition,
+     * safe to evaluate in parallel
+     */
+    public static MemberRule forbidFact(ElementKind kind, Predicate<? super MemberFacts> condition, String message) {
+        return new MemberRule(kind, null, condition, false, message);
+    }
+
+    ElementKind getKind() {
+        return kind;
+    }
+
+    boolean matches(Element member) {
+        return condition != null ? condition.test(member) : factCondition.test(MemberFacts.of(member));
+    }
+
+    boolean matches(MemberFacts member) {
+        return factCondition.test(member);
+    }
+
+    boolean isFactBased() {
+        return factCondition != null;
+    }
+
+    boolean isRequired() {
+        return required;
+    }
+
+    String getMessage() {
+        return message;
+    }
+
+}
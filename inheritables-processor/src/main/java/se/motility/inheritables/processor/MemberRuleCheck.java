@@ -0,0 +1,174 @@
+package se.motility.inheritables.processor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+
+/**
+ * Check evaluating a number of {@link MemberRule}s on each annotated type. All rules are evaluated
+ * in a single pass over the members of the type, where each member is only given to the rules
+ * subscribing to its kind. The cost of checking a type thereby stays flat as rules are added.
+ * <p>
+ * A type is correctly annotated if it satisfies all rules. The error message lists the messages
+ * of all failed rules.
+ * <p>
+ * If all rules are declared on {@link MemberFacts}, and the processor is given the option
+ * <code>-Ainheritables.parallel</code>, the members of the annotated types are snapshotted by the
+ * processing thread and the rules are evaluated on the snapshots in parallel. The outcome of a
+ * check is therefore given by its rules alone, and the check methods cannot be overridden.
+ * <p>
+ * Instances keep the state of the current sequential evaluation and must not be shared between
+ * threads (annotation processors are run by a single thread).
+ * 
+ * @author M Tegling
+ *
+ */
+public abstract class MemberRuleCheck implements InheritableAnnotationCheck {
+
+    private static final int[] NO_RULES = new int[0];
+
+    private MemberRule[] rules;
+    // Indices of the rules subscribing to each kind of member, by ordinal of the kind
+    private int[][] rulesByKind;
+    private boolean[] matched;
+    private boolean factBased;
+
+    /**
+     * Implement this method to declare the rules to evaluate. Called once, on the first check.
+     * @return the rules
+     */
+    protected abstract List<MemberRule> getRules();
+
+    @Override
+    public final boolean isCorrectlyAnnotated(TypeElement annotatedType) {
+        return evaluate(annotatedType);
+    }
+
+    @Override
+    public final boolean isCorrectlyAnnotated(TypeElement annotatedType,
+            Map<? extends ExecutableElement, ? extends AnnotationValue> attributes) {
+        return evaluate(annotatedType);
+    }
+
+    @Override
+    public final String getErrorMessage(TypeElement errorType) {
+        evaluate(errorType);
+        return messageOf(matched);
+    }
+
+    @Override
+    public final String getErrorMessage(TypeElement errorType,
+            Map<? extends ExecutableElement, ? extends AnnotationValue> attributes) {
+        return getErrorMessage(errorType);
+    }
+
+    /**
+     * @return <code>true</code> if all rules are declared on {@link MemberFacts}, making the check
+     * safe to evaluate on snapshots in parallel
+     */
+    boolean isFactBased() {
+        if (rules == null) {
+            initRules();
+        }
+        return factBased;
+    }
+
+    /**
+     * Takes snapshots of the members of a type subscribed to by any rule. Must be called by
+     * the processing thread.
+     */
+    MemberFacts[] snapshot(TypeElement type) {
+        List<? extends Element> members = type.getEnclosedElements();
+        List<MemberFacts> facts = new ArrayList<>(members.size());
+        for (int m = 0; m < members.size(); m++) {
+            Element member = members.get(m);
+            if (rulesByKind[member.getKind().ordinal()].length > 0) {
+                facts.add(MemberFacts.of(member));
+            }
+        }
+        return facts.toArray(new MemberFacts[0]);
+    }
+
+    /**
+     * Evaluates the rules on the snapshots of the members of a type. Thread-safe once the rules
+     * are initialized by {@link #isFactBased()}.
+     * @return the error message, or <code>null</code> if all rules are satisfied
+     */
+    String evaluate(MemberFacts[] members) {
+        boolean[] matchedRules = new boolean[rules.length];
+        for (MemberFacts member : members) {
+            int[] subscribed = rulesByKind[member.getKind().ordinal()];
+            for (int r = 0; r < subscribed.length; r++) {
+                int rule = subscribed[r];
+                if (!matchedRules[rule] && rules[rule].matches(member)) {
+                    matchedRules[rule] = true;
+                }
+            }
+        }
+        return isSatisfied(matchedRules) ? null : messageOf(matchedRules);
+    }
+
+    private boolean evaluate(TypeElement type) {
+        if (rules == null) {
+            initRules();
+        }
+        Arrays.fill(matched, false);
+        List<? extends Element> members = type.getEnclosedElements();
+        for (int m = 0; m < members.size(); m++) {
+            Element member = members.get(m);
+            int[] subscribed = rulesByKind[member.getKind().ordinal()];
+            for (int r = 0; r < subscribed.length; r++) {
+                int rule = subscribed[r];
+                if (!matched[rule] && rules[rule].matches(member)) {
+                    matched[rule] = true;
+                }
+            }
+        }
+        return isSatisfied(matched);
+    }
+
+    private boolean isSatisfied(boolean[] matchedRules) {
+        for (int i = 0; i < rules.length; i++) {
+            if (matchedRules[i] != rules[i].isRequired()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String messageOf(boolean[] matchedRules) {
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < rules.length; i++) {
+            if (matchedRules[i] != rules[i].isRequired()) {
+                message.append(message.length() == 0 ? "" : " ").append(rules[i].getMessage());
+            }
+        }
+        return message.toString();
+    }
+
+    private void initRules() {
+        List<MemberRule> declared = getRules();
+        MemberRule[] all = declared.toArray(new MemberRule[0]);
+        int[][] byKind = new int[ElementKind.values().length][];
+        Arrays.fill(byKind, NO_RULES);
+        boolean allFactBased = true;
+        for (int i = 0; i < all.length; i++) {
+            allFactBased &= all[i].isFactBased();
+            int kind = all[i].getKind().ordinal();
+            byKind[kind] = Arrays.copyOf(byKind[kind], byKind[kind].length + 1);
+            byKind[kind][byKind[kind].length - 1] = i;
+        }
+        rulesByKind = byKind;
+        matched = new boolean[all.length];
+        factBased = allFactBased;
+        rules = all;
+    }
+
+}
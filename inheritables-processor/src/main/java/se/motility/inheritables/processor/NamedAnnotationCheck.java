@@ -0,0 +1,64 @@
+package se.motility.inheritables.processor;
+
+import java.lang.annotation.Annotation;
+import java.util.Collections;
+import java.util.Map;
+
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+
+/**
+ * A check of an inheritable annotation given by its fully qualified name, analyzing each type
+ * given the values of the annotation attributes. The annotation class does not need to be
+ * available to the processor, e.g. when the annotation lives in another module.
+ * <p>
+ * Attribute values are resolved over the type hierarchy, where values set closer to the annotated
+ * type take precedence: first the type itself, then its superclass, then its interfaces in
+ * declaration order. Attributes set nowhere take their default values.
+ * 
+ * @author M Tegling
+ *
+ */
+public interface NamedAnnotationCheck extends InheritableAnnotationCheck {
+
+    /**
+     * Tells the detection algorithm which annotation to look for by its fully qualified name.
+     * @return the fully qualified name of the annotation of interest
+     */
+    @Override
+    String getAnnotationTypeName();
+
+    /**
+     * Not called by the detection algorithm, which only uses {@link #getAnnotationTypeName()}.
+     * @throws UnsupportedOperationException always, the annotation being given by name as its class
+     * may not be available to the processor
+     */
+    @Override
+    default Class<? extends Annotation> getAnnotationType() {
+        throw new UnsupportedOperationException("Check of " + getAnnotationTypeName()
+                + " gives the annotation by name: Use getAnnotationTypeName()");
+    }
+
+    /**
+     * Method to analyze each type annotated with the annotation of interest (either directly
+     * or via extended inheritance), given the values of the annotation attributes.
+     * @param annotatedType the type annotated with the annotation of interest
+     * @param attributes the resolved value of every attribute of the annotation (empty for
+     * annotations without attributes)
+     * @return <code>false</code> if the annotated type does not satisfy the requirements
+     * imposed by the annotation and should fail to compile; <code>true</code> otherwise.
+     */
+    @Override
+    boolean isCorrectlyAnnotated(TypeElement annotatedType,
+            Map<? extends ExecutableElement, ? extends AnnotationValue> attributes);
+
+    /**
+     * Analyzes the type given no attribute values. Not called by the detection algorithm.
+     */
+    @Override
+    default boolean isCorrectlyAnnotated(TypeElement annotatedType) {
+        return isCorrectlyAnnotated(annotatedType, Collections.<ExecutableElement, AnnotationValue>emptyMap());
+    }
+
+}
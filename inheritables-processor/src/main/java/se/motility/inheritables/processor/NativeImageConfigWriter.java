@@ -0,0 +1,127 @@
+package se.motility.inheritables.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.FilerException;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import se.motility.inheritables.annotations.RequireDefaultConstructor;
+
+/**
+ * Writes the reflection configuration of GraalVM <code>native-image</code> for the classes passing
+ * a check of {@link RequireDefaultConstructor}, registering their default constructors only. The
+ * classes can then be instantiated through reflection in native images, without registering
+ * whole packages.
+ * <p>
+ * The configuration is written to <code>META-INF/native-image/&lt;directory&gt;/reflect-config.json</code>
+ * when processing is over, the directory conventionally being <code>&lt;group id&gt;/&lt;artifact id&gt;</code>
+ * of the module. Abstract classes and inner classes, which cannot be instantiated by their default
+ * constructor, are left out.
+ *
+ * @author M Tegling
+ *
+ */
+final class NativeImageConfigWriter implements ProcessingListener {
+
+    static final String LOCATION = "META-INF/native-image/";
+    static final String FILE_NAME = "reflect-config.json";
+    /** Directory used when none is given */
+    static final String DEFAULT_DIRECTORY = "inheritables";
+
+    private static final String ANNOTATION = RequireDefaultConstructor.class.getCanonicalName();
+
+    private final Filer filer;
+    private final Messager messager;
+    private final Elements elements;
+    private final String path;
+
+    // Binary name -> the class
+    private final Map<String, TypeElement> recorded = new LinkedHashMap<>();
+
+    /**
+     * @param directory directory of the configuration below <code>META-INF/native-image/</code>,
+     * <code>null</code> or empty for {@value #DEFAULT_DIRECTORY}
+     */
+    NativeImageConfigWriter(Filer filer, Messager messager, Elements elements, String directory) {
+        this.filer = filer;
+        this.messager = messager;
+        this.elements = elements;
+        this.path = pathOf(directory);
+    }
+
+    static String pathOf(String directory) {
+        String trimmed = directory == null ? "" : directory.trim();
+        while (trimmed.endsWith("/")) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1);
+        }
+        return LOCATION + (trimmed.isEmpty() ? DEFAULT_DIRECTORY : trimmed) + '/' + FILE_NAME;
+    }
+
+    @Override
+    public void checked(TypeElement annotatedType, InheritableAnnotationCheck check, boolean correct) {
+        if (correct && ANNOTATION.equals(check.getAnnotationTypeName()) && isInstantiable(annotatedType)) {
+            recorded.putIfAbsent(elements.getBinaryName(annotatedType).toString(), annotatedType);
+        }
+    }
+
+    @Override
+    public void endRound(RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver() && !recorded.isEmpty()) {
+            write();
+        }
+    }
+
+    @Override
+    public boolean isAggregating() {
+        return true;
+    }
+
+    private void write() {
+        List<Element> originating = new ArrayList<>(recorded.values());
+        try {
+            FileObject file = filer.createResource(StandardLocation.CLASS_OUTPUT, "", path,
+                    originating.toArray(new Element[0]));
+            try (Writer writer = file.openWriter()) {
+                writer.write('[');
+                String separator = "\n";
+                for (String name : recorded.keySet()) {
+                    writer.write(separator);
+                    writer.write("  {\n    \"name\": \"" + name + "\",\n"
+                            + "    \"methods\": [{\"name\": \"<init>\", \"parameterTypes\": []}]\n  }");
+                    separator = ",\n";
+                }
+                writer.write("\n]\n");
+            }
+        } catch (FilerException e) {
+            // Already written by another processor of the compilation checking the same classes
+        } catch (IOException e) {
+            messager.printMessage(Kind.ERROR, "Failed to write " + path + ": " + e);
+        }
+        recorded.clear();
+    }
+
+    private static boolean isInstantiable(TypeElement type) {
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+        // The constructors of inner classes take the enclosing instance
+        return type.getNestingKind() == NestingKind.TOP_LEVEL || type.getModifiers().contains(Modifier.STATIC)
+                || type.getNestingKind() == NestingKind.MEMBER && type.getEnclosingElement().getKind().isInterface();
+    }
+
+}
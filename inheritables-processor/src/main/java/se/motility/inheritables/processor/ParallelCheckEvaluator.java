@@ -0,0 +1,120 @@
+package se.motility.inheritables.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javax.lang.model.element.TypeElement;
+
+/**
+ * Evaluates fact-based {@link MemberRuleCheck}s in parallel. The members of each annotated type
+ * are snapshotted by the processing thread as the checks are added, since the compiler's elements
+ * are not thread-safe. The rules are then evaluated on the snapshots in shards on a fork-join pool,
+ * and the outcomes are returned in the order the checks were added, keeping the diagnostics
+ * independent of the scheduling.
+ *
+ * @author M Tegling
+ *
+ */
+final class ParallelCheckEvaluator {
+
+    /** Number of checks evaluated by one task */
+    static final int SHARD_SIZE = 256;
+
+    private final ForkJoinPool pool;
+    private final List<PendingCheck> pending = new ArrayList<>();
+
+    ParallelCheckEvaluator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Adds a check of an annotated type, taking the snapshot of its members. Must be called by
+     * the processing thread.
+     * @param type the annotated type
+     * @param checkIndex the index of the check among the checks of the processor
+     * @param check the check, being {@link MemberRuleCheck#isFactBased() fact-based}
+     */
+    void add(TypeElement type, int checkIndex, MemberRuleCheck check) {
+        pending.add(new PendingCheck(type, checkIndex, check, check.snapshot(type)));
+    }
+
+    boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    /**
+     * Evaluates all checks added since the last call.
+     * @return the evaluated checks, in the order they were added
+     */
+    List<PendingCheck> evaluate() {
+        List<PendingCheck> evaluated = new ArrayList<>(pending);
+        pending.clear();
+        if (evaluated.size() <= SHARD_SIZE) {
+            // Not worth the hand-off to the pool
+            new Shard(evaluated, 0, evaluated.size()).compute();
+        } else {
+            pool.invoke(new Shard(evaluated, 0, evaluated.size()));
+        }
+        return evaluated;
+    }
+
+    /**
+     * A check of an annotated type, and its outcome once evaluated.
+     */
+    static final class PendingCheck {
+
+        final TypeElement type;
+        final int checkIndex;
+        private final MemberRuleCheck check;
+        private MemberFacts[] members;
+        // Error message, null if the type satisfies the check
+        String message;
+
+        PendingCheck(TypeElement type, int checkIndex, MemberRuleCheck check, MemberFacts[] members) {
+            this.type = type;
+            this.checkIndex = checkIndex;
+            this.check = check;
+            this.members = members;
+        }
+
+        boolean isCorrect() {
+            return message == null;
+        }
+
+        private void evaluate() {
+            message = check.evaluate(members);
+            members = null;
+        }
+
+    }
+
+    @SuppressWarnings("serial")
+    private static final class Shard extends RecursiveAction {
+
+        private final List<PendingCheck> checks;
+        private final int from;
+        private final int to;
+
+        Shard(List<PendingCheck> checks, int from, int to) {
+            this.checks = checks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SHARD_SIZE) {
+                for (int i = from; i < to; i++) {
+                    checks.get(i).evaluate();
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Shard(checks, from, middle), new Shard(checks, middle, to));
+            }
+        }
+
+    }
+
+}
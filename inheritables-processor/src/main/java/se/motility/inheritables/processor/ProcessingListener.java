@@ -0,0 +1,34 @@
+package se.motility.inheritables.processor;
+
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.element.TypeElement;
+
+/**
+ * Receives the outcome of the checks performed by an {@link AbstractMultiInheritableAnnotationProcessor},
+ * for producing output (such as generated code) derived from the annotated types.
+ * 
+ * @author M Tegling
+ *
+ */
+interface ProcessingListener {
+
+    /**
+     * Called once for each check performed on a class found to inherit the annotation of the check.
+     * @param annotatedType the annotated class
+     * @param check the check performed
+     * @param correct the outcome of the check
+     */
+    void checked(TypeElement annotatedType, InheritableAnnotationCheck check, boolean correct);
+
+    /**
+     * Called at the end of each round, after all checks of the round have been reported.
+     * @param roundEnv the environment of the round
+     */
+    void endRound(RoundEnvironment roundEnv);
+
+    /**
+     * @return <code>true</code> if the output of this listener is derived from several types
+     */
+    boolean isAggregating();
+
+}
@@ -0,0 +1,165 @@
+package se.motility.inheritables.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Statistics of the work performed by an {@link AbstractMultiInheritableAnnotationProcessor},
+ * collected per round. Counters are always maintained (being cheap to increment); times are
+ * measured only when the statistics are to be reported, see {@link ProcessorOptions#STATS}.
+ * 
+ * @author M Tegling
+ *
+ */
+final class ProcessingStats {
+
+    /** Counters of one round. Updated in place by the processor and the {@link InheritanceEngine}. */
+    static final class Round {
+
+        final int number;
+        long wallNanos;
+        int rootTypes;
+        long memberTypes;
+        long typesTraversed;
+        long classCacheHits;
+        long classCacheMisses;
+        long interfaceCacheHits;
+        long interfaceCacheMisses;
+        long indexHits;
+        long sharedCacheHits;
+        long sharedCacheMisses;
+        long prunedTypes;
+        long excludedTypes;
+        long checks;
+        long checkNanos;
+
+        Round(int number) {
+            this.number = number;
+        }
+
+        void cacheHit(boolean isInterface) {
+            if (isInterface) {
+                interfaceCacheHits++;
+            } else {
+                classCacheHits++;
+            }
+        }
+
+        void cacheMiss(boolean isInterface) {
+            if (isInterface) {
+                interfaceCacheMisses++;
+            } else {
+                classCacheMisses++;
+            }
+        }
+
+    }
+
+    private final List<Round> rounds = new ArrayList<>();
+    private Round current = new Round(0);
+
+    /**
+     * Starts collecting the counters of a new round.
+     */
+    void beginRound() {
+        current = new Round(rounds.size() + 1);
+        rounds.add(current);
+    }
+
+    /**
+     * @return the counters of the current round
+     */
+    Round round() {
+        return current;
+    }
+
+    /**
+     * @return the totals of all rounds, numbered 0
+     */
+    Round total() {
+        Round total = new Round(0);
+        for (Round round : rounds) {
+            total.wallNanos += round.wallNanos;
+            total.rootTypes += round.rootTypes;
+            total.memberTypes += round.memberTypes;
+            total.typesTraversed += round.typesTraversed;
+            total.classCacheHits += round.classCacheHits;
+            total.classCacheMisses += round.classCacheMisses;
+            total.interfaceCacheHits += round.interfaceCacheHits;
+            total.interfaceCacheMisses += round.interfaceCacheMisses;
+            total.indexHits += round.indexHits;
+            total.sharedCacheHits += round.sharedCacheHits;
+            total.sharedCacheMisses += round.sharedCacheMisses;
+            total.prunedTypes += round.prunedTypes;
+            total.excludedTypes += round.excludedTypes;
+            total.checks += round.checks;
+            total.checkNanos += round.checkNanos;
+        }
+        return total;
+    }
+
+    /**
+     * @param processorName name of the processor, prefixing the summary
+     * @return human-readable summary of all rounds
+     */
+    String summary(String processorName) {
+        Round total = total();
+        return String.format(Locale.ROOT, "%s: %d rounds in %.1f ms, %d root types, %d types traversed, "
+                + "class cache %d hits/%d misses, interface cache %d hits/%d misses, %d index hits, "
+                + "%d checks in %.1f ms, shared cache %d hits/%d misses, %d types pruned, %d member types, "
+                + "%d types excluded",
+                processorName, rounds.size(), total.wallNanos / 1e6, total.rootTypes, total.typesTraversed,
+                total.classCacheHits, total.classCacheMisses, total.interfaceCacheHits, total.interfaceCacheMisses,
+                total.indexHits, total.checks, total.checkNanos / 1e6, total.sharedCacheHits, total.sharedCacheMisses,
+                total.prunedTypes, total.memberTypes, total.excludedTypes);
+    }
+
+    /**
+     * Writes the statistics of all rounds, and their totals, as a JSON document.
+     * @param file the file to write, replaced if existing
+     * @param processorName name of the processor
+     * @throws IOException if the file cannot be written
+     */
+    void writeReport(Path file, String processorName) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("{\n  \"processor\": \"" + processorName + "\",\n  \"total\": ");
+            writeRound(writer, total());
+            writer.write(",\n  \"rounds\": [");
+            for (int i = 0; i < rounds.size(); i++) {
+                writer.write(i == 0 ? "\n    " : ",\n    ");
+                writeRound(writer, rounds.get(i));
+            }
+            writer.write("\n  ]\n}\n");
+        }
+    }
+
+    private static void writeRound(Writer writer, Round round) throws IOException {
+        writer.write("{\"round\": " + round.number
+                + ", \"wallNanos\": " + round.wallNanos
+                + ", \"rootTypes\": " + round.rootTypes
+                + ", \"typesTraversed\": " + round.typesTraversed
+                + ", \"classCacheHits\": " + round.classCacheHits
+                + ", \"classCacheMisses\": " + round.classCacheMisses
+                + ", \"interfaceCacheHits\": " + round.interfaceCacheHits
+                + ", \"interfaceCacheMisses\": " + round.interfaceCacheMisses
+                + ", \"indexHits\": " + round.indexHits
+                + ", \"checks\": " + round.checks
+                + ", \"checkNanos\": " + round.checkNanos
+                + ", \"sharedCacheHits\": " + round.sharedCacheHits
+                + ", \"sharedCacheMisses\": " + round.sharedCacheMisses
+                + ", \"prunedTypes\": " + round.prunedTypes
+                + ", \"memberTypes\": " + round.memberTypes
+                + ", \"excludedTypes\": " + round.excludedTypes + "}");
+    }
+
+}
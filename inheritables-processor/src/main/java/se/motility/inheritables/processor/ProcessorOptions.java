@@ -0,0 +1,80 @@
+package se.motility.inheritables.processor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Names of the processor options (passed to the compiler as <code>-A&lt;option&gt;=&lt;value&gt;</code>)
+ * understood by the inheritable annotation processors.
+ * 
+ * @author M Tegling
+ *
+ */
+final class ProcessorOptions {
+
+    /** Emit an index of the inheritable annotations carried by the compiled types */
+    static final String INDEX = "inheritables.index";
+
+    /** Generate a registry of instantiators with the given qualified class name */
+    static final String INSTANTIATORS = "inheritables.instantiators";
+
+    /** Emit an index of the annotated types for run-time look-up */
+    static final String TYPE_INDEX = "inheritables.typeIndex";
+
+    /** Emit a reverse index of the direct subtypes of each supertype */
+    static final String SUBTYPE_INDEX = "inheritables.subtypeIndex";
+
+    /** Comma-separated patterns of the types to check and traverse */
+    static final String INCLUDE = "inheritables.include";
+
+    /** Comma-separated patterns of the types never to check nor traverse */
+    static final String EXCLUDE = "inheritables.exclude";
+
+    /** Emit the native-image reflection configuration of the classes requiring a default constructor */
+    static final String NATIVE_IMAGE = "inheritables.nativeImage";
+
+    /** Maximum number of errors reported on their types */
+    static final String MAX_ERRORS = "inheritables.maxErrors";
+
+    /** Report statistics of the processing as a note */
+    static final String STATS = "inheritables.stats";
+
+    /** Write statistics of the processing as JSON to the given file */
+    static final String STATS_FILE = "inheritables.stats.file";
+
+    /** Assume class path types not indexed to carry no inheritable annotations */
+    static final String PRUNE = "inheritables.prune";
+
+    /** Cache the shape of class path types in jars across compilations in the same JVM */
+    static final String SHARED_CACHE = "inheritables.sharedCache";
+
+    /** Maximum number of types held by the shared cache */
+    static final String SHARED_CACHE_SIZE = "inheritables.sharedCache.size";
+
+    /** Evaluate fact-based member rule checks in parallel */
+    static final String PARALLEL = "inheritables.parallel";
+
+    /** Declares the processor as isolating to Gradle's incremental compilation */
+    static final String GRADLE_ISOLATING = "org.gradle.annotation.processing.isolating";
+
+    /** Declares the processor as aggregating to Gradle's incremental compilation */
+    static final String GRADLE_AGGREGATING = "org.gradle.annotation.processing.aggregating";
+
+    static final Set<String> ALL = Collections.unmodifiableSet(new HashSet<>(
+            Arrays.asList(INDEX, TYPE_INDEX, SUBTYPE_INDEX, INSTANTIATORS, NATIVE_IMAGE, MAX_ERRORS, STATS, STATS_FILE,
+                    SHARED_CACHE, SHARED_CACHE_SIZE, PRUNE, INCLUDE, EXCLUDE, PARALLEL)));
+
+    static boolean isEnabled(Map<String, String> options, String option) {
+        String value = options.get(option);
+        // A bare "-Aoption" is passed to the processor with a null value
+        return options.containsKey(option) && (value == null || Boolean.parseBoolean(value));
+    }
+
+    private ProcessorOptions() {
+        throw new UnsupportedOperationException("Utility class: Do not instantiate");
+    }
+
+}
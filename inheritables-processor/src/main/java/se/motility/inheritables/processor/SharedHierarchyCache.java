@@ -0,0 +1,293 @@
+package se.motility.inheritables.processor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.annotation.processing.Filer;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Cache of the <i>shape</i> of class path types (their direct annotations and supertypes),
+ * shared by all compilations in the JVM. Long-lived compiler hosts, such as the Gradle daemon
+ * or an IDE, can thereby resolve library types without the compiler reading their class files.
+ * <p>
+ * Shapes are keyed by the content hash of the jar holding the class file and the binary name
+ * of the type. A shape depends on that class file only (inherited annotations are resolved
+ * anew by each compilation), so entries never need to be invalidated: a changed jar gets a new
+ * hash and the entries of its previous contents are eventually evicted. The hash of a jar is
+ * recomputed whenever its size or modification time changes. Types in class directories are
+ * not cached, as they are typically the output of the ongoing build.
+ * <p>
+ * Each compilation locates its types through a {@link Locator}, which checks the size and
+ * modification time of each jar once, and looks up the jar of one type per package only. The
+ * other types of the package are looked for among the class files of that jar, listed when the
+ * jar is hashed. Packages found in several jars are looked up type by type, as are types whose
+ * class file is present in several of the jars checked by the compilation, the compiler taking
+ * the first one on the class path. Hence, only a type also present in a jar holding no other type
+ * checked so far, where the other types of its package are in a latter jar, may be taken from the
+ * wrong jar.
+ * <p>
+ * The cache holds a bounded number of types, evicting the least recently used. All methods
+ * are thread-safe.
+ * 
+ * @author M Tegling
+ *
+ */
+final class SharedHierarchyCache {
+
+    /** Default maximum number of types held */
+    static final int DEFAULT_MAX_TYPES = 200_000;
+
+    private static SharedHierarchyCache instance;
+
+    /** The direct annotations and supertypes (interfaces, then superclass) of a type */
+    static final class TypeShape {
+
+        final String[] annotations;
+        final String[] supertypes;
+        final int interfaceCount;
+
+        TypeShape(String[] annotations, String[] supertypes, int interfaceCount) {
+            this.annotations = annotations;
+            this.supertypes = supertypes;
+            this.interfaceCount = interfaceCount;
+        }
+
+    }
+
+    private static final class JarVersion {
+
+        final long size;
+        final long lastModified;
+        final String hash;
+        // Paths of the class files in the jar
+        final Set<String> classFiles;
+
+        JarVersion(long size, long lastModified, String hash, Set<String> classFiles) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+            this.classFiles = classFiles;
+        }
+
+    }
+
+    private final Map<Path, JarVersion> jars = new ConcurrentHashMap<>();
+    private final LinkedHashMap<String, TypeShape> shapes;
+    private int maxTypes;
+
+    SharedHierarchyCache(int maxTypes) {
+        this.maxTypes = maxTypes;
+        this.shapes = new LinkedHashMap<String, TypeShape>(1024, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TypeShape> eldest) {
+                return size() > SharedHierarchyCache.this.maxTypes;
+            }
+        };
+    }
+
+    /**
+     * @param maxTypes maximum number of types held; the latest value given applies
+     * @return the cache shared by all compilations in this JVM
+     */
+    static synchronized SharedHierarchyCache getInstance(int maxTypes) {
+        if (instance == null) {
+            instance = new SharedHierarchyCache(maxTypes);
+        } else {
+            instance.resize(maxTypes);
+        }
+        return instance;
+    }
+
+    /**
+     * @param filer the filer of a compilation
+     * @return locator of the class path types of the compilation
+     */
+    Locator newLocator(Filer filer) {
+        return new Locator(filer);
+    }
+
+    synchronized TypeShape get(String key) {
+        return shapes.get(key);
+    }
+
+    synchronized void put(String key, TypeShape shape) {
+        shapes.put(key, shape);
+    }
+
+    synchronized int size() {
+        return shapes.size();
+    }
+
+    private synchronized void resize(int maxTypes) {
+        this.maxTypes = maxTypes;
+        while (shapes.size() > maxTypes) {
+            shapes.remove(shapes.keySet().iterator().next());
+        }
+    }
+
+    // E.g. jar:file:///repo/lib.jar!/com/example/Type.class
+    private static Path jarOf(URI uri) {
+        if (!"jar".equals(uri.getScheme())) {
+            return null;
+        }
+        String location = uri.getRawSchemeSpecificPart();
+        int separator = location.indexOf("!/");
+        if (separator < 0) {
+            return null;
+        }
+        try {
+            return Paths.get(URI.create(location.substring(0, separator)));
+        } catch (IllegalArgumentException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    // The current version of a jar, or null if it cannot be read
+    private JarVersion versionOf(Path jar) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(jar, BasicFileAttributes.class);
+            long size = attributes.size();
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            JarVersion version = jars.get(jar);
+            if (version == null || version.size != size || version.lastModified != lastModified) {
+                version = new JarVersion(size, lastModified, contentHash(jar), classFilesOf(jar));
+                jars.put(jar, version);
+            }
+            return version;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static Set<String> classFilesOf(Path jar) throws IOException {
+        Set<String> classFiles = new HashSet<>();
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                if (name.endsWith(".class")) {
+                    classFiles.add(name);
+                }
+            }
+        }
+        return classFiles;
+    }
+
+    private static String contentHash(Path jar) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not supported", e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(jar)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Locates the class path types of one compilation. Not thread-safe.
+     */
+    final class Locator {
+
+        // Marks packages not found in a jar, or found in several
+        private final Path none = Paths.get("");
+        private final Filer filer;
+        // The versions of the jars checked by this compilation, null if unreadable
+        private final Map<Path, JarVersion> versions = new HashMap<>();
+        private final Map<String, Path> packageJars = new HashMap<>();
+
+        private Locator(Filer filer) {
+            this.filer = filer;
+        }
+
+        /**
+         * @param packageName the package of the type
+         * @param binaryName the binary name of the type
+         * @return the cache key of the type, or <code>null</code> if the type is not in a jar on the class path
+         */
+        String keyOf(String packageName, String binaryName) {
+            Path packageJar = packageJars.get(packageName);
+            if (packageJar != null && packageJar != none) {
+                JarVersion version = versions.get(packageJar);
+                String classFile = binaryName.replace('.', '/') + ".class";
+                if (version.classFiles.contains(classFile) && !isInOtherJar(classFile, version)) {
+                    return version.hash + '/' + binaryName;
+                }
+            }
+            Path jar = lookUp(packageName, binaryName);
+            if (packageJar == null) {
+                packageJars.put(packageName, jar != null ? jar : none);
+            } else if (!packageJar.equals(jar)) {
+                // Split package, or types in a class directory
+                packageJars.put(packageName, none);
+            }
+            if (jar == null) {
+                return null;
+            }
+            JarVersion version = versions.get(jar);
+            return version == null ? null : version.hash + '/' + binaryName;
+        }
+
+        // Whether the class file is also in another jar checked by this compilation, which may come first
+        private boolean isInOtherJar(String classFile, JarVersion packageVersion) {
+            for (JarVersion version : versions.values()) {
+                if (version != null && version != packageVersion && version.classFiles.contains(classFile)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // The jar holding the class file of a type, checked once per compilation
+        private Path lookUp(String packageName, String binaryName) {
+            String relative = packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1);
+            FileObject classFile;
+            try {
+                classFile = filer.getResource(StandardLocation.CLASS_PATH, packageName, relative + ".class");
+            } catch (IOException | IllegalArgumentException e) {
+                // Not on the class path, e.g. a platform type
+                return null;
+            }
+            Path jar = jarOf(classFile.toUri());
+            if (jar == null) {
+                return null;
+            }
+            if (!versions.containsKey(jar)) {
+                versions.put(jar, versionOf(jar));
+            }
+            return versions.get(jar) != null ? jar : null;
+        }
+
+    }
+
+}
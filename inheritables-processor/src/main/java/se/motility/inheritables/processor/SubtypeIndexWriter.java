@@ -0,0 +1,157 @@
+package se.motility.inheritables.processor;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.FilerException;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Writes the reverse edges of the type hierarchy compiled from source, from each supertype to its
+ * direct subtypes, for finding all types affected by a change to a supertype (see
+ * <code>SubtypeIndex</code> in the <code>inheritables-runtime</code> module). The edges are
+ * recorded by the {@link InheritanceEngine} as it traverses the types compiled from source.
+ * <p>
+ * The index is located at <code>META-INF/inheritables/subtypes.idx</code> and written when
+ * processing is over, in compressed sparse row form using a {@link DataOutputStream}:
+ * <ul>
+ * <li>the magic number {@value #MAGIC} and the version {@value #VERSION} (<code>int</code>s),</li>
+ * <li>the number of types <i>n</i> and their binary names (<code>int</code>, <i>n</i> &times; UTF),</li>
+ * <li>the offsets of the subtypes of each type (<i>n</i> + 1 <code>int</code>s), and</li>
+ * <li>the ids of the subtypes, being positions in the name table (<code>int</code>s, up to the last offset).</li>
+ * </ul>
+ * Supertypes on the class path are included, except <code>java.lang.Object</code>. The edges do not
+ * depend on the checks of the processor, so when several processors record them the index is written
+ * by the first.
+ *
+ * @author M Tegling
+ *
+ */
+final class SubtypeIndexWriter implements ProcessingListener {
+
+    static final String LOCATION = "META-INF/inheritables/subtypes.idx";
+    static final int MAGIC = 0x49535542;
+    static final int VERSION = 1;
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final Filer filer;
+    private final Messager messager;
+    private final Elements elements;
+
+    // Binary names of all types on either end of an edge
+    private final TypeIdTable names = new TypeIdTable();
+    private int[] supertypes = new int[INITIAL_CAPACITY];
+    private int[] subtypes = new int[INITIAL_CAPACITY];
+    private int edges;
+    private final List<Element> originatingElements = new ArrayList<>();
+    private final BitSet originating = new BitSet();
+    // The edges of a type are mostly added in a row, so its id is kept between them
+    private TypeElement lastSubtype;
+    private int lastSubtypeId;
+
+    SubtypeIndexWriter(Filer filer, Messager messager, Elements elements) {
+        this.filer = filer;
+        this.messager = messager;
+        this.elements = elements;
+    }
+
+    /**
+     * Records a direct supertype of a type compiled from source.
+     * @param supertype the supertype
+     * @param subtype the type compiled from source
+     */
+    void add(TypeElement supertype, TypeElement subtype) {
+        if (supertype.getQualifiedName().contentEquals("java.lang.Object")) {
+            return;
+        }
+        if (subtype != lastSubtype) {
+            lastSubtype = subtype;
+            lastSubtypeId = names.intern(elements.getBinaryName(subtype).toString());
+            if (!originating.get(lastSubtypeId)) {
+                originating.set(lastSubtypeId);
+                originatingElements.add(subtype);
+            }
+        }
+        if (edges == subtypes.length) {
+            supertypes = Arrays.copyOf(supertypes, edges * 2);
+            subtypes = Arrays.copyOf(subtypes, edges * 2);
+        }
+        supertypes[edges] = names.intern(elements.getBinaryName(supertype).toString());
+        subtypes[edges] = lastSubtypeId;
+        edges++;
+    }
+
+    @Override
+    public void checked(TypeElement annotatedType, InheritableAnnotationCheck check, boolean correct) {
+        // The edges are recorded by the engine
+    }
+
+    @Override
+    public void endRound(RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            write();
+        }
+    }
+
+    @Override
+    public boolean isAggregating() {
+        return true;
+    }
+
+    private void write() {
+        int types = names.size();
+        // Counting sort of the edges by supertype
+        int[] offsets = new int[types + 1];
+        for (int i = 0; i < edges; i++) {
+            offsets[supertypes[i] + 1]++;
+        }
+        for (int i = 0; i < types; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] sorted = new int[edges];
+        int[] positions = Arrays.copyOf(offsets, types);
+        for (int i = 0; i < edges; i++) {
+            sorted[positions[supertypes[i]]++] = subtypes[i];
+        }
+
+        try {
+            FileObject file = filer.createResource(StandardLocation.CLASS_OUTPUT, "", LOCATION,
+                    originatingElements.toArray(new Element[0]));
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file.openOutputStream()))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(types);
+                for (int i = 0; i < types; i++) {
+                    out.writeUTF(names.nameOf(i));
+                }
+                for (int offset : offsets) {
+                    out.writeInt(offset);
+                }
+                for (int subtype : sorted) {
+                    out.writeInt(subtype);
+                }
+            }
+        } catch (FilerException e) {
+            // Already written by another processor of the compilation
+        } catch (IOException e) {
+            messager.printMessage(Kind.ERROR, "Failed to write " + LOCATION + ": " + e);
+        }
+        originatingElements.clear();
+        lastSubtype = null;
+    }
+
+}
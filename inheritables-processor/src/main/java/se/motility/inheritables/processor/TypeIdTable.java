@@ -0,0 +1,103 @@
+package se.motility.inheritables.processor;
+
+import java.util.Arrays;
+
+/**
+ * Interns qualified type names into dense integer ids (0, 1, 2, ...), allowing per-type
+ * state to be kept in primitive arrays indexed by id. Implemented as an open addressing
+ * hash table to avoid boxing.
+ * 
+ * @author M Tegling
+ *
+ */
+final class TypeIdTable {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private String[] names = new String[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    // Slots hold id + 1, zero meaning empty
+    private int[] slots = new int[INITIAL_CAPACITY * 2];
+    private int size;
+
+    /**
+     * @param name qualified name of a type
+     * @return the id of the type, assigning a new id if the name has not been seen before
+     */
+    int intern(String name) {
+        int hash = name.hashCode();
+        int mask = slots.length - 1;
+        int slot = mix(hash) & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            int id = entry - 1;
+            if (hashes[id] == hash && names[id].equals(name)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int id = size++;
+        if (id == names.length) {
+            names = Arrays.copyOf(names, id * 2);
+            hashes = Arrays.copyOf(hashes, id * 2);
+        }
+        names[id] = name;
+        hashes[id] = hash;
+        slots[slot] = id + 1;
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return id;
+    }
+
+    /**
+     * @param name qualified name of a type
+     * @return the id of the type, or <code>-1</code> if not interned
+     */
+    int find(String name) {
+        int hash = name.hashCode();
+        int mask = slots.length - 1;
+        int slot = mix(hash) & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            int id = entry - 1;
+            if (hashes[id] == hash && names[id].equals(name)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the qualified name of the type having the given id
+     */
+    String nameOf(int id) {
+        return names[id];
+    }
+
+    /**
+     * @return the number of interned names, which is also the next id to be assigned
+     */
+    int size() {
+        return size;
+    }
+
+    private void rehash(int capacity) {
+        int[] rehashed = new int[capacity];
+        int mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = mix(hashes[id]) & mask;
+            while (rehashed[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            rehashed[slot] = id + 1;
+        }
+        slots = rehashed;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+}
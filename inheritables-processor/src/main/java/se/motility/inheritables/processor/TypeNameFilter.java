@@ -0,0 +1,143 @@
+package se.motility.inheritables.processor;
+
+import java.util.Arrays;
+
+/**
+ * Include and exclude patterns for qualified type names, compiled into a prefix trie so that
+ * a name is matched against all patterns in one pass over its characters.
+ * <p>
+ * A pattern is a qualified name, matching the named type or package and everything nested in it,
+ * e.g. <code>com.example.proto</code> matches <code>com.example.proto.Message</code> and
+ * <code>com.example.proto.Message.Builder</code> but not <code>com.example.protocol.Handler</code>.
+ * A pattern ending with <code>*</code> matches any name starting with the rest of the pattern, e.g.
+ * <code>com.example.Generated*</code>. The longest pattern matching a name decides whether it is
+ * included, exclude patterns winning ties. Names matched by no pattern are included, unless
+ * include patterns are given.
+ *
+ * @author M Tegling
+ *
+ */
+final class TypeNameFilter {
+
+    private static final byte NONE = 0;
+    private static final byte INCLUDE = 1;
+    private static final byte EXCLUDE = 2;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    // Trie nodes, the root being node 0. Children are kept as linked lists of siblings.
+    private char[] labels = new char[INITIAL_CAPACITY];
+    private int[] firstChildren = new int[INITIAL_CAPACITY];
+    private int[] nextSiblings = new int[INITIAL_CAPACITY];
+    // Decision of a pattern ending at the node, as a name or as a prefix ending with '*'
+    private byte[] nameDecisions = new byte[INITIAL_CAPACITY];
+    private byte[] prefixDecisions = new byte[INITIAL_CAPACITY];
+    private int size = 1;
+    private final boolean includedByDefault;
+
+    /**
+     * @param includes comma-separated include patterns, <code>null</code> if none
+     * @param excludes comma-separated exclude patterns, <code>null</code> if none
+     * @return the filter, or <code>null</code> if no patterns are given
+     */
+    static TypeNameFilter of(String includes, String excludes) {
+        String[] included = split(includes);
+        String[] excluded = split(excludes);
+        if (included.length == 0 && excluded.length == 0) {
+            return null;
+        }
+        TypeNameFilter filter = new TypeNameFilter(included.length == 0);
+        for (String pattern : included) {
+            filter.add(pattern, INCLUDE);
+        }
+        for (String pattern : excluded) {
+            filter.add(pattern, EXCLUDE);
+        }
+        return filter;
+    }
+
+    private TypeNameFilter(boolean includedByDefault) {
+        this.includedByDefault = includedByDefault;
+        firstChildren[0] = -1;
+        nextSiblings[0] = -1;
+    }
+
+    /**
+     * @param qualifiedName the qualified name of a type
+     * @return <code>true</code> if the type is excluded by the patterns
+     */
+    boolean excludes(CharSequence qualifiedName) {
+        byte decision = NONE;
+        int node = 0;
+        int length = qualifiedName.length();
+        for (int i = 0; ; i++) {
+            byte matched = prefixDecisions[node];
+            if (nameDecisions[node] != NONE && (i == length || qualifiedName.charAt(i) == '.')) {
+                matched |= nameDecisions[node];
+            }
+            if (matched != NONE) {
+                // Deeper nodes are longer patterns, overriding shorter ones
+                decision = matched;
+            }
+            if (i == length || (node = child(node, qualifiedName.charAt(i))) < 0) {
+                break;
+            }
+        }
+        if (decision == NONE) {
+            return !includedByDefault;
+        }
+        return (decision & EXCLUDE) != 0;
+    }
+
+    private void add(String pattern, byte decision) {
+        boolean prefix = pattern.endsWith("*");
+        int length = prefix ? pattern.length() - 1 : pattern.length();
+        int node = 0;
+        for (int i = 0; i < length; i++) {
+            char label = pattern.charAt(i);
+            int child = child(node, label);
+            node = child >= 0 ? child : addChild(node, label);
+        }
+        if (prefix) {
+            prefixDecisions[node] |= decision;
+        } else {
+            nameDecisions[node] |= decision;
+        }
+    }
+
+    private int child(int node, char label) {
+        int child = firstChildren[node];
+        while (child >= 0 && labels[child] != label) {
+            child = nextSiblings[child];
+        }
+        return child;
+    }
+
+    private int addChild(int node, char label) {
+        if (size == labels.length) {
+            int capacity = size * 2;
+            labels = Arrays.copyOf(labels, capacity);
+            firstChildren = Arrays.copyOf(firstChildren, capacity);
+            nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+            nameDecisions = Arrays.copyOf(nameDecisions, capacity);
+            prefixDecisions = Arrays.copyOf(prefixDecisions, capacity);
+        }
+        int child = size++;
+        labels[child] = label;
+        firstChildren[child] = -1;
+        nextSiblings[child] = firstChildren[node];
+        firstChildren[node] = child;
+        return child;
+    }
+
+    private static String[] split(String patterns) {
+        if (patterns == null) {
+            return new String[0];
+        }
+        return Arrays.stream(patterns.split(","))
+                .map(String::trim)
+                .filter(pattern -> !pattern.isEmpty())
+                .toArray(String[]::new);
+    }
+
+}
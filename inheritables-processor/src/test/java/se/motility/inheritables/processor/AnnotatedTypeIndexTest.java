@@ -0,0 +1,93 @@
+package se.motility.inheritables.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.tools.StandardLocation;
+
+import org.junit.Test;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.CompilationSubject;
+import com.google.testing.compile.Compiler;
+import com.google.testing.compile.JavaFileObjects;
+
+import se.motility.inheritables.annotations.RequireDefaultConstructor;
+
+/**
+ * Tests covering the index of annotated types written for run-time look-up.
+ * 
+ * @author M. Tegling
+ *
+ */
+public class AnnotatedTypeIndexTest {
+
+    private static final String INDEX_FILE =
+            AnnotatedTypeIndexWriter.pathOf(RequireDefaultConstructor.class.getCanonicalName());
+
+    @Test
+    public void annotatedClassesIndexedWithSupertypes() throws IOException {
+        Compilation compilation = Compiler.javac()
+                .withProcessors(new DefaultConstructorProcessor())
+                .withOptions("-A" + ProcessorOptions.TYPE_INDEX)
+                .compile(JavaFileObjects.forResource("test/instantiators/Message.java"),
+                        JavaFileObjects.forResource("test/instantiators/PublicMessage.java"),
+                        JavaFileObjects.forResource("test/instantiators/AbstractMessage.java"));
+        CompilationSubject.assertThat(compilation)
+            .succeeded();
+
+        String index = compilation.generatedFile(StandardLocation.CLASS_OUTPUT, INDEX_FILE).get()
+                .getCharContent(true).toString();
+        Set<String> lines = new HashSet<>(Arrays.asList(index.split("\n")));
+        assertEquals(new HashSet<>(Arrays.asList(
+                "test.instantiators.PublicMessage test.instantiators.Message",
+                "test.instantiators.PublicMessage$NestedMessage test.instantiators.Message",
+                "test.instantiators.PublicMessage$InnerMessage test.instantiators.Message",
+                "test.instantiators.AbstractMessage test.instantiators.Message")), lines);
+    }
+
+    @Test
+    public void jdkSupertypesLeftOut() throws IOException {
+        Compilation compilation = Compiler.javac()
+                .withProcessors(new DefaultConstructorProcessor())
+                .withOptions("-A" + ProcessorOptions.TYPE_INDEX)
+                .compile(JavaFileObjects.forResource("test/instantiators/Message.java"),
+                        JavaFileObjects.forResource("test/instantiators/SerializableMessage.java"));
+        CompilationSubject.assertThat(compilation)
+            .succeeded();
+
+        String index = compilation.generatedFile(StandardLocation.CLASS_OUTPUT, INDEX_FILE).get()
+                .getCharContent(true).toString();
+        assertEquals("test.instantiators.SerializableMessage test.instantiators.Message\n", index);
+    }
+
+    @Test
+    public void indexWrittenOnceBySeveralProcessors() throws IOException {
+        Compilation compilation = Compiler.javac()
+                .withProcessors(new DefaultConstructorProcessor(), new DefaultConstructorProcessor())
+                .withOptions("-A" + ProcessorOptions.TYPE_INDEX)
+                .compile(JavaFileObjects.forResource("test/instantiators/Message.java"),
+                        JavaFileObjects.forResource("test/instantiators/SerializableMessage.java"));
+        // The second processor finding the index written is not an error
+        CompilationSubject.assertThat(compilation)
+            .succeeded();
+        assertTrue(compilation.generatedFile(StandardLocation.CLASS_OUTPUT, INDEX_FILE).isPresent());
+    }
+
+    @Test
+    public void noIndexByDefault() {
+        Compilation compilation = TestUtils.compile(
+                JavaFileObjects.forResource("test/instantiators/Message.java"),
+                JavaFileObjects.forResource("test/instantiators/PublicMessage.java"));
+        CompilationSubject.assertThat(compilation)
+            .succeeded();
+        assertTrue(compilation.generatedFiles().stream()
+                .noneMatch(file -> file.getName().contains(AnnotatedTypeIndexWriter.LOCATION)));
+    }
+
+}
@@ -0,0 +1,106 @@
+package se.motility.inheritables.processor;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedSourceVersion;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+
+import org.junit.Test;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.CompilationSubject;
+import com.google.testing.compile.Compiler;
+import com.google.testing.compile.JavaFileObjects;
+
+/**
+ * Tests covering the resolution of annotation attributes over the type hierarchy.
+ * 
+ * @author M. Tegling
+ *
+ */
+public class AnnotationAttributesTest {
+
+    @Test
+    public void attributesResolvedByPrecedence() {
+        Compilation compilation = Compiler.javac()
+                .withProcessors(new AttributeReportingProcessor())
+                .compile(JavaFileObjects.forResource("test/attributes/Serialization.java"),
+                        JavaFileObjects.forResource("test/attributes/Messages.java"));
+        CompilationSubject.assertThat(compilation)
+            .hadErrorCount(7);
+        // The first interface wins over a later one
+        assertResolved(compilation, "Diamond", "\"avro\"", "2", 17);
+        assertResolved(compilation, "ReversedDiamond", "\"avro\"", "2", 19);
+        // The superclass wins over the interfaces
+        assertResolved(compilation, "XmlSub", "\"xml\"", "1", 21);
+        // The type itself wins over its supertypes
+        assertResolved(compilation, "Direct", "\"proto\"", "2", 24);
+        assertResolved(compilation, "Defaults", "\"json\"", "1", 26);
+        assertResolved(compilation, "Deep", "\"xml\"", "1", 28);
+        assertResolved(compilation, "XmlBase", "\"xml\"", "1", 15);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void annotationClassOfNamedCheckUnsupported() {
+        new AttributeReportingProcessor().getChecks().get(0).getAnnotationType();
+    }
+
+    private static void assertResolved(Compilation compilation, String type, String format, String version, long line) {
+        CompilationSubject.assertThat(compilation)
+            .hadErrorContaining(type + ": format=" + format + ", version=" + version)
+            .inFile(JavaFileObjects.forResource("test/attributes/Messages.java")).onLine(line);
+    }
+
+    /**
+     * Processor failing every annotated class, reporting the resolved attributes.
+     */
+    @SupportedSourceVersion(SourceVersion.RELEASE_8)
+    @SupportedAnnotationTypes("*")
+    public static class AttributeReportingProcessor extends AbstractMultiInheritableAnnotationProcessor {
+
+        @Override
+        protected List<InheritableAnnotationCheck> getChecks() {
+            return Collections.<InheritableAnnotationCheck>singletonList(new NamedAnnotationCheck() {
+
+                @Override
+                public String getAnnotationTypeName() {
+                    return "test.attributes.Serialization";
+                }
+
+                @Override
+                public boolean isCorrectlyAnnotated(TypeElement annotatedType,
+                        Map<? extends ExecutableElement, ? extends AnnotationValue> attributes) {
+                    return annotatedType.getKind() != ElementKind.CLASS;
+                }
+
+                @Override
+                public String getErrorMessage(TypeElement errorType) {
+                    throw new AssertionError("Attributes not passed on");
+                }
+
+                @Override
+                public String getErrorMessage(TypeElement errorType,
+                        Map<? extends ExecutableElement, ? extends AnnotationValue> attributes) {
+                    StringBuilder message = new StringBuilder(errorType.getSimpleName());
+                    String separator = ": ";
+                    for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> attribute
+                            : attributes.entrySet()) {
+                        message.append(separator).append(attribute.getKey().getSimpleName())
+                            .append('=').append(attribute.getValue());
+                        separator = ", ";
+                    }
+                    return message.toString();
+                }
+            });
+        }
+
+    }
+
+}
@@ -0,0 +1,105 @@
+package se.motility.inheritables.processor;
+
+import java.net.MalformedURLException;
+import java.util.Map;
+
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedSourceVersion;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.JavaFileObject;
+
+import org.junit.Test;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.CompilationSubject;
+import com.google.testing.compile.Compiler;
+import com.google.testing.compile.JavaFileObjects;
+
+/**
+ * Tests covering inheritable annotations given by name only, i.e. annotations not
+ * available to the processor itself.
+ * 
+ * @author M. Tegling
+ *
+ */
+public class AnnotationByNameTest {
+
+    @Test
+    public void annotationGivenByNameSuccess() throws MalformedURLException {
+        Compilation compilation = compile(
+                JavaFileObjects.forResource("test/byname/CorrectNamedMessage.java"));
+        CompilationSubject.assertThat(compilation)
+            .succeeded();
+    }
+
+    @Test
+    public void annotationGivenByNameFail() throws MalformedURLException {
+        Compilation compilation = compile(
+                JavaFileObjects.forResource("test/byname/IncorrectNamedMessage.java"));
+        CompilationSubject.assertThat(compilation)
+            .hadErrorCount(1);
+    }
+
+    @Test
+    public void unknownAnnotationNameIgnored() throws MalformedURLException {
+        Compilation compilation = Compiler.javac()
+                .withProcessors(new NamedAnnotationProcessor("test.byname.Missing"))
+                .compile(JavaFileObjects.forResource("test/byname/IncorrectNamedMessage.java"));
+        CompilationSubject.assertThat(compilation)
+            .succeeded();
+        CompilationSubject.assertThat(compilation)
+            .hadNoteContaining("test.byname.Missing not found");
+    }
+
+    @Test
+    public void hierarchyNotTraversedWhenNoAnnotationFound() throws MalformedURLException {
+        Compilation compilation = Compiler.javac()
+                .withProcessors(new NamedAnnotationProcessor("test.byname.Missing"))
+                .withOptions("-Ainheritables.stats")
+                .compile(JavaFileObjects.forResource("test/byname/IncorrectNamedMessage.java"),
+                        JavaFileObjects.forResource("test/byname/RequireNoArgs.java"),
+                        JavaFileObjects.forResource("test/byname/NamedMessage.java"));
+        CompilationSubject.assertThat(compilation)
+            .hadNoteContaining("3 root types, 0 types traversed");
+    }
+
+    private static Compilation compile(JavaFileObject resource) {
+        return Compiler.javac()
+                .withProcessors(new NamedAnnotationProcessor("test.byname.RequireNoArgs"))
+                .compile(resource,
+                        JavaFileObjects.forResource("test/byname/RequireNoArgs.java"),
+                        JavaFileObjects.forResource("test/byname/NamedMessage.java"));
+    }
+
+    @SupportedSourceVersion(SourceVersion.RELEASE_8)
+    @SupportedAnnotationTypes("*")
+    private static class NamedAnnotationProcessor extends AbstractNamedAnnotationProcessor {
+
+        private final DefaultConstructorCheck check = new DefaultConstructorCheck();
+        private final String annotationName;
+
+        NamedAnnotationProcessor(String annotationName) {
+            this.annotationName = annotationName;
+        }
+
+        @Override
+        protected boolean isCorrectlyAnnotated(TypeElement annotatedType,
+                Map<? extends ExecutableElement, ? extends AnnotationValue> attributes) {
+            return check.isCorrectlyAnnotated(annotatedType);
+        }
+
+        @Override
+        protected String getErrorMessage(TypeElement errorType) {
+            return check.getErrorMessage(errorType);
+        }
+
+        @Override
+        protected String getAnnotationTypeName() {
+            return annotationName;
+        }
+    }
+
+}
@@ -0,0 +1,117 @@
+package se.motility.inheritables.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.tools.JavaFileObject;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.CompilationSubject;
+import com.google.testing.compile.Compiler;
+import com.google.testing.compile.JavaFileObjects;
+
+/**
+ * Tests covering deep hierarchies, traversed from the deepest type. The hierarchies are
+ * compiled in advance and put on the class path, meaning that the compiler loads each
+ * supertype lazily as the processor traverses the hierarchy.
+ * 
+ * @author M. Tegling
+ *
+ */
+public class DeepHierarchyTest {
+
+    private static final int DEPTH = 1000;
+
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void deepSuperclassChainSuccess() throws IOException {
+        Compilation compilation = compileAgainst(superclassChain(),
+                "package test.deep; public class Last extends C" + (DEPTH - 1) + " {}");
+        CompilationSubject.assertThat(compilation)
+            .succeeded();
+    }
+
+    @Test
+    public void deepSuperclassChainFail() throws IOException {
+        Compilation compilation = compileAgainst(superclassChain(),
+                "package test.deep; public class Last extends C" + (DEPTH - 1) + " { public Last(Object arg) {} }");
+        CompilationSubject.assertThat(compilation)
+            .hadErrorCount(1);
+    }
+
+    @Test
+    public void deepInterfaceChainFail() throws IOException {
+        Compilation compilation = compileAgainst(interfaceChain(),
+                "package test.deep; public class Last implements I" + (DEPTH - 1) + " { public Last(Object arg) {} }");
+        CompilationSubject.assertThat(compilation)
+            .hadErrorCount(1);
+    }
+
+    private static Compilation compileAgainst(Path classpath, String source) {
+        return Compiler.javac()
+                .withProcessors(new DefaultConstructorProcessor())
+                .withOptions("-classpath", classpath + File.pathSeparator + System.getProperty("java.class.path"))
+                .compile(JavaFileObjects.forSourceString("test.deep.Last", source));
+    }
+
+    // Chain of subclasses where the first class implements an annotated interface
+    private static Path superclassChain() throws IOException {
+        JavaFileObject[] sources = new JavaFileObject[DEPTH];
+        sources[0] = JavaFileObjects.forSourceString("test.deep.C0",
+                "package test.deep; public class C0 implements "
+                + "se.motility.inheritables.processor.types.AnnotatedInterface {}");
+        for (int i = 1; i < DEPTH; i++) {
+            sources[i] = JavaFileObjects.forSourceString("test.deep.C" + i,
+                    "package test.deep; public class C" + i + " extends C" + (i - 1) + " {}");
+        }
+        return compileToFolder(sources);
+    }
+
+    // Chain of interfaces where the first interface extends an annotated interface
+    private static Path interfaceChain() throws IOException {
+        JavaFileObject[] sources = new JavaFileObject[DEPTH];
+        sources[0] = JavaFileObjects.forSourceString("test.deep.I0",
+                "package test.deep; public interface I0 extends "
+                + "se.motility.inheritables.processor.types.AnnotatedInterface {}");
+        for (int i = 1; i < DEPTH; i++) {
+            sources[i] = JavaFileObjects.forSourceString("test.deep.I" + i,
+                    "package test.deep; public interface I" + i + " extends I" + (i - 1) + " {}");
+        }
+        return compileToFolder(sources);
+    }
+
+    private static Path compileToFolder(JavaFileObject... sources) throws IOException {
+        // The compiler itself needs a large stack to compile the complete hierarchy at once
+        Compilation[] result = new Compilation[1];
+        Thread thread = new Thread(null, () -> result[0] = Compiler.javac().withOptions("-proc:none").compile(sources),
+                "deep-hierarchy", 256L * 1024 * 1024);
+        thread.start();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        Compilation compilation = result[0];
+        Path directory = folder.newFolder().toPath();
+        for (JavaFileObject file : compilation.generatedFiles()) {
+            String path = file.toUri().getPath();
+            Path target = directory.resolve(path.substring(path.indexOf("/CLASS_OUTPUT/") + "/CLASS_OUTPUT/".length()));
+            Files.createDirectories(target.getParent());
+            try (InputStream in = file.openInputStream()) {
+                Files.copy(in, target);
+            }
+        }
+        return directory;
+    }
+
+}
@@ -2,12 +2,14 @@ package se.motility.inheritables.processor;
 
 import java.net.MalformedURLException;
 
+import javax.lang.model.element.TypeElement;
 import javax.tools.JavaFileObject;
 
 import org.junit.Test;
 
 import com.google.testing.compile.Compilation;
 import com.google.testing.compile.CompilationSubject;
+import com.google.testing.compile.Compiler;
 import com.google.testing.compile.JavaFileObjects;
 
 import se.motility.inheritables.processor.DefaultConstructorProcessor;
@@ -48,6 +50,28 @@ public class DefaultConstructorProcessorTest {
             .succeeded();
     }
 
+    @Test
+    public void overriddenCheckUsed() {
+        JavaFileObject resource = JavaFileObjects
+                .forResource("test/defaultconstructor/MissingDefaultConstructorClass.java");
+        Compilation compilation = Compiler.javac()
+                .withProcessors(new LenientProcessor())
+                .compile(resource);
+        CompilationSubject.assertThat(compilation)
+            .succeeded();
+    }
+
+    /**
+     * Subclass accepting every class
+     */
+    private static class LenientProcessor extends DefaultConstructorProcessor {
+
+        @Override
+        protected boolean isCorrectlyAnnotated(TypeElement annotatedType) {
+            return true;
+        }
+
+    }
 
 }
 
@@ -0,0 +1,78 @@
+package se.motility.inheritables.processor;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.CompilationSubject;
+import com.google.testing.compile.Compiler;
+import com.google.testing.compile.JavaFileObjects;
+
+/**
+ * Tests covering the reporting of failed checks: derivation paths, the error cap and the
+ * aggregation of errors beyond the cap.
+ * 
+ * @author M. Tegling
+ *
+ */
+public class ErrorReportingTest {
+
+    @Test
+    public void derivationPathReported() {
+        Compilation compilation = TestUtils.compile(
+                JavaFileObjects.forResource("test/errors/Message.java"),
+                JavaFileObjects.forResource("test/errors/AbstractBase.java"),
+                JavaFileObjects.forResource("test/errors/Foo.java"));
+        CompilationSubject.assertThat(compilation)
+            .hadErrorCount(1);
+        CompilationSubject.assertThat(compilation)
+            .hadErrorContaining("@RequireDefaultConstructor inherited via "
+                    + "test.errors.Foo -> test.errors.AbstractBase -> test.errors.Message")
+            .inFile(JavaFileObjects.forResource("test/errors/Foo.java")).onLine(3);
+    }
+
+    @Test
+    public void derivationPathOfEachAnnotation() {
+        Compilation compilation = Compiler.javac()
+                .withProcessors(new MultiCheckProcessor())
+                .compile(JavaFileObjects.forResource("test/errors/Message.java"),
+                        JavaFileObjects.forResource("test/errors/Mixed.java"));
+        CompilationSubject.assertThat(compilation)
+            .hadErrorCount(2);
+        CompilationSubject.assertThat(compilation)
+            .hadErrorContaining("@RequireDefaultConstructor inherited via test.errors.Mixed.Both -> test.errors.Message");
+        CompilationSubject.assertThat(compilation)
+            .hadErrorContaining("@RequireFinalClass inherited via test.errors.Mixed.Both -> test.errors.Mixed.Sealed");
+    }
+
+    @Test
+    public void errorsBeyondCapAggregated() {
+        Compilation compilation = Compiler.javac()
+                .withProcessors(new DefaultConstructorProcessor())
+                .withOptions("-A" + ProcessorOptions.MAX_ERRORS + "=2")
+                .compile(JavaFileObjects.forResource("test/errors/Message.java"),
+                        JavaFileObjects.forResource("test/errors/Many.java"));
+        CompilationSubject.assertThat(compilation)
+            .hadErrorCount(3);
+        // Reported in order of type name
+        CompilationSubject.assertThat(compilation)
+            .hadErrorContaining("test.errors.Many.Fifth -> test.errors.Message")
+            .inFile(JavaFileObjects.forResource("test/errors/Many.java")).onLine(21);
+        CompilationSubject.assertThat(compilation)
+            .hadErrorContaining("test.errors.Many.First -> test.errors.Message")
+            .inFile(JavaFileObjects.forResource("test/errors/Many.java")).onLine(5);
+        CompilationSubject.assertThat(compilation)
+            .hadErrorContaining("3 more type(s) inheriting @RequireDefaultConstructor from test.errors.Message "
+                    + "failed the check: test.errors.Many.Fourth, test.errors.Many.Second, test.errors.Many.Third");
+    }
+
+    @Test
+    public void errorsBelowDefaultCapReportedOnTypes() {
+        Compilation compilation = TestUtils.compile(
+                JavaFileObjects.forResource("test/errors/Message.java"),
+                JavaFileObjects.forResource("test/errors/Many.java"));
+        assertEquals(5, compilation.errors().size());
+    }
+
+}
@@ -0,0 +1,353 @@
+package se.motility.inheritables.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.Completion;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Stress and regression tests compiling large, randomly generated type hierarchies through the
+ * {@link DefaultConstructorProcessor}. The reported errors are compared to the ground truth given
+ * by a simple recursive reference implementation. When budgets are given, the time and memory
+ * allocated by the processor are checked against them.
+ * <p>
+ * The hierarchies are sized by system properties, so that the same tests can be run at scale
+ * (see the <code>stress</code> profile, which also sets the budgets):
+ * <ul>
+ * <li><code>inheritables.stress.types</code>: number of generated types (default 2000)</li>
+ * <li><code>inheritables.stress.seed</code>: seed of the generated hierarchy (default {@value #DEFAULT_SEED})</li>
+ * <li><code>inheritables.stress.maxMicrosPerType</code>: budget of processor time per type (default none)</li>
+ * <li><code>inheritables.stress.maxBytesPerType</code>: budget of memory allocated by the processor per type
+ * (default none)</li>
+ * </ul>
+ *
+ * @author M. Tegling
+ *
+ */
+public class GeneratedHierarchyTest {
+
+    private static final int TYPES = Integer.getInteger("inheritables.stress.types", 2000);
+    private static final long DEFAULT_SEED = 20_190_611L;
+    private static final long SEED = Long.getLong("inheritables.stress.seed", DEFAULT_SEED);
+    // Wall-clock and allocation budgets depend on the machine, so are only checked when given
+    private static final Long MAX_MICROS_PER_TYPE = Long.getLong("inheritables.stress.maxMicrosPerType");
+    private static final Long MAX_BYTES_PER_TYPE = Long.getLong("inheritables.stress.maxBytesPerType");
+
+    private static final String PACKAGE = "gen.p";
+    private static final int TYPES_PER_PACKAGE = 500;
+    private static final String ANNOTATION = "se.motility.inheritables.annotations.RequireDefaultConstructor";
+
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sourceHierarchyMatchesReference() {
+        Hierarchy hierarchy = new Hierarchy(TYPES, SEED);
+        Result result = process(hierarchy.sources(0, TYPES), null);
+        assertEquals("Violations for seed " + SEED, hierarchy.expectedViolations(0, TYPES), result.violations);
+        assertWithinBudget(result, TYPES);
+    }
+
+    @Test
+    public void classPathHierarchyMatchesReference() throws IOException {
+        // The first half is compiled in advance, leaving its types to be read from class files
+        Hierarchy hierarchy = new Hierarchy(TYPES, SEED);
+        int split = TYPES / 2;
+        Path classes = folder.newFolder().toPath();
+        compile(hierarchy.sources(0, split), classes);
+        Result result = process(hierarchy.sources(split, TYPES), classes);
+        assertEquals("Violations for seed " + SEED, hierarchy.expectedViolations(split, TYPES), result.violations);
+        assertWithinBudget(result, TYPES - split);
+    }
+
+    private static void assertWithinBudget(Result result, int types) {
+        if (MAX_MICROS_PER_TYPE != null) {
+            long microsPerType = result.processorNanos / 1000 / types;
+            assertTrue("Processor time " + microsPerType + " µs/type exceeds budget of " + MAX_MICROS_PER_TYPE
+                    + " µs/type (seed " + SEED + ")", microsPerType <= MAX_MICROS_PER_TYPE);
+        }
+        if (MAX_BYTES_PER_TYPE != null && result.processorBytes >= 0) {
+            long bytesPerType = result.processorBytes / types;
+            assertTrue("Processor allocation " + bytesPerType + " bytes/type exceeds budget of "
+                    + MAX_BYTES_PER_TYPE + " bytes/type (seed " + SEED + ")", bytesPerType <= MAX_BYTES_PER_TYPE);
+        }
+    }
+
+    /**
+     * Compiles the sources to class files in the output directory, without the processor.
+     */
+    private static void compile(List<JavaFileObject> sources, Path output) {
+        List<String> errors = new ArrayList<>();
+        ToolProvider.getSystemJavaCompiler().getTask(null, null, diagnostic -> {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                errors.add(diagnostic.toString());
+            }
+        }, Arrays.asList("-proc:none", "-d", output.toString()), null, sources).call();
+        assertEquals("Unexpected errors for seed " + SEED, Collections.emptyList(), errors);
+    }
+
+    /**
+     * Runs the processor on the sources, collecting the types reported as violating the check.
+     */
+    private static Result process(List<JavaFileObject> sources, Path classPath) {
+        String javaClassPath = System.getProperty("java.class.path");
+        List<String> options = Arrays.asList("-proc:only",
+                "-classpath", classPath != null ? classPath + File.pathSeparator + javaClassPath : javaClassPath,
+                // Every violation is reported on its type, none aggregated
+                "-Xmaxerrs", String.valueOf(Integer.MAX_VALUE),
+                "-A" + ProcessorOptions.MAX_ERRORS + "=" + Integer.MAX_VALUE);
+        Result result = new Result();
+        List<String> otherErrors = new ArrayList<>();
+        JavaCompiler.CompilationTask task = ToolProvider.getSystemJavaCompiler().getTask(null, null, diagnostic -> {
+            if (diagnostic.getKind() != Diagnostic.Kind.ERROR) {
+                return;
+            }
+            if (diagnostic.getSource() != null && diagnostic.getMessage(null).startsWith("Missing default constructor")) {
+                result.violations.add(typeNameOf(diagnostic.getSource()));
+            } else {
+                otherErrors.add(diagnostic.toString());
+            }
+        }, options, null, sources);
+        TimedProcessor processor = new TimedProcessor(new DefaultConstructorProcessor());
+        task.setProcessors(Collections.singletonList(processor));
+        task.call();
+        assertEquals("Unexpected errors for seed " + SEED, Collections.emptyList(), otherErrors);
+        result.processorNanos = processor.nanos;
+        result.processorBytes = processor.bytes;
+        return result;
+    }
+
+    private static String typeNameOf(JavaFileObject source) {
+        String path = source.toUri().getPath();
+        return path.substring(1, path.length() - JavaFileObject.Kind.SOURCE.extension.length()).replace('/', '.');
+    }
+
+    private static final class Result {
+
+        final Set<String> violations = new TreeSet<>();
+        long processorNanos;
+        long processorBytes;
+
+    }
+
+    /**
+     * Randomly generated hierarchy of classes and interfaces. Supertypes always precede their
+     * subtypes, making the hierarchy acyclic.
+     */
+    private static final class Hierarchy {
+
+        private final int[] superclasses;
+        private final int[][] interfaces;
+        private final boolean[] isInterface;
+        private final boolean[] annotated;
+        private final boolean[] defaultConstructor;
+        private final Boolean[] inherits;
+
+        Hierarchy(int types, long seed) {
+            Random random = new Random(seed);
+            superclasses = new int[types];
+            interfaces = new int[types][];
+            isInterface = new boolean[types];
+            annotated = new boolean[types];
+            defaultConstructor = new boolean[types];
+            inherits = new Boolean[types];
+            List<Integer> classes = new ArrayList<>();
+            List<Integer> interfaceList = new ArrayList<>();
+            for (int i = 0; i < types; i++) {
+                isInterface[i] = random.nextInt(3) == 0;
+                annotated[i] = random.nextInt(40) == 0;
+                defaultConstructor[i] = random.nextInt(5) != 0;
+                superclasses[i] = !isInterface[i] && !classes.isEmpty() && random.nextBoolean()
+                        ? classes.get(random.nextInt(classes.size()))
+                        : -1;
+                int count = interfaceList.isEmpty() ? 0 : random.nextInt(4);
+                Set<Integer> chosen = new TreeSet<>();
+                for (int c = 0; c < count; c++) {
+                    chosen.add(interfaceList.get(random.nextInt(interfaceList.size())));
+                }
+                List<Integer> shuffled = new ArrayList<>(chosen);
+                Collections.shuffle(shuffled, random);
+                interfaces[i] = shuffled.stream().mapToInt(Integer::intValue).toArray();
+                (isInterface[i] ? interfaceList : classes).add(i);
+            }
+        }
+
+        // Reference implementation: plain recursion over the generated model, memoized per type
+        boolean inherits(int type) {
+            if (inherits[type] == null) {
+                boolean result = annotated[type] || superclasses[type] >= 0 && inherits(superclasses[type]);
+                for (int i = 0; !result && i < interfaces[type].length; i++) {
+                    result = inherits(interfaces[type][i]);
+                }
+                inherits[type] = result;
+            }
+            return inherits[type];
+        }
+
+        Set<String> expectedViolations(int from, int to) {
+            Set<String> violations = new TreeSet<>();
+            for (int i = from; i < to; i++) {
+                if (!isInterface[i] && !defaultConstructor[i] && inherits(i)) {
+                    violations.add(nameOf(i));
+                }
+            }
+            return violations;
+        }
+
+        List<JavaFileObject> sources(int from, int to) {
+            List<JavaFileObject> sources = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                sources.add(new SourceFile(nameOf(i), sourceOf(i)));
+            }
+            return sources;
+        }
+
+        private String sourceOf(int type) {
+            String name = nameOf(type);
+            int lastDot = name.lastIndexOf('.');
+            StringBuilder source = new StringBuilder("package ").append(name, 0, lastDot).append(";\n\n");
+            if (annotated[type]) {
+                source.append('@').append(ANNOTATION).append('\n');
+            }
+            source.append("public ").append(isInterface[type] ? "interface " : "class ").append(name.substring(lastDot + 1));
+            if (superclasses[type] >= 0) {
+                source.append(" extends ").append(nameOf(superclasses[type]));
+            }
+            if (interfaces[type].length > 0) {
+                source.append(isInterface[type] ? " extends " : " implements ");
+                for (int i = 0; i < interfaces[type].length; i++) {
+                    source.append(i == 0 ? "" : ", ").append(nameOf(interfaces[type][i]));
+                }
+            }
+            source.append(" {\n");
+            if (!isInterface[type]) {
+                String superCall = superclasses[type] >= 0 && !defaultConstructor[superclasses[type]] ? " super(0); " : "";
+                source.append("    public ").append(name.substring(lastDot + 1))
+                    .append(defaultConstructor[type] ? "()" : "(int value)").append(" {").append(superCall).append("}\n");
+            }
+            return source.append("}\n").toString();
+        }
+
+        private static String nameOf(int type) {
+            return PACKAGE + (type / TYPES_PER_PACKAGE) + ".T" + type;
+        }
+
+    }
+
+    private static final class SourceFile extends SimpleJavaFileObject {
+
+        private final String source;
+
+        SourceFile(String name, String source) {
+            super(URI.create("string:///" + name.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+
+    }
+
+    /**
+     * Processor delegating to another processor, measuring the time spent and memory allocated
+     * in the delegate.
+     */
+    private static final class TimedProcessor implements Processor {
+
+        private final Processor delegate;
+        private long nanos;
+        private long bytes;
+
+        TimedProcessor(Processor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void init(ProcessingEnvironment processingEnv) {
+            long start = System.nanoTime();
+            long allocated = allocatedBytes();
+            delegate.init(processingEnv);
+            account(start, allocated);
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+            long start = System.nanoTime();
+            long allocated = allocatedBytes();
+            try {
+                return delegate.process(annotations, roundEnv);
+            } finally {
+                account(start, allocated);
+            }
+        }
+
+        private void account(long start, long allocated) {
+            nanos += System.nanoTime() - start;
+            bytes = allocated < 0 || bytes < 0 ? -1 : bytes + allocatedBytes() - allocated;
+        }
+
+        // Bytes allocated by the current thread, or -1 if not supported by the JVM
+        private static long allocatedBytes() {
+            java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (threads instanceof com.sun.management.ThreadMXBean) {
+                return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+            return -1;
+        }
+
+        @Override
+        public Set<String> getSupportedOptions() {
+            return delegate.getSupportedOptions();
+        }
+
+        @Override
+        public Set<String> getSupportedAnnotationTypes() {
+            return delegate.getSupportedAnnotationTypes();
+        }
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return delegate.getSupportedSourceVersion();
+        }
+
+        @Override
+        public Iterable<? extends Completion> getCompletions(Element element, AnnotationMirror annotation,
+                ExecutableElement member, String userText) {
+            return delegate.getCompletions(element, annotation, member, userText);
+        }
+
+    }
+
+}
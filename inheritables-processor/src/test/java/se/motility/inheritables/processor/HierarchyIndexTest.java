@@ -0,0 +1,128 @@
+package se.motility.inheritables.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.CompilationSubject;
+import com.google.testing.compile.Compiler;
+import com.google.testing.compile.JavaFileObjects;
+
+/**
+ * Tests covering the index of inheritable annotations emitted for upstream modules
+ * and read when compiling downstream modules.
+ * 
+ * @author M. Tegling
+ *
+ */
+public class HierarchyIndexTest {
+
+    private static final String ANNOTATION = "se.motility.inheritables.annotations.RequireDefaultConstructor";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void indexWrittenForSourceTypes() throws IOException {
+        JavaFileObject resource = JavaFileObjects
+                .forResource("test/inheritance/CorrectAnnotationInheritingClass1.java");
+        Compilation compilation = Compiler.javac()
+                .withProcessors(new DefaultConstructorProcessor())
+                .withOptions("-Ainheritables.index")
+                .compile(resource);
+        CompilationSubject.assertThat(compilation)
+            .succeeded();
+        JavaFileObject index = compilation.generatedFile(StandardLocation.CLASS_OUTPUT,
+                HierarchyIndex.pathOf(ANNOTATION, "test.inheritance")).get();
+        assertEquals("+CorrectAnnotationInheritingClass1\n", index.getCharContent(true).toString());
+    }
+
+    @Test
+    public void noIndexWrittenByDefault() throws IOException {
+        JavaFileObject resource = JavaFileObjects
+                .forResource("test/inheritance/CorrectAnnotationInheritingClass1.java");
+        Compilation compilation = TestUtils.compile(resource);
+        assertTrue(compilation.generatedFiles().stream()
+                .noneMatch(file -> file.getName().contains(HierarchyIndex.LOCATION)));
+    }
+
+    @Test
+    public void classPathTypeResolvedFromIndex() throws IOException {
+        // The index claims the (non-annotated) interface to be annotated, which proves it is used
+        writeIndex("se.motility.inheritables.processor.types", "+NonAnnotatedInterface");
+        JavaFileObject resource = JavaFileObjects
+                .forResource("test/inheritance/UnaffectedClassImplementingInterface1.java");
+        Compilation compilation = compileWithIndex(resource);
+        CompilationSubject.assertThat(compilation)
+            .failed();
+    }
+
+    @Test
+    public void typesMissingFromIndexAreTraversed() throws IOException {
+        writeIndex("se.motility.inheritables.processor.types", "-NonAnnotatedInterface");
+        JavaFileObject resource = JavaFileObjects
+                .forResource("test/inheritance/IncorrectAnnotationInheritingClass2.java");
+        Compilation compilation = compileWithIndex(resource);
+        CompilationSubject.assertThat(compilation)
+            .failed();
+    }
+
+    @Test
+    public void trustedIndexStillResolvesIndexedTypes() throws IOException {
+        writeIndex("se.motility.inheritables.processor.types", "+AnnotatedInterface");
+        JavaFileObject resource = JavaFileObjects
+                .forResource("test/inheritance/IncorrectAnnotationInheritingClass1.java");
+        Compilation compilation = compileWithIndex(resource, "-Ainheritables.prune");
+        CompilationSubject.assertThat(compilation)
+            .hadErrorCount(1);
+    }
+
+    @Test
+    public void trustedIndexPrunesTypesNotIndexed() throws IOException {
+        // Without an index, the annotated class path interface is assumed not to be annotated
+        JavaFileObject resource = JavaFileObjects
+                .forResource("test/inheritance/IncorrectAnnotationInheritingClass1.java");
+        Compilation compilation = compileWithIndex(resource, "-Ainheritables.prune", "-Ainheritables.stats");
+        CompilationSubject.assertThat(compilation)
+            .succeeded();
+        CompilationSubject.assertThat(compilation)
+            .hadNoteContaining("1 types traversed");
+        CompilationSubject.assertThat(compilation)
+            .hadNoteContaining("2 types pruned");
+    }
+
+    private void writeIndex(String packageName, String... lines) throws IOException {
+        Path file = folder.getRoot().toPath().resolve(HierarchyIndex.pathOf(ANNOTATION, packageName));
+        Files.createDirectories(file.getParent());
+        List<String> content = Arrays.asList(lines);
+        Files.write(file, content, StandardCharsets.UTF_8);
+    }
+
+    private Compilation compileWithIndex(JavaFileObject resource, String... options) {
+        String classpath = folder.getRoot() + File.pathSeparator + System.getProperty("java.class.path");
+        List<String> allOptions = new ArrayList<>(Arrays.asList(options));
+        allOptions.add("-classpath");
+        allOptions.add(classpath);
+        return Compiler.javac()
+                .withProcessors(new DefaultConstructorProcessor())
+                .withOptions(allOptions)
+                .compile(resource);
+    }
+
+}
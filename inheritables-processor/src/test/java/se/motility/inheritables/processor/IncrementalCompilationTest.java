@@ -0,0 +1,144 @@
+package se.motility.inheritables.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.Compiler;
+import com.google.testing.compile.JavaFileObjects;
+
+/**
+ * Tests proving that recompiling a subset of the sources, with the remaining types
+ * compiled on the class path (as done by incremental builds), gives the same
+ * diagnostics as a full build.
+ * 
+ * @author M. Tegling
+ *
+ */
+public class IncrementalCompilationTest {
+
+    private static final String[] SOURCES = {
+            "test/incremental/Message.java",
+            "test/incremental/AbstractMessage.java",
+            "test/incremental/CorrectMessage.java",
+            "test/incremental/IncorrectMessage.java" };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recompiledIncorrectTypeSameDiagnostics() throws IOException {
+        assertSameDiagnostics("test/incremental/IncorrectMessage.java");
+    }
+
+    @Test
+    public void recompiledCorrectTypeSameDiagnostics() throws IOException {
+        assertSameDiagnostics("test/incremental/CorrectMessage.java");
+    }
+
+    @Test
+    public void recompiledSupertypeSameDiagnostics() throws IOException {
+        assertSameDiagnostics("test/incremental/AbstractMessage.java",
+                "test/incremental/CorrectMessage.java", "test/incremental/IncorrectMessage.java");
+    }
+
+    @Test
+    public void recompiledWithIndexSameDiagnostics() throws IOException {
+        assertSameDiagnostics("-Ainheritables.index", "test/incremental/IncorrectMessage.java");
+    }
+
+    @Test
+    public void isolatingUnlessIndexIsWritten() {
+        DefaultConstructorProcessor isolating = new DefaultConstructorProcessor();
+        compile(isolating, new ArrayList<>(), resources(SOURCES));
+        assertTrue(isolating.getSupportedOptions().contains(ProcessorOptions.GRADLE_ISOLATING));
+
+        DefaultConstructorProcessor aggregating = new DefaultConstructorProcessor();
+        List<String> options = new ArrayList<>();
+        options.add("-Ainheritables.index");
+        compile(aggregating, options, resources(SOURCES));
+        assertTrue(aggregating.getSupportedOptions().contains(ProcessorOptions.GRADLE_AGGREGATING));
+    }
+
+    private void assertSameDiagnostics(String... recompiled) throws IOException {
+        List<String> options = new ArrayList<>();
+        if (recompiled[0].startsWith("-A")) {
+            options.add(recompiled[0]);
+            recompiled = Arrays.copyOfRange(recompiled, 1, recompiled.length);
+        }
+        Compilation full = compile(new DefaultConstructorProcessor(), options, resources(SOURCES));
+
+        // Output of a previous build, before the recompiled sources were edited
+        Path output = folder.newFolder().toPath();
+        writeClassOutput(Compiler.javac().withOptions("-proc:none").compile(resources(SOURCES)), output);
+
+        List<String> incrementalOptions = new ArrayList<>(options);
+        incrementalOptions.add("-classpath");
+        incrementalOptions.add(output + File.pathSeparator + System.getProperty("java.class.path"));
+        Compilation incremental = compile(new DefaultConstructorProcessor(), incrementalOptions,
+                resources(recompiled));
+
+        assertEquals(describe(full, recompiled), describe(incremental, recompiled));
+    }
+
+    private static Compilation compile(DefaultConstructorProcessor processor, List<String> options,
+            JavaFileObject... resources) {
+        return Compiler.javac()
+                .withProcessors(processor)
+                .withOptions(options)
+                .compile(resources);
+    }
+
+    private static JavaFileObject[] resources(String... names) {
+        JavaFileObject[] resources = new JavaFileObject[names.length];
+        for (int i = 0; i < names.length; i++) {
+            resources[i] = JavaFileObjects.forResource(names[i]);
+        }
+        return resources;
+    }
+
+    // Describes all diagnostics reported for the given sources
+    private static List<String> describe(Compilation compilation, String... sources) {
+        List<String> descriptions = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : compilation.diagnostics()) {
+            String source = diagnostic.getSource() == null ? "" : diagnostic.getSource().getName();
+            for (String name : sources) {
+                if (source.endsWith(name)) {
+                    descriptions.add(diagnostic.getKind() + " " + name + ":" + diagnostic.getLineNumber()
+                            + " " + diagnostic.getMessage(Locale.ROOT));
+                }
+            }
+        }
+        return descriptions;
+    }
+
+    private static void writeClassOutput(Compilation compilation, Path directory) throws IOException {
+        for (JavaFileObject file : compilation.generatedFiles()) {
+            String path = file.toUri().getPath();
+            String relative = path.substring(path.indexOf("/CLASS_OUTPUT/") + "/CLASS_OUTPUT/".length());
+            Path target = directory.resolve(relative);
+            Files.createDirectories(target.getParent());
+            try (InputStream in = file.openInputStream()) {
+                Files.copy(in, target);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,98 @@
+package se.motility.inheritables.processor;
+
+import javax.tools.JavaFileObject;
+
+import org.junit.Test;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.CompilationSubject;
+import com.google.testing.compile.Compiler;
+import com.google.testing.compile.JavaFileObjects;
+
+/**
+ * Tests covering the checks performed by the {@link InheritablesPlugin}, with annotation
+ * processing turned off.
+ * 
+ * @author M. Tegling
+ *
+ */
+public class InheritablesPluginTest {
+
+    @Test
+    public void defaultConstructorChecked() {
+        JavaFileObject resource = JavaFileObjects
+                .forResource("test/defaultconstructor/MissingDefaultConstructorClass.java");
+        Compilation compilation = compile("-Xplugin:" + InheritablesPlugin.NAME, resource);
+        CompilationSubject.assertThat(compilation)
+            .hadErrorCount(1);
+        CompilationSubject.assertThat(compilation)
+            .hadErrorContaining("Missing default constructor")
+            .inFile(resource).onLine(6);
+    }
+
+    @Test
+    public void supertypeAnalyzedLaterCheckedOnce() {
+        // The subclasses are analyzed first, reaching the superclass before it is analyzed itself
+        JavaFileObject reply = JavaFileObjects.forResource("test/plugin/Reply.java");
+        JavaFileObject message = JavaFileObjects.forResource("test/plugin/Message.java");
+        Compilation compilation = compile("-Xplugin:" + InheritablesPlugin.NAME, reply, message);
+        CompilationSubject.assertThat(compilation)
+            .hadErrorCount(2);
+        CompilationSubject.assertThat(compilation)
+            .hadErrorContaining("Missing default constructor")
+            .inFile(message).onLine(6);
+        CompilationSubject.assertThat(compilation)
+            .hadErrorContaining("Missing default constructor")
+            .inFile(reply).onLine(3);
+    }
+
+    @Test
+    public void supertypeReachedByAttributesChecked() {
+        // The superclass is resolved when merging the attributes of the subclass, analyzed first
+        JavaFileObject record = JavaFileObjects.forResource("test/attributes/AvroRecord.java");
+        JavaFileObject base = JavaFileObjects.forResource("test/attributes/AvroBase.java");
+        Compilation compilation = compile("-Xplugin:" + InheritablesPlugin.NAME + " "
+                + AnnotationAttributesTest.AttributeReportingProcessor.class.getName(), record, base,
+                JavaFileObjects.forResource("test/attributes/AvroMessage.java"),
+                JavaFileObjects.forResource("test/attributes/Serialization.java"));
+        CompilationSubject.assertThat(compilation)
+            .hadErrorCount(2);
+        CompilationSubject.assertThat(compilation)
+            .hadErrorContaining("AvroRecord: format=\"avro\", version=1")
+            .inFile(record).onLine(3);
+        CompilationSubject.assertThat(compilation)
+            .hadErrorContaining("AvroBase: format=\"avro\", version=1")
+            .inFile(base).onLine(3);
+    }
+
+    @Test
+    public void processorsGivenByName() {
+        JavaFileObject resource = JavaFileObjects
+                .forResource("test/multi/NonFinalMultiAnnotatedClass.java");
+        Compilation compilation = compile("-Xplugin:" + InheritablesPlugin.NAME + " "
+                + MultiCheckProcessor.class.getName(), resource);
+        CompilationSubject.assertThat(compilation)
+            .hadErrorCount(1);
+        CompilationSubject.assertThat(compilation)
+            .hadErrorContaining("Class must be final");
+    }
+
+    @Test
+    public void unsupportedOptionIgnored() {
+        JavaFileObject resource = JavaFileObjects
+                .forResource("test/defaultconstructor/NoConstructorClass.java");
+        Compilation compilation = compile("-Xplugin:" + InheritablesPlugin.NAME + " "
+                + ProcessorOptions.INDEX, resource);
+        CompilationSubject.assertThat(compilation)
+            .succeeded();
+        CompilationSubject.assertThat(compilation)
+            .hadWarningContaining("Option " + ProcessorOptions.INDEX + " is not supported");
+    }
+
+    private static Compilation compile(String plugin, JavaFileObject... resources) {
+        return Compiler.javac()
+                .withOptions("-proc:none", plugin)
+                .compile(resources);
+    }
+
+}
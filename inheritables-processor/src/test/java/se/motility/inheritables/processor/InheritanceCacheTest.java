@@ -66,6 +66,18 @@ public class InheritanceCacheTest {
             .failed();
     }
     
+    @Test
+    public void annotatedInterfaceAfterCachedNonAnnotatedInterfaceCacheTest()
+            throws MalformedURLException {
+        JavaFileObject resource1 = JavaFileObjects
+                .forResource("test/inheritance/UnaffectedClassImplementingInterface1.java");
+        JavaFileObject resource2 = JavaFileObjects
+                .forResource("test/inheritance/IncorrectAnnotationInheritingClass4.java");
+        Compilation compilation = TestUtils.compile(resource1, resource2);
+        CompilationSubject.assertThat(compilation)
+            .failed();
+    }
+    
     @Test
     public void directAnnotationSuccess()
             throws MalformedURLException {
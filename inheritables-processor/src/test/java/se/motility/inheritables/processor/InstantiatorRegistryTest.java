@@ -0,0 +1,130 @@
+package se.motility.inheritables.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+import org.junit.Test;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.CompilationSubject;
+import com.google.testing.compile.Compiler;
+import com.google.testing.compile.JavaFileObjects;
+
+/**
+ * Tests covering the instantiator registry generated by the {@link DefaultConstructorProcessor}.
+ * 
+ * @author M. Tegling
+ *
+ */
+public class InstantiatorRegistryTest {
+
+    private static final String REGISTRY = "test.instantiators.MessageInstantiators";
+
+    @Test
+    public void registryGeneratedForInstantiableClasses() throws IOException {
+        Compilation compilation = compileWithRegistry(REGISTRY,
+                JavaFileObjects.forResource("test/instantiators/Message.java"),
+                JavaFileObjects.forResource("test/instantiators/PublicMessage.java"),
+                JavaFileObjects.forResource("test/instantiators/PackagePrivateMessage.java"),
+                JavaFileObjects.forResource("test/instantiators/PrivateConstructorMessage.java"),
+                JavaFileObjects.forResource("test/instantiators/AbstractMessage.java"));
+        CompilationSubject.assertThat(compilation)
+            .succeeded();
+
+        String registry = compilation.generatedSourceFile(REGISTRY).get().getCharContent(true).toString();
+        assertTrue(registry.contains("\"test.instantiators.PublicMessage\", test.instantiators.PublicMessage::new"));
+        assertTrue(registry.contains(
+                "\"test.instantiators.PublicMessage$NestedMessage\", test.instantiators.PublicMessage.NestedMessage::new"));
+        assertTrue(registry.contains(
+                "\"test.instantiators.PackagePrivateMessage\", test.instantiators.PackagePrivateMessage::new"));
+        assertFalse(registry.contains("InnerMessage"));
+        assertFalse(registry.contains("PrivateConstructorMessage"));
+        assertFalse(registry.contains("AbstractMessage"));
+
+        JavaFileObject services = compilation.generatedFile(StandardLocation.CLASS_OUTPUT,
+                InstantiatorRegistryWriter.SERVICE_FILE).get();
+        assertEquals(REGISTRY + "\n", services.getCharContent(true).toString());
+    }
+
+    @Test
+    public void packagePrivateClassesLeftOutOfRegistryInOtherPackage() throws IOException {
+        Compilation compilation = compileWithRegistry("test.other.MessageInstantiators",
+                JavaFileObjects.forResource("test/instantiators/Message.java"),
+                JavaFileObjects.forResource("test/instantiators/PublicMessage.java"),
+                JavaFileObjects.forResource("test/instantiators/PackagePrivateMessage.java"));
+        CompilationSubject.assertThat(compilation)
+            .succeeded();
+
+        String registry = compilation.generatedSourceFile("test.other.MessageInstantiators").get()
+                .getCharContent(true).toString();
+        assertTrue(registry.contains("test.instantiators.PublicMessage::new"));
+        assertFalse(registry.contains("PackagePrivateMessage"));
+    }
+
+    @Test
+    public void constructorsThrowingCheckedExceptionsLeftOutOfRegistry() throws IOException {
+        Compilation compilation = compileWithRegistry(REGISTRY,
+                JavaFileObjects.forResource("test/instantiators/Message.java"),
+                JavaFileObjects.forResource("test/instantiators/ThrowingConstructorMessage.java"));
+        CompilationSubject.assertThat(compilation)
+            .succeeded();
+
+        String registry = compilation.generatedSourceFile(REGISTRY).get().getCharContent(true).toString();
+        assertTrue(registry.contains("test.instantiators.ThrowingConstructorMessage.UncheckedMessage::new"));
+        assertFalse(registry.contains("test.instantiators.ThrowingConstructorMessage::new"));
+        assertFalse(registry.contains("CheckedMessage"));
+    }
+
+    @Test
+    public void noRegistryWithoutInstantiableClasses() {
+        Compilation compilation = compileWithRegistry(REGISTRY,
+                JavaFileObjects.forResource("test/instantiators/Message.java"),
+                JavaFileObjects.forResource("test/instantiators/PrivateConstructorMessage.java"));
+        CompilationSubject.assertThat(compilation)
+            .succeeded();
+        assertTrue(compilation.generatedFiles().stream()
+                .noneMatch(file -> file.getName().contains("MessageInstantiators")
+                        || file.getName().contains(InstantiatorRegistryWriter.SERVICE_FILE)));
+    }
+
+    @Test
+    public void recyclableClassesRegisteredWithoutResetHooks() throws IOException {
+        Compilation compilation = compileWithRegistry(REGISTRY,
+                JavaFileObjects.forResource("test/instantiators/Message.java"),
+                JavaFileObjects.forResource("test/instantiators/Trade.java"),
+                JavaFileObjects.forResource("test/instantiators/RecyclableQuote.java"));
+        CompilationSubject.assertThat(compilation)
+            .succeeded();
+
+        // Pools reset Recyclable instances at run-time, so the registry only holds instantiators
+        String registry = compilation.generatedSourceFile(REGISTRY).get().getCharContent(true).toString();
+        assertTrue(registry.contains("\"test.instantiators.RecyclableQuote\", test.instantiators.RecyclableQuote::new"));
+        assertTrue(registry.contains("\"test.instantiators.Trade\", test.instantiators.Trade::new"));
+        assertFalse(registry.contains("resetHooks"));
+    }
+
+    @Test
+    public void noRegistryByDefault() {
+        Compilation compilation = TestUtils.compile(
+                JavaFileObjects.forResource("test/instantiators/Message.java"),
+                JavaFileObjects.forResource("test/instantiators/PublicMessage.java"));
+        CompilationSubject.assertThat(compilation)
+            .succeeded();
+        assertTrue(compilation.generatedFiles().stream()
+                .noneMatch(file -> file.getName().contains(InstantiatorRegistryWriter.SERVICE_FILE)));
+    }
+
+    private static Compilation compileWithRegistry(String registryName, JavaFileObject... resources) {
+        return Compiler.javac()
+                .withProcessors(new DefaultConstructorProcessor())
+                .withOptions("-A" + ProcessorOptions.INSTANTIATORS + "=" + registryName)
+                .compile(resources);
+    }
+
+}
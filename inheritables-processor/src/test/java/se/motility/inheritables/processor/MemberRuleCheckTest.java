@@ -0,0 +1,182 @@
+package se.motility.inheritables.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedSourceVersion;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import org.junit.Test;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.CompilationSubject;
+import com.google.testing.compile.Compiler;
+import com.google.testing.compile.JavaFileObjects;
+
+/**
+ * Tests covering checks declared as {@link MemberRule}s.
+ * 
+ * @author M. Tegling
+ *
+ */
+public class MemberRuleCheckTest {
+
+    @Test
+    public void allRulesEvaluated() {
+        Compilation compilation = Compiler.javac()
+                .withProcessors(new EntityProcessor())
+                .compile(JavaFileObjects.forResource("test/rules/Entity.java"),
+                        JavaFileObjects.forResource("test/rules/Entities.java"));
+        CompilationSubject.assertThat(compilation)
+            .hadErrorCount(2);
+        CompilationSubject.assertThat(compilation)
+            .hadErrorContaining("No default constructor. No final fields. No serialVersionUID. No inner classes.")
+            .inFile(JavaFileObjects.forResource("test/rules/Entities.java")).onLine(17);
+        CompilationSubject.assertThat(compilation)
+            .hadErrorContaining("No serialVersionUID.")
+            .inFile(JavaFileObjects.forResource("test/rules/Entities.java")).onLine(27);
+    }
+
+    @Test
+    public void factRulesEvaluatedInParallelAsSequentially() {
+        // Enough types for the checks to be sharded
+        int types = ParallelCheckEvaluator.SHARD_SIZE * 3;
+        List<JavaFileObject> sources = new ArrayList<>();
+        sources.add(JavaFileObjects.forResource("test/rules/Entity.java"));
+        int failing = 0;
+        for (int i = 0; i < types; i++) {
+            failing += i % 3 == 0 || i % 5 == 0 ? 1 : 0;
+            sources.add(JavaFileObjects.forSourceString("test.rules.gen.E" + i, "package test.rules.gen;\n"
+                    + "@test.rules.Entity public class E" + i + " {\n"
+                    + (i % 3 == 0 ? "    public E" + i + "(int i) {}\n" : "")
+                    + (i % 5 == 0 ? "    public final int value = 0;\n" : "")
+                    + "}\n"));
+        }
+        List<String> sequential = errorsOf(compileWithFactRules(sources));
+        List<String> parallel = errorsOf(compileWithFactRules(sources, "-Ainheritables.parallel"));
+
+        assertEquals(failing, sequential.size());
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    public void defaultConstructorProcessorEvaluatedInParallel() {
+        Compilation compilation = Compiler.javac()
+                .withProcessors(new DefaultConstructorProcessor())
+                .withOptions("-A" + ProcessorOptions.PARALLEL)
+                .compile(JavaFileObjects.forResource("test/defaultconstructor/MissingDefaultConstructorClass.java"));
+        CompilationSubject.assertThat(compilation)
+            .hadErrorContaining("Missing default constructor");
+        assertTrue(compilation.warnings().stream()
+                .noneMatch(warning -> warning.getMessage(null).contains(ProcessorOptions.PARALLEL)));
+    }
+
+    @Test
+    public void parallelIgnoredWithoutFactRules() {
+        Compilation compilation = Compiler.javac()
+                .withProcessors(new EntityProcessor())
+                .withOptions("-A" + ProcessorOptions.PARALLEL)
+                .compile(JavaFileObjects.forResource("test/rules/Entity.java"),
+                        JavaFileObjects.forResource("test/rules/Entities.java"));
+        CompilationSubject.assertThat(compilation)
+            .hadWarningContaining("Option " + ProcessorOptions.PARALLEL + " is ignored");
+        CompilationSubject.assertThat(compilation)
+            .hadErrorCount(2);
+    }
+
+    private static Compilation compileWithFactRules(List<JavaFileObject> sources, String... options) {
+        List<String> allOptions = new ArrayList<>(Arrays.asList(options));
+        allOptions.addAll(Arrays.asList("-Xmaxerrs", "10000", "-Ainheritables.maxErrors=10000"));
+        return Compiler.javac()
+                .withProcessors(new FactEntityProcessor())
+                .withOptions(allOptions)
+                .compile(sources);
+    }
+
+    private static List<String> errorsOf(Compilation compilation) {
+        List<String> errors = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> error : compilation.errors()) {
+            errors.add(error.getSource().getName() + ": " + error.getMessage(null));
+        }
+        return errors;
+    }
+
+    /**
+     * Processor checking the types inheriting <code>test.rules.Entity</code> for four rules.
+     */
+    @SupportedSourceVersion(SourceVersion.RELEASE_8)
+    @SupportedAnnotationTypes("*")
+    private static class EntityProcessor extends AbstractMultiInheritableAnnotationProcessor {
+
+        @Override
+        protected List<InheritableAnnotationCheck> getChecks() {
+            return Collections.<InheritableAnnotationCheck>singletonList(new EntityCheck() {
+
+                @Override
+                protected List<MemberRule> getRules() {
+                    return Arrays.asList(
+                            MemberRule.require(ElementKind.CONSTRUCTOR,
+                                    c -> ((ExecutableElement) c).getParameters().isEmpty(), "No default constructor."),
+                            MemberRule.forbid(ElementKind.FIELD,
+                                    f -> f.getModifiers().contains(Modifier.FINAL)
+                                            && !f.getModifiers().contains(Modifier.STATIC), "No final fields."),
+                            MemberRule.require(ElementKind.FIELD,
+                                    f -> f.getSimpleName().contentEquals("serialVersionUID"), "No serialVersionUID."),
+                            MemberRule.forbid(ElementKind.CLASS,
+                                    c -> !c.getModifiers().contains(Modifier.STATIC), "No inner classes."));
+                }
+            });
+        }
+
+    }
+
+    /**
+     * Processor checking the types inheriting <code>test.rules.Entity</code> for two rules
+     * declared on member facts.
+     */
+    @SupportedSourceVersion(SourceVersion.RELEASE_8)
+    @SupportedAnnotationTypes("*")
+    private static class FactEntityProcessor extends AbstractMultiInheritableAnnotationProcessor {
+
+        @Override
+        protected List<InheritableAnnotationCheck> getChecks() {
+            return Collections.<InheritableAnnotationCheck>singletonList(new EntityCheck() {
+
+                @Override
+                protected List<MemberRule> getRules() {
+                    return Arrays.asList(
+                            MemberRule.requireFact(ElementKind.CONSTRUCTOR,
+                                    c -> c.getParameterTypes().isEmpty(), "No default constructor."),
+                            MemberRule.forbidFact(ElementKind.FIELD,
+                                    f -> f.getModifiers().contains(Modifier.FINAL) && "int".equals(f.getType()),
+                                    "No final int fields."));
+                }
+            });
+        }
+
+    }
+
+    /**
+     * Check of the annotation <code>test.rules.Entity</code>, given by name.
+     */
+    private abstract static class EntityCheck extends MemberRuleCheck implements NamedAnnotationCheck {
+
+        @Override
+        public String getAnnotationTypeName() {
+            return "test.rules.Entity";
+        }
+
+    }
+
+}
@@ -0,0 +1,34 @@
+package se.motility.inheritables.processor;
+
+import org.junit.Test;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.CompilationSubject;
+import com.google.testing.compile.JavaFileObjects;
+
+/**
+ * Tests covering member types, i.e. classes nested in other types at any depth.
+ * 
+ * @author M. Tegling
+ *
+ */
+public class MemberTypesTest {
+
+    private static final String ERROR = "Missing default constructor";
+
+    @Test
+    public void memberTypesChecked() {
+        Compilation compilation = TestUtils.compile(JavaFileObjects.forResource("test/nested/Protocol.java"));
+        CompilationSubject.assertThat(compilation)
+            .hadErrorCount(4);
+        CompilationSubject.assertThat(compilation)
+            .hadErrorContaining(ERROR).inFile(JavaFileObjects.forResource("test/nested/Protocol.java")).onLine(13);
+        CompilationSubject.assertThat(compilation)
+            .hadErrorContaining(ERROR).inFile(JavaFileObjects.forResource("test/nested/Protocol.java")).onLine(21);
+        CompilationSubject.assertThat(compilation)
+            .hadErrorContaining(ERROR).inFile(JavaFileObjects.forResource("test/nested/Protocol.java")).onLine(31);
+        CompilationSubject.assertThat(compilation)
+            .hadErrorContaining(ERROR).inFile(JavaFileObjects.forResource("test/nested/Protocol.java")).onLine(39);
+    }
+
+}
@@ -0,0 +1,48 @@
+package se.motility.inheritables.processor;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedSourceVersion;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+
+import se.motility.inheritables.processor.types.RequireFinalClass;
+
+/**
+ * Processor registering two checks, used for testing the single-pass traversal
+ * of several inheritable annotations.
+ * 
+ * @author M. Tegling
+ *
+ */
+@SupportedSourceVersion(SourceVersion.RELEASE_8)
+@SupportedAnnotationTypes("*")
+public class MultiCheckProcessor extends AbstractMultiInheritableAnnotationProcessor {
+
+    @Override
+    protected List<InheritableAnnotationCheck> getChecks() {
+        return Arrays.asList(new DefaultConstructorCheck(), new FinalClassCheck());
+    }
+
+    private static class FinalClassCheck implements InheritableAnnotationCheck {
+
+        @Override
+        public Class<RequireFinalClass> getAnnotationType() {
+            return RequireFinalClass.class;
+        }
+
+        @Override
+        public boolean isCorrectlyAnnotated(TypeElement annotatedType) {
+            return annotatedType.getModifiers().contains(Modifier.FINAL);
+        }
+
+        @Override
+        public String getErrorMessage(TypeElement errorType) {
+            return "Class must be final.";
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+package se.motility.inheritables.processor;
+
+import java.net.MalformedURLException;
+
+import javax.tools.JavaFileObject;
+
+import org.junit.Test;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.CompilationSubject;
+import com.google.testing.compile.Compiler;
+import com.google.testing.compile.JavaFileObjects;
+
+/**
+ * Tests covering processors registering several checks, each associated with
+ * its own inheritable annotation.
+ * 
+ * @author M. Tegling
+ *
+ */
+public class MultiInheritableAnnotationProcessorTest {
+
+    @Test
+    public void allChecksSatisfiedSuccess() throws MalformedURLException {
+        JavaFileObject resource = JavaFileObjects
+                .forResource("test/multi/CorrectMultiAnnotatedClass.java");
+        Compilation compilation = compile(resource);
+        CompilationSubject.assertThat(compilation)
+            .succeeded();
+    }
+
+    @Test
+    public void oneCheckFailing() throws MalformedURLException {
+        JavaFileObject resource = JavaFileObjects
+                .forResource("test/multi/NonFinalMultiAnnotatedClass.java");
+        Compilation compilation = compile(resource);
+        CompilationSubject.assertThat(compilation)
+            .hadErrorCount(1);
+        CompilationSubject.assertThat(compilation)
+            .hadErrorContaining("Class must be final");
+    }
+
+    @Test
+    public void allChecksFailing() throws MalformedURLException {
+        JavaFileObject resource = JavaFileObjects
+                .forResource("test/multi/IncorrectMultiAnnotatedClass.java");
+        Compilation compilation = compile(resource);
+        CompilationSubject.assertThat(compilation)
+            .hadErrorCount(2);
+    }
+
+    @Test
+    public void singleAnnotationUnaffectedByOtherCheck() throws MalformedURLException {
+        JavaFileObject resource = JavaFileObjects
+                .forResource("test/inheritance/CorrectAnnotationInheritingClass1.java");
+        Compilation compilation = compile(resource);
+        CompilationSubject.assertThat(compilation)
+            .succeeded();
+    }
+
+    private static Compilation compile(JavaFileObject... resources) {
+        return Compiler.javac()
+                .withProcessors(new MultiCheckProcessor())
+                .compile(resources);
+    }
+
+}
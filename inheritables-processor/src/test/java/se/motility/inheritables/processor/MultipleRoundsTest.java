@@ -0,0 +1,122 @@
+package se.motility.inheritables.processor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.MalformedURLException;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedSourceVersion;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.TypeElement;
+import javax.tools.JavaFileObject;
+
+import org.junit.Test;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.CompilationSubject;
+import com.google.testing.compile.Compiler;
+import com.google.testing.compile.JavaFileObjects;
+
+/**
+ * Tests covering compilations spanning several annotation processing rounds, i.e.
+ * when other annotation processors generate new sources.
+ * 
+ * @author M. Tegling
+ *
+ */
+public class MultipleRoundsTest {
+
+    @Test
+    public void generatedIncorrectTypeFailsInLaterRound() throws MalformedURLException {
+        JavaFileObject resource = JavaFileObjects
+                .forResource("test/inheritance/CorrectAnnotationInheritingClass1.java");
+        Compilation compilation = compile(new GeneratingProcessor(false), resource);
+        CompilationSubject.assertThat(compilation)
+            .hadErrorCount(1);
+        CompilationSubject.assertThat(compilation)
+            .hadErrorContaining("Missing default constructor");
+    }
+
+    @Test
+    public void generatedCorrectTypeSucceedsInLaterRound() throws MalformedURLException {
+        JavaFileObject resource = JavaFileObjects
+                .forResource("test/inheritance/CorrectAnnotationInheritingClass1.java");
+        Compilation compilation = compile(new GeneratingProcessor(true), resource);
+        CompilationSubject.assertThat(compilation)
+            .succeeded();
+    }
+
+    @Test
+    public void errorReportedOnceAcrossRounds() throws MalformedURLException {
+        JavaFileObject resource = JavaFileObjects
+                .forResource("test/inheritance/IncorrectAnnotationInheritingClass3.java");
+        Compilation compilation = compile(new GeneratingProcessor(true), resource);
+        CompilationSubject.assertThat(compilation)
+            .hadErrorCount(1);
+    }
+
+    @Test
+    public void generatedSupertypeCheckedInLaterRound() {
+        // The supertype is an error type in the first round
+        JavaFileObject resource = JavaFileObjects.forResource("test/rounds/GeneratedBaseSubclass.java");
+        Compilation compilation = compile(new GeneratingProcessor("GeneratedBase",
+                "@se.motility.inheritables.annotations.RequireDefaultConstructor\n"
+                + "public class GeneratedBase {public GeneratedBase(Object arg){}}"), resource);
+        CompilationSubject.assertThat(compilation)
+            .hadErrorCount(1);
+        CompilationSubject.assertThat(compilation)
+            .hadErrorContaining("Missing default constructor");
+    }
+
+    private static Compilation compile(GeneratingProcessor generator, JavaFileObject... resources) {
+        return Compiler.javac()
+                .withProcessors(generator, new DefaultConstructorProcessor())
+                .compile(resources);
+    }
+
+    /**
+     * Processor generating one type in the first round, by default implementing an annotated
+     * interface, resulting in a second processing round.
+     */
+    @SupportedSourceVersion(SourceVersion.RELEASE_8)
+    @SupportedAnnotationTypes("*")
+    private static class GeneratingProcessor extends AbstractProcessor {
+
+        private final String simpleName;
+        private final String declaration;
+        private boolean generated;
+
+        GeneratingProcessor(boolean withDefaultConstructor) {
+            this("GeneratedMessage", "public class GeneratedMessage implements "
+                    + "se.motility.inheritables.processor.types.AnnotatedInterface {"
+                    + (withDefaultConstructor ? "" : "public GeneratedMessage(Object arg){}") + "}");
+        }
+
+        GeneratingProcessor(String simpleName, String declaration) {
+            this.simpleName = simpleName;
+            this.declaration = declaration;
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+            if (generated) {
+                return false;
+            }
+            generated = true;
+            try {
+                JavaFileObject file = processingEnv.getFiler().createSourceFile("test.generated." + simpleName);
+                try (Writer writer = file.openWriter()) {
+                    writer.write("package test.generated;\n" + declaration);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+package se.motility.inheritables.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import javax.tools.StandardLocation;
+
+import org.junit.Test;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.CompilationSubject;
+import com.google.testing.compile.Compiler;
+import com.google.testing.compile.JavaFileObjects;
+
+/**
+ * Tests covering the native-image reflection configuration written for the classes requiring
+ * a default constructor.
+ *
+ * @author M. Tegling
+ *
+ */
+public class NativeImageConfigTest {
+
+    @Test
+    public void defaultConstructorsOfInstantiableClassesRegistered() throws IOException {
+        Compilation compilation = compile("-A" + ProcessorOptions.NATIVE_IMAGE + "=com.example/messages/");
+        CompilationSubject.assertThat(compilation)
+            .succeeded();
+
+        String config = compilation.generatedFile(StandardLocation.CLASS_OUTPUT,
+                "META-INF/native-image/com.example/messages/reflect-config.json").get()
+                .getCharContent(true).toString();
+        assertEquals("[\n"
+                + "  {\n"
+                + "    \"name\": \"test.instantiators.PublicMessage\",\n"
+                + "    \"methods\": [{\"name\": \"<init>\", \"parameterTypes\": []}]\n"
+                + "  },\n"
+                + "  {\n"
+                + "    \"name\": \"test.instantiators.PublicMessage$NestedMessage\",\n"
+                + "    \"methods\": [{\"name\": \"<init>\", \"parameterTypes\": []}]\n"
+                + "  },\n"
+                + "  {\n"
+                + "    \"name\": \"test.instantiators.PrivateConstructorMessage\",\n"
+                + "    \"methods\": [{\"name\": \"<init>\", \"parameterTypes\": []}]\n"
+                + "  }\n"
+                + "]\n", config);
+    }
+
+    @Test
+    public void defaultDirectoryWithoutValue() {
+        Compilation compilation = compile("-A" + ProcessorOptions.NATIVE_IMAGE);
+        CompilationSubject.assertThat(compilation)
+            .generatedFile(StandardLocation.CLASS_OUTPUT, NativeImageConfigWriter.pathOf(null));
+        assertEquals("META-INF/native-image/inheritables/reflect-config.json", NativeImageConfigWriter.pathOf(" "));
+    }
+
+    @Test
+    public void noConfigByDefault() {
+        Compilation compilation = compile();
+        CompilationSubject.assertThat(compilation)
+            .succeeded();
+        assertTrue(compilation.generatedFiles().stream()
+                .noneMatch(file -> file.getName().contains(NativeImageConfigWriter.LOCATION)));
+    }
+
+    private static Compilation compile(String... options) {
+        return Compiler.javac()
+                .withProcessors(new DefaultConstructorProcessor())
+                .withOptions((Object[]) options)
+                .compile(JavaFileObjects.forResource("test/instantiators/Message.java"),
+                        JavaFileObjects.forResource("test/instantiators/PublicMessage.java"),
+                        JavaFileObjects.forResource("test/instantiators/AbstractMessage.java"),
+                        JavaFileObjects.forResource("test/instantiators/PrivateConstructorMessage.java"));
+    }
+
+}
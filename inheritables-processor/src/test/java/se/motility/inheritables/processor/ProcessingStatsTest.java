@@ -0,0 +1,75 @@
+package se.motility.inheritables.processor;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import javax.tools.Diagnostic;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.CompilationSubject;
+import com.google.testing.compile.Compiler;
+import com.google.testing.compile.JavaFileObjects;
+
+/**
+ * Tests covering the statistics reported with the option <code>inheritables.stats</code>.
+ * 
+ * @author M. Tegling
+ *
+ */
+public class ProcessingStatsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void statsReportedAsNote() {
+        Compilation compilation = compile("-Ainheritables.stats");
+        CompilationSubject.assertThat(compilation)
+            .succeeded();
+        // The interface completes the bitmask of both classes, so Object is never visited
+        CompilationSubject.assertThat(compilation)
+            .hadNoteContaining(DefaultConstructorProcessor.class.getName() + ": 2 rounds");
+        CompilationSubject.assertThat(compilation)
+            .hadNoteContaining("2 root types, 3 types traversed, class cache 0 hits/2 misses, "
+                    + "interface cache 1 hits/1 misses, 0 index hits, 2 checks");
+    }
+
+    @Test
+    public void statsWrittenToFile() throws IOException {
+        File report = new File(folder.getRoot(), "reports/stats.json");
+        Compilation compilation = compile("-Ainheritables.stats.file=" + report);
+        CompilationSubject.assertThat(compilation)
+            .succeeded();
+        String json = new String(Files.readAllBytes(report.toPath()), StandardCharsets.UTF_8);
+        assertTrue(json.contains("\"processor\": \"" + DefaultConstructorProcessor.class.getName() + "\""));
+        assertTrue(json.contains("{\"round\": 1, "));
+        assertTrue(json.contains("{\"round\": 2, "));
+        assertTrue(json.contains("\"typesTraversed\": 3, \"classCacheHits\": 0, \"classCacheMisses\": 2, "
+                + "\"interfaceCacheHits\": 1, \"interfaceCacheMisses\": 1, \"indexHits\": 0, \"checks\": 2, "));
+    }
+
+    @Test
+    public void noStatsByDefault() {
+        Compilation compilation = TestUtils.compile(
+                JavaFileObjects.forResource("test/inheritance/CorrectAnnotationInheritingClass0.java"));
+        assertTrue(compilation.diagnostics().stream()
+                .noneMatch(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.NOTE));
+    }
+
+    private static Compilation compile(String option) {
+        return Compiler.javac()
+                .withProcessors(new DefaultConstructorProcessor())
+                .withOptions(option)
+                .compile(JavaFileObjects.forResource("test/inheritance/CorrectAnnotationInheritingClass0.java"),
+                        JavaFileObjects.forResource("test/inheritance/CorrectAnnotationInheritingClass1.java"));
+    }
+
+}
@@ -0,0 +1,191 @@
+package se.motility.inheritables.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Function;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.annotation.processing.Filer;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.CompilationSubject;
+import com.google.testing.compile.Compiler;
+import com.google.testing.compile.JavaFileObjects;
+
+/**
+ * Tests covering the {@link SharedHierarchyCache} of class path types, shared between compilations.
+ * 
+ * @author M. Tegling
+ *
+ */
+public class SharedHierarchyCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void repeatedCompilationResolvedFromCache() throws IOException {
+        Path jar = writeJar("api.jar", JavaFileObjects.forResource("test/incremental/Message.java"));
+
+        Compilation cold = compileAgainst(jar);
+        CompilationSubject.assertThat(cold)
+            .hadErrorContaining("Missing default constructor");
+        CompilationSubject.assertThat(cold)
+            .hadNoteContaining("shared cache 0 hits/2 misses");
+
+        Compilation warm = compileAgainst(jar);
+        CompilationSubject.assertThat(warm)
+            .hadErrorContaining("Missing default constructor");
+        CompilationSubject.assertThat(warm)
+            .hadNoteContaining("shared cache 2 hits/0 misses");
+    }
+
+    @Test
+    public void changedJarNotResolvedFromCache() throws IOException {
+        Path jar = writeJar("changing.jar", JavaFileObjects.forResource("test/incremental/Message.java"));
+        CompilationSubject.assertThat(compileAgainst(jar))
+            .failed();
+
+        // Same jar, now with a non-annotated message interface
+        writeJar("changing.jar", JavaFileObjects.forSourceLines("test.incremental.Message",
+                "package test.incremental;",
+                "public interface Message {}"));
+        Compilation compilation = compileAgainst(jar);
+        CompilationSubject.assertThat(compilation)
+            .succeeded();
+        CompilationSubject.assertThat(compilation)
+            .hadNoteContaining("shared cache 0 hits/2 misses");
+    }
+
+    @Test
+    public void jarLookedUpOncePerPackage() throws IOException {
+        Path jar = writeJar("lookup.jar", JavaFileObjects.forResource("test/incremental/Message.java"));
+        int[] lookups = new int[1];
+        // Filer finding every class file in the jar
+        Filer filer = filerFinding(type -> jar, lookups);
+        SharedHierarchyCache.Locator locator = new SharedHierarchyCache(10).newLocator(filer);
+
+        String message = locator.keyOf("test.incremental", "test.incremental.Message");
+        String abstractMessage = locator.keyOf("test.incremental", "test.incremental.AbstractMessage");
+        assertEquals(1, lookups[0]);
+        assertEquals(message.substring(0, message.indexOf('/')), abstractMessage.substring(0, abstractMessage.indexOf('/')));
+        assertTrue(abstractMessage.endsWith("/test.incremental.AbstractMessage"));
+
+        // Types missing from the jar of their package are looked up
+        locator.keyOf("test.incremental", "test.incremental.Other");
+        assertEquals(2, lookups[0]);
+    }
+
+    @Test
+    public void typeInSeveralJarsLookedUp() throws IOException {
+        // The class path holds shadowing.jar before library.jar, both holding Shadowed
+        Path shadowing = writeJar("shadowing.jar",
+                JavaFileObjects.forSourceLines("test.other.Elsewhere", "package test.other;", "public class Elsewhere {}"),
+                JavaFileObjects.forSourceLines("test.split.Shadowed", "package test.split;", "public class Shadowed {}"));
+        Path library = writeJar("library.jar",
+                JavaFileObjects.forSourceLines("test.split.Library", "package test.split;", "public class Library {}"),
+                JavaFileObjects.forSourceLines("test.split.Shadowed", "package test.split;",
+                        "public class Shadowed { int version; }"));
+        int[] lookups = new int[1];
+        Filer filer = filerFinding(type -> type.equals("test.split.Library") ? library : shadowing, lookups);
+        SharedHierarchyCache.Locator locator = new SharedHierarchyCache(10).newLocator(filer);
+
+        String elsewhere = locator.keyOf("test.other", "test.other.Elsewhere");
+        String libraryType = locator.keyOf("test.split", "test.split.Library");
+        String shadowed = locator.keyOf("test.split", "test.split.Shadowed");
+        // Not taken from the jar of its package, library.jar
+        assertEquals(3, lookups[0]);
+        assertEquals(elsewhere.substring(0, elsewhere.indexOf('/')), shadowed.substring(0, shadowed.indexOf('/')));
+        assertNotEquals(libraryType.substring(0, libraryType.indexOf('/')), shadowed.substring(0, shadowed.indexOf('/')));
+    }
+
+    @Test
+    public void leastRecentlyUsedTypeEvicted() {
+        SharedHierarchyCache cache = new SharedHierarchyCache(2);
+        SharedHierarchyCache.TypeShape shape = new SharedHierarchyCache.TypeShape(new String[0], new String[0], 0);
+        cache.put("a", shape);
+        cache.put("b", shape);
+        cache.get("a");
+        cache.put("c", shape);
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+    }
+
+    private Path writeJar(String name, JavaFileObject message) throws IOException {
+        return writeJar(name, message, JavaFileObjects.forResource("test/incremental/AbstractMessage.java"));
+    }
+
+    private Path writeJar(String name, JavaFileObject... sources) throws IOException {
+        Compilation compilation = Compiler.javac()
+                .withOptions("-proc:none")
+                .compile(sources);
+        CompilationSubject.assertThat(compilation)
+            .succeeded();
+        Path jar = folder.getRoot().toPath().resolve(name);
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            for (JavaFileObject file : compilation.generatedFiles()) {
+                String path = file.toUri().getPath();
+                out.putNextEntry(new ZipEntry(path.substring(path.indexOf("/CLASS_OUTPUT/") + "/CLASS_OUTPUT/".length())));
+                try (InputStream in = file.openInputStream()) {
+                    byte[] buffer = new byte[4096];
+                    int n;
+                    while ((n = in.read(buffer)) > 0) {
+                        out.write(buffer, 0, n);
+                    }
+                }
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    // Filer finding the class files of the types in the jars given by their binary names
+    private static Filer filerFinding(Function<String, Path> jarOf, int[] lookups) {
+        return (Filer) Proxy.newProxyInstance(Filer.class.getClassLoader(), new Class<?>[] {Filer.class},
+                (proxy, method, args) -> {
+                    assertEquals("getResource", method.getName());
+                    lookups[0]++;
+                    String packageName = args[1].toString();
+                    String relative = args[2].toString();
+                    String type = packageName + '.' + relative.substring(0, relative.length() - ".class".length());
+                    URI jarUri = URI.create("jar:" + jarOf.apply(type).toUri() + "!/" + packageName.replace('.', '/')
+                            + '/' + relative);
+                    // Jar URIs are opaque, as rejected by the constructor
+                    return new SimpleJavaFileObject(URI.create("file:///" + relative), JavaFileObject.Kind.CLASS) {
+                        @Override
+                        public URI toUri() {
+                            return jarUri;
+                        }
+                    };
+                });
+    }
+
+    private static Compilation compileAgainst(Path jar) {
+        return Compiler.javac()
+                .withProcessors(new DefaultConstructorProcessor())
+                .withOptions("-Ainheritables.sharedCache", "-Ainheritables.stats",
+                        "-classpath", jar + File.pathSeparator + System.getProperty("java.class.path"))
+                .compile(JavaFileObjects.forResource("test/incremental/IncorrectMessage.java"));
+    }
+
+}
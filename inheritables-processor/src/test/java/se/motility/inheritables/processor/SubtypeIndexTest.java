@@ -0,0 +1,118 @@
+package se.motility.inheritables.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+import org.junit.Test;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.CompilationSubject;
+import com.google.testing.compile.Compiler;
+import com.google.testing.compile.JavaFileObjects;
+
+import se.motility.inheritables.runtime.SubtypeIndex;
+
+/**
+ * Tests covering the reverse subtype index written by the processor, as read by
+ * {@link SubtypeIndex}.
+ *
+ * @author M. Tegling
+ *
+ */
+public class SubtypeIndexTest {
+
+    @Test
+    public void directSupertypesOfSourceTypesIndexed() throws IOException {
+        SubtypeIndex index = read(compile("Entity", "Event", "Message", "Created"));
+
+        assertEquals(Collections.singleton("test.subtypes.Event"), index.directSubtypesOf("test.subtypes.Entity"));
+        assertEquals(Collections.singleton("test.subtypes.Created"), index.directSubtypesOf("test.subtypes.Message"));
+        assertEquals(Collections.singleton("test.subtypes.Created$Replayed"),
+                index.directSubtypesOf("test.subtypes.Created"));
+        assertTrue(index.directSubtypesOf("java.lang.Object").isEmpty());
+    }
+
+    @Test
+    public void supertypesAfterAnnotationFoundIndexed() throws IOException {
+        // Message makes Created annotated before Event is visited
+        SubtypeIndex index = read(compile("Entity", "Event", "Message", "Created"));
+
+        assertEquals(Collections.singleton("test.subtypes.Created"), index.directSubtypesOf("test.subtypes.Event"));
+    }
+
+    @Test
+    public void transitivelyAffectedTypesFound() throws IOException {
+        SubtypeIndex index = read(compile("Entity", "Event", "Message", "Created", "Standalone"));
+
+        assertEquals(new HashSet<>(Arrays.asList("test.subtypes.Event", "test.subtypes.Created",
+                "test.subtypes.Created$Replayed")), index.affectedBy("test.subtypes.Entity"));
+        assertEquals(Collections.singleton("test.subtypes.Standalone"), index.affectedBy("java.lang.Runnable"));
+        assertTrue(index.affectedBy("test.subtypes.Created$Replayed").isEmpty());
+        assertTrue(index.affectedBy("test.Missing").isEmpty());
+    }
+
+    @Test
+    public void indexesOfSeparateCompilationsMerged() throws IOException {
+        Compilation messages = compile("Entity", "Event", "Message", "Created");
+        Compilation standalone = compile("Standalone");
+
+        SubtypeIndex index = SubtypeIndex.read(open(messages), open(standalone));
+        assertEquals(3, index.affectedBy("test.subtypes.Entity").size());
+        assertEquals(new HashSet<>(Arrays.asList("test.subtypes.Created", "test.subtypes.Created$Replayed",
+                "test.subtypes.Standalone")),
+                index.affectedBy(Arrays.asList("test.subtypes.Message", "java.lang.Runnable")));
+    }
+
+    @Test
+    public void indexWrittenOnceBySeveralProcessors() throws IOException {
+        Compilation compilation = Compiler.javac()
+                .withProcessors(new DefaultConstructorProcessor(), new MultiCheckProcessor())
+                .withOptions("-A" + ProcessorOptions.SUBTYPE_INDEX)
+                .compile(JavaFileObjects.forResource("test/subtypes/Standalone.java"));
+        // The second processor finding the index written is not an error
+        CompilationSubject.assertThat(compilation)
+            .succeeded();
+        assertEquals(Collections.singleton("test.subtypes.Standalone"),
+                read(compilation).affectedBy("java.lang.Runnable"));
+    }
+
+    @Test
+    public void noIndexByDefault() {
+        Compilation compilation = TestUtils.compile(JavaFileObjects.forResource("test/subtypes/Standalone.java"));
+        CompilationSubject.assertThat(compilation)
+            .succeeded();
+        assertTrue(compilation.generatedFiles().stream()
+                .noneMatch(file -> file.getName().contains(SubtypeIndexWriter.LOCATION)));
+    }
+
+    private static Compilation compile(String... types) {
+        Compilation compilation = Compiler.javac()
+                .withProcessors(new DefaultConstructorProcessor())
+                .withOptions("-A" + ProcessorOptions.SUBTYPE_INDEX)
+                .compile(Arrays.stream(types)
+                        .map(type -> JavaFileObjects.forResource("test/subtypes/" + type + ".java"))
+                        .toArray(JavaFileObject[]::new));
+        CompilationSubject.assertThat(compilation)
+            .succeeded();
+        return compilation;
+    }
+
+    private static SubtypeIndex read(Compilation compilation) throws IOException {
+        return SubtypeIndex.read(open(compilation));
+    }
+
+    private static InputStream open(Compilation compilation) throws IOException {
+        return compilation.generatedFile(StandardLocation.CLASS_OUTPUT, SubtypeIndexWriter.LOCATION).get()
+                .openInputStream();
+    }
+
+}
@@ -0,0 +1,87 @@
+package se.motility.inheritables.processor;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.CompilationSubject;
+import com.google.testing.compile.Compiler;
+import com.google.testing.compile.JavaFileObjects;
+
+/**
+ * Tests covering the include and exclude patterns, both matched on their own and as
+ * used by the processor.
+ *
+ * @author M. Tegling
+ *
+ */
+public class TypeNameFilterTest {
+
+    @Test
+    public void patternsMatchNestedNames() {
+        TypeNameFilter filter = TypeNameFilter.of(null, "com.example.proto, com.example.Generated*");
+        assertTrue(filter.excludes("com.example.proto.Message"));
+        assertTrue(filter.excludes("com.example.proto.Message.Builder"));
+        assertTrue(filter.excludes("com.example.GeneratedMessage"));
+        assertFalse(filter.excludes("com.example.protocol.Handler"));
+        assertFalse(filter.excludes("com.example.Message"));
+    }
+
+    @Test
+    public void longestPatternDecides() {
+        TypeNameFilter filter = TypeNameFilter.of("com.example.api", "com.example");
+        assertTrue(filter.excludes("com.example.Message"));
+        assertFalse(filter.excludes("com.example.api.Message"));
+        assertTrue(filter.excludes("com.example.apis.Message"));
+        // Types matched by no pattern are excluded given include patterns
+        assertTrue(filter.excludes("org.example.Message"));
+        assertTrue(TypeNameFilter.of("com.example.Message", "com.example.Message").excludes("com.example.Message"));
+    }
+
+    @Test
+    public void noFilterWithoutPatterns() {
+        assertNull(TypeNameFilter.of(null, null));
+        assertNull(TypeNameFilter.of(" ", " , "));
+    }
+
+    @Test
+    public void excludedClassesNotChecked() {
+        Compilation compilation = compile("-A" + ProcessorOptions.EXCLUDE + "=test.inheritance.Incorrect*");
+        CompilationSubject.assertThat(compilation)
+            .succeeded();
+    }
+
+    @Test
+    public void excludedSupertypesNotTraversed() {
+        Compilation compilation = compile("-A" + ProcessorOptions.EXCLUDE
+                + "=se.motility.inheritables.processor.types.InterfaceExtendingAnnotatedInterface",
+                "-A" + ProcessorOptions.STATS);
+        CompilationSubject.assertThat(compilation)
+            .hadErrorContaining("IncorrectAnnotationInheritingClass1");
+        CompilationSubject.assertThat(compilation)
+            .hadErrorCount(1);
+        CompilationSubject.assertThat(compilation)
+            .hadNoteContaining("1 types excluded");
+    }
+
+    @Test
+    public void typesNotIncludedExcluded() {
+        CompilationSubject.assertThat(compile("-A" + ProcessorOptions.INCLUDE + "=test.inheritance"))
+            .succeeded();
+        CompilationSubject.assertThat(compile("-A" + ProcessorOptions.INCLUDE
+                + "=test.inheritance,se.motility.inheritables.processor.types"))
+            .hadErrorCount(2);
+    }
+
+    private static Compilation compile(String... options) {
+        return Compiler.javac()
+                .withProcessors(new DefaultConstructorProcessor())
+                .withOptions((Object[]) options)
+                .compile(JavaFileObjects.forResource("test/inheritance/IncorrectAnnotationInheritingClass1.java"),
+                        JavaFileObjects.forResource("test/inheritance/IncorrectAnnotationInheritingClass2.java"));
+    }
+
+}
@@ -0,0 +1,9 @@
+package se.motility.inheritables.processor.types;
+
+import se.motility.inheritables.annotations.RequireDefaultConstructor;
+
+@RequireDefaultConstructor
+@RequireFinalClass
+public interface MultiAnnotatedInterface {
+
+}
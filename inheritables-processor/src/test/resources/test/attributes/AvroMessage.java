@@ -0,0 +1,4 @@
+package test.attributes;
+
+@Serialization(format = "avro")
+public interface AvroMessage {}
@@ -0,0 +1,3 @@
+package test.attributes;
+
+public class AvroRecord extends AvroBase implements AvroMessage {}
@@ -0,0 +1,30 @@
+package test.attributes;
+
+public class Messages {
+
+    @Serialization(format = "avro")
+    interface AvroMessage {}
+
+    @Serialization(version = 2)
+    interface Versioned {}
+
+    @Serialization
+    interface Plain {}
+
+    @Serialization(format = "xml")
+    static class XmlBase {}
+
+    static class Diamond implements Versioned, AvroMessage {}
+
+    static class ReversedDiamond implements AvroMessage, Versioned {}
+
+    static class XmlSub extends XmlBase implements AvroMessage {}
+
+    @Serialization(format = "proto")
+    static class Direct extends XmlBase implements Versioned {}
+
+    static class Defaults implements Plain {}
+
+    static class Deep extends XmlSub {}
+
+}
@@ -0,0 +1,16 @@
+package test.attributes;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface Serialization {
+
+    String format() default "json";
+
+    int version() default 1;
+
+}
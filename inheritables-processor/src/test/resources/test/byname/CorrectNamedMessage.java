@@ -0,0 +1,5 @@
+package test.byname;
+
+public class CorrectNamedMessage implements NamedMessage {
+
+}
@@ -0,0 +1,7 @@
+package test.byname;
+
+public class IncorrectNamedMessage implements NamedMessage {
+
+    public IncorrectNamedMessage(Object arg) {}
+
+}
@@ -0,0 +1,6 @@
+package test.byname;
+
+@RequireNoArgs
+public interface NamedMessage {
+
+}
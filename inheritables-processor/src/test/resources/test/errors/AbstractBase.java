@@ -0,0 +1,7 @@
+package test.errors;
+
+public abstract class AbstractBase implements Message {
+
+    protected AbstractBase() {}
+
+}
@@ -0,0 +1,7 @@
+package test.errors;
+
+public class Foo extends AbstractBase {
+
+    public Foo(int value) {}
+
+}
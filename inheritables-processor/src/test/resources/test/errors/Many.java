@@ -0,0 +1,25 @@
+package test.errors;
+
+public class Many {
+
+    static class First implements Message {
+        First(int value) {}
+    }
+
+    static class Second implements Message {
+        Second(int value) {}
+    }
+
+    static class Third implements Message {
+        Third(int value) {}
+    }
+
+    static class Fourth implements Message {
+        Fourth(int value) {}
+    }
+
+    static class Fifth implements Message {
+        Fifth(int value) {}
+    }
+
+}
@@ -0,0 +1,14 @@
+package test.errors;
+
+import se.motility.inheritables.processor.types.RequireFinalClass;
+
+public class Mixed {
+
+    @RequireFinalClass
+    interface Sealed {}
+
+    static class Both implements Message, Sealed {
+        Both(int value) {}
+    }
+
+}
@@ -0,0 +1,5 @@
+package test.incremental;
+
+public abstract class AbstractMessage implements Message {
+
+}
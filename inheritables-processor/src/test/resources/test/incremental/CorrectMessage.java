@@ -0,0 +1,9 @@
+package test.incremental;
+
+public class CorrectMessage extends AbstractMessage {
+
+    private CorrectMessage() {}
+
+    public CorrectMessage(Object arg) {}
+
+}
@@ -0,0 +1,7 @@
+package test.incremental;
+
+public class IncorrectMessage extends AbstractMessage {
+
+    public IncorrectMessage(Object arg) {}
+
+}
@@ -0,0 +1,8 @@
+package test.incremental;
+
+import se.motility.inheritables.annotations.RequireDefaultConstructor;
+
+@RequireDefaultConstructor
+public interface Message {
+
+}
@@ -0,0 +1,10 @@
+package test.inheritance;
+
+import se.motility.inheritables.processor.types.AnnotatedInterface;
+import se.motility.inheritables.processor.types.NonAnnotatedInterface;
+
+public class IncorrectAnnotationInheritingClass4 implements NonAnnotatedInterface, AnnotatedInterface {
+
+    public IncorrectAnnotationInheritingClass4(Object arg){}
+
+}
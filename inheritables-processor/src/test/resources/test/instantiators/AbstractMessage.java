@@ -0,0 +1,5 @@
+package test.instantiators;
+
+public abstract class AbstractMessage implements Message {
+
+}
@@ -0,0 +1,8 @@
+package test.instantiators;
+
+import se.motility.inheritables.annotations.RequireDefaultConstructor;
+
+@RequireDefaultConstructor
+public interface Message {
+
+}
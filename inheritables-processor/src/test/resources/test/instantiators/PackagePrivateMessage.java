@@ -0,0 +1,7 @@
+package test.instantiators;
+
+class PackagePrivateMessage implements Message {
+
+    PackagePrivateMessage() {}
+
+}
@@ -0,0 +1,7 @@
+package test.instantiators;
+
+public class PrivateConstructorMessage implements Message {
+
+    private PrivateConstructorMessage() {}
+
+}
@@ -0,0 +1,13 @@
+package test.instantiators;
+
+public class PublicMessage implements Message {
+
+    public static class NestedMessage implements Message {
+
+    }
+
+    public class InnerMessage implements Message {
+
+    }
+
+}
@@ -0,0 +1,17 @@
+package test.instantiators;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import se.motility.inheritables.runtime.Recyclable;
+
+public class RecyclableQuote implements Message, Recyclable {
+
+    private final List<String> venues = new ArrayList<>();
+
+    @Override
+    public void reset() {
+        venues.clear();
+    }
+
+}
@@ -0,0 +1,14 @@
+package test.instantiators;
+
+import java.util.ArrayList;
+
+public class SerializableMessage extends ArrayList<String> implements Message, Comparable<SerializableMessage> {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public int compareTo(SerializableMessage other) {
+        return Integer.compare(size(), other.size());
+    }
+
+}
@@ -0,0 +1,21 @@
+package test.instantiators;
+
+import java.io.IOException;
+
+public class ThrowingConstructorMessage implements Message {
+
+    public ThrowingConstructorMessage() throws Exception {}
+
+    public static class CheckedMessage implements Message {
+
+        public CheckedMessage() throws IOException {}
+
+    }
+
+    public static class UncheckedMessage implements Message {
+
+        public UncheckedMessage() throws IllegalStateException, AssertionError {}
+
+    }
+
+}
@@ -0,0 +1,13 @@
+package test.instantiators;
+
+public class Trade extends RecyclableQuote {
+
+    public int quantity;
+
+    @Override
+    public void reset() {
+        super.reset();
+        quantity = 0;
+    }
+
+}
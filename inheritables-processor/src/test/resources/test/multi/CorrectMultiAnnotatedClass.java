@@ -0,0 +1,11 @@
+package test.multi;
+
+import se.motility.inheritables.processor.types.MultiAnnotatedInterface;
+
+public final class CorrectMultiAnnotatedClass implements MultiAnnotatedInterface {
+
+    private CorrectMultiAnnotatedClass() {}
+
+    public CorrectMultiAnnotatedClass(Object arg) {}
+
+}
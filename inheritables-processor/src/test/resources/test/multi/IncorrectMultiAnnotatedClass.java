@@ -0,0 +1,9 @@
+package test.multi;
+
+import se.motility.inheritables.processor.types.MultiAnnotatedInterface;
+
+public class IncorrectMultiAnnotatedClass implements MultiAnnotatedInterface {
+
+    public IncorrectMultiAnnotatedClass(Object arg) {}
+
+}
@@ -0,0 +1,7 @@
+package test.multi;
+
+import se.motility.inheritables.processor.types.MultiAnnotatedInterface;
+
+public class NonFinalMultiAnnotatedClass implements MultiAnnotatedInterface {
+
+}
@@ -0,0 +1,45 @@
+package test.nested;
+
+import se.motility.inheritables.processor.types.AnnotatedInterface;
+
+public class Protocol {
+
+    public Protocol(Object arg) {}
+
+    public static class CorrectRequest implements AnnotatedInterface {
+
+    }
+
+    public static class IncorrectRequest implements AnnotatedInterface {
+
+        public IncorrectRequest(Object arg) {}
+
+    }
+
+    public static class Responses {
+
+        public static class IncorrectResponse extends CorrectRequest {
+
+            public IncorrectResponse(Object arg) {}
+
+        }
+
+    }
+
+    public interface Event extends AnnotatedInterface {
+
+        class IncorrectEvent implements Event {
+
+            private IncorrectEvent(Object arg) {}
+
+        }
+
+    }
+
+    public class IncorrectInner implements AnnotatedInterface {
+
+        public IncorrectInner(Object arg) {}
+
+    }
+
+}
@@ -0,0 +1,10 @@
+package test.plugin;
+
+import se.motility.inheritables.annotations.RequireDefaultConstructor;
+
+@RequireDefaultConstructor
+public abstract class Message {
+
+    protected Message(String id) {}
+
+}
@@ -0,0 +1,17 @@
+package test.plugin;
+
+public class Reply extends Message {
+
+    public Reply(String id) {
+        super(id);
+    }
+
+    public static class Ack extends Reply {
+
+        public Ack() {
+            super("ack");
+        }
+
+    }
+
+}
@@ -0,0 +1,9 @@
+package test.rounds;
+
+public class GeneratedBaseSubclass extends test.generated.GeneratedBase {
+
+    public GeneratedBaseSubclass() {
+        super(null);
+    }
+
+}
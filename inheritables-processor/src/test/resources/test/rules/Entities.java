@@ -0,0 +1,31 @@
+package test.rules;
+
+import java.io.Serializable;
+
+public class Entities {
+
+    @Entity
+    interface Persistent extends Serializable {}
+
+    static class Correct implements Persistent {
+        private static final long serialVersionUID = 1L;
+        private String name;
+
+        static class Nested {}
+    }
+
+    static class AllWrong implements Persistent {
+        private final String name;
+
+        AllWrong(String name) {
+            this.name = name;
+        }
+
+        class Inner {}
+    }
+
+    static class MissingVersion implements Persistent {
+        private String name;
+    }
+
+}
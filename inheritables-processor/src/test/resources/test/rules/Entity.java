@@ -0,0 +1,9 @@
+package test.rules;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+@Retention(RetentionPolicy.CLASS)
+public @interface Entity {
+
+}
@@ -0,0 +1,9 @@
+package test.subtypes;
+
+public class Created implements Message, Event {
+
+    public static class Replayed extends Created {
+
+    }
+
+}
@@ -0,0 +1,5 @@
+package test.subtypes;
+
+public interface Event extends Entity {
+
+}
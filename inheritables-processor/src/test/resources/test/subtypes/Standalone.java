@@ -0,0 +1,9 @@
+package test.subtypes;
+
+public class Standalone implements Runnable {
+
+    @Override
+    public void run() {
+    }
+
+}
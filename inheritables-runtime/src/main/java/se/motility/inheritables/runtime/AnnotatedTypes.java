@@ -0,0 +1,182 @@
+package se.motility.inheritables.runtime;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Annotation;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Look-up of the classes carrying an inheritable annotation, directly or via extended inheritance,
+ * without scanning the class path.
+ * <p>
+ * The classes are taken from the indexes generated at compile-time by processors given the option
+ * <code>-Ainheritables.typeIndex</code>. The indexes of all modules visible to a class loader are
+ * merged on first use of each class loader and annotation, into a hash of every indexed supertype
+ * to its annotated subtypes. Subsequent look-ups are plain hash look-ups.
+ * <p>
+ * Only classes compiled with the option are found. Annotated interfaces are not listed
+ * themselves, but serve as supertypes in {@link #subtypesOf(Class, Class, ClassLoader)}. Supertypes
+ * in <code>java.*</code> packages are not indexed, and have no subtypes here.
+ * Annotations are identified by their canonical name.
+ *
+ * @author M Tegling
+ *
+ */
+public final class AnnotatedTypes {
+
+    static final String LOCATION = "META-INF/inheritables/types/";
+    static final String SUFFIX = ".idx";
+
+    // Merged indexes per class loader and annotation, loaded on first use. The indexes hold type
+    // names only, never reaching back to their class loader.
+    private static final Map<ClassLoader, Map<String, Index>> INDEXES = new WeakHashMap<>();
+
+    /**
+     * @param annotation the inheritable annotation
+     * @param classLoader the class loader to find the indexes and load the types with
+     * @return all indexed classes carrying the annotation
+     * @throws IllegalStateException if an indexed type cannot be loaded
+     */
+    public static List<Class<?>> annotatedWith(Class<? extends Annotation> annotation, ClassLoader classLoader) {
+        return load(typeNames(annotation.getCanonicalName(), classLoader), classLoader, Object.class);
+    }
+
+    /**
+     * Finds the subtypes of a type carrying an inheritable annotation, e.g. all implementations
+     * of an annotated interface. The type itself is included if it is an annotated class.
+     * @param type the supertype
+     * @param annotation the inheritable annotation
+     * @param classLoader the class loader to find the indexes and load the types with
+     * @return all indexed classes carrying the annotation and assignable to the type
+     * @throws IllegalStateException if an indexed type cannot be loaded
+     */
+    public static <T> List<Class<? extends T>> subtypesOf(Class<T> type, Class<? extends Annotation> annotation,
+            ClassLoader classLoader) {
+        return load(subtypeNames(type.getName(), annotation.getCanonicalName(), classLoader), classLoader, type);
+    }
+
+    /**
+     * Finds the subtypes of a type carrying an inheritable annotation, using the class loader
+     * of the type.
+     * @see #subtypesOf(Class, Class, ClassLoader)
+     */
+    public static <T> List<Class<? extends T>> subtypesOf(Class<T> type, Class<? extends Annotation> annotation) {
+        return subtypesOf(type, annotation, type.getClassLoader());
+    }
+
+    /**
+     * @param annotationName the canonical name of the inheritable annotation
+     * @param classLoader the class loader to find the indexes with
+     * @return the binary names of all indexed classes carrying the annotation
+     */
+    public static Set<String> typeNames(String annotationName, ClassLoader classLoader) {
+        return indexOf(annotationName, classLoader).types;
+    }
+
+    /**
+     * @param typeName the binary name of the supertype
+     * @param annotationName the canonical name of the inheritable annotation
+     * @param classLoader the class loader to find the indexes with
+     * @return the binary names of all indexed classes carrying the annotation and having the given
+     * type as supertype (or being the given type)
+     */
+    public static Set<String> subtypeNames(String typeName, String annotationName, ClassLoader classLoader) {
+        Set<String> subtypes = indexOf(annotationName, classLoader).subtypes.get(typeName);
+        return subtypes != null ? subtypes : Collections.<String>emptySet();
+    }
+
+    private static Index indexOf(String annotationName, ClassLoader classLoader) {
+        ClassLoader loader = classLoader != null ? classLoader : ClassLoader.getSystemClassLoader();
+        synchronized (INDEXES) {
+            Map<String, Index> indexes = INDEXES.computeIfAbsent(loader, l -> new HashMap<>());
+            Index index = indexes.get(annotationName);
+            if (index == null) {
+                index = Index.read(loader, LOCATION + annotationName + SUFFIX);
+                indexes.put(annotationName, index);
+            }
+            return index;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<Class<? extends T>> load(Set<String> names, ClassLoader classLoader, Class<T> type) {
+        List<Class<? extends T>> types = new ArrayList<>(names.size());
+        for (String name : names) {
+            try {
+                types.add((Class<? extends T>) Class.forName(name, false, classLoader));
+            } catch (ClassNotFoundException | LinkageError e) {
+                throw new IllegalStateException("Could not load indexed type " + name, e);
+            }
+        }
+        return types;
+    }
+
+    private static final class Index {
+
+        private final Set<String> types;
+        private final Map<String, Set<String>> subtypes;
+
+        private Index(Set<String> types, Map<String, Set<String>> subtypes) {
+            this.types = types;
+            this.subtypes = subtypes;
+        }
+
+        static Index read(ClassLoader loader, String path) {
+            Set<String> types = new LinkedHashSet<>();
+            Map<String, Set<String>> subtypes = new HashMap<>();
+            try {
+                Enumeration<URL> files = loader.getResources(path);
+                while (files.hasMoreElements()) {
+                    read(files.nextElement(), types, subtypes);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read " + path, e);
+            }
+            for (Map.Entry<String, Set<String>> entry : subtypes.entrySet()) {
+                entry.setValue(Collections.unmodifiableSet(entry.getValue()));
+            }
+            return new Index(Collections.unmodifiableSet(types), subtypes);
+        }
+
+        private static void read(URL file, Set<String> types, Map<String, Set<String>> subtypes) throws IOException {
+            URLConnection connection = file.openConnection();
+            // Do not keep jar files open through the JarURLConnection cache
+            connection.setUseCaches(false);
+            try (InputStream in = connection.getInputStream();
+                    BufferedReader lines = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = lines.readLine()) != null) {
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    String[] names = line.split(" ");
+                    String type = names[0];
+                    types.add(type);
+                    for (String supertype : names) {
+                        subtypes.computeIfAbsent(supertype, s -> new LinkedHashSet<>()).add(type);
+                    }
+                }
+            }
+        }
+
+    }
+
+    private AnnotatedTypes() {
+        throw new UnsupportedOperationException("Utility class: Do not instantiate");
+    }
+
+}
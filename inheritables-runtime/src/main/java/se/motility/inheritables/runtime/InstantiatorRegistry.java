@@ -0,0 +1,24 @@
+package se.motility.inheritables.runtime;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Registry of instantiators, i.e. direct calls to the default constructors of types checked
+ * at compile-time. Implementations are generated by the <code>DefaultConstructorProcessor</code>
+ * (using the processor option <code>-Ainheritables.instantiators=&lt;class name&gt;</code>)
+ * and discovered through {@link java.util.ServiceLoader}.
+ * 
+ * @author M Tegling
+ *
+ */
+public interface InstantiatorRegistry {
+
+    /**
+     * Registers the instantiators of this registry.
+     * @param instantiators map from binary class name (as given by {@link Class#getName()})
+     * to instantiator, to which the instantiators of this registry are added
+     */
+    void registerInstantiators(Map<String, Supplier<?>> instantiators);
+
+}
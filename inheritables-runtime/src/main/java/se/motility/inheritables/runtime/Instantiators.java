@@ -0,0 +1,126 @@
+package se.motility.inheritables.runtime;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.WeakHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Look-up of instantiators for types having a default constructor, allowing e.g.
+ * deserializers to create instances without reflection.
+ * <p>
+ * Instantiators are taken from the {@link InstantiatorRegistry InstantiatorRegistries}
+ * generated at compile-time. Types not covered by any registry (such as types having a
+ * private default constructor) get an instantiator calling the default constructor
+ * through reflection. Instantiators are cached per type, making repeated look-ups cheap.
+ * 
+ * @author M Tegling
+ *
+ */
+public final class Instantiators {
+
+    // Registrations per class loader, loaded on first use of each class loader. The registered
+    // instantiators reach back to their class loader, so the registrations are weakly referenced
+    // here and kept by the types looked up, letting discarded class loaders be collected.
+    private static final Map<ClassLoader, WeakReference<Registrations>> REGISTRIES = new WeakHashMap<>();
+
+    private static final ClassValue<Registrations> REGISTRATIONS = new ClassValue<Registrations>() {
+        @Override
+        protected Registrations computeValue(Class<?> type) {
+            return registrationsOf(type.getClassLoader());
+        }
+    };
+
+    private static final ClassValue<Supplier<?>> INSTANTIATORS = new ClassValue<Supplier<?>>() {
+        @Override
+        protected Supplier<?> computeValue(Class<?> type) {
+            Supplier<?> registered = REGISTRATIONS.get(type).instantiators.get(type.getName());
+            return registered != null ? registered : reflectiveInstantiator(type);
+        }
+    };
+
+    /**
+     * @param type the type to instantiate
+     * @return instantiator calling the default constructor of the type
+     * @throws IllegalArgumentException if the type has no default constructor
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Supplier<T> forType(Class<T> type) {
+        return (Supplier<T>) INSTANTIATORS.get(type);
+    }
+
+    /**
+     * Convenience method for creating a single instance.
+     * @param type the type to instantiate
+     * @return a new instance of the type, created using its default constructor
+     * @throws IllegalArgumentException if the type has no default constructor
+     */
+    public static <T> T newInstance(Class<T> type) {
+        return forType(type).get();
+    }
+
+    /**
+     * @param type the type
+     * @return <code>true</code> if the instantiator of the type was generated at compile-time;
+     * <code>false</code> if it uses reflection
+     */
+    public static boolean isRegistered(Class<?> type) {
+        return REGISTRATIONS.get(type).instantiators.containsKey(type.getName());
+    }
+
+    private static Registrations registrationsOf(ClassLoader classLoader) {
+        ClassLoader loader = classLoader != null ? classLoader : ClassLoader.getSystemClassLoader();
+        synchronized (REGISTRIES) {
+            WeakReference<Registrations> reference = REGISTRIES.get(loader);
+            Registrations registrations = reference != null ? reference.get() : null;
+            if (registrations == null) {
+                Map<String, Supplier<?>> instantiators = new HashMap<>();
+                for (InstantiatorRegistry registry : ServiceLoader.load(InstantiatorRegistry.class, loader)) {
+                    registry.registerInstantiators(instantiators);
+                }
+                registrations = new Registrations(Collections.unmodifiableMap(instantiators));
+                REGISTRIES.put(loader, new WeakReference<>(registrations));
+            }
+            return registrations;
+        }
+    }
+
+    private static <T> Supplier<T> reflectiveInstantiator(Class<T> type) {
+        Constructor<T> constructor;
+        try {
+            constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+        } catch (NoSuchMethodException | RuntimeException e) {
+            throw new IllegalArgumentException("No accessible default constructor in " + type.getName(), e);
+        }
+        return () -> {
+            try {
+                return constructor.newInstance();
+            } catch (InvocationTargetException e) {
+                throw new IllegalStateException("Could not instantiate " + type.getName(), e.getCause());
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Could not instantiate " + type.getName(), e);
+            }
+        };
+    }
+
+    private static final class Registrations {
+
+        private final Map<String, Supplier<?>> instantiators;
+
+        Registrations(Map<String, Supplier<?>> instantiators) {
+            this.instantiators = instantiators;
+        }
+
+    }
+
+    private Instantiators() {
+        throw new UnsupportedOperationException("Utility class: Do not instantiate");
+    }
+
+}
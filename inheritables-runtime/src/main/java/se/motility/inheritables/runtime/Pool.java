@@ -0,0 +1,110 @@
+package se.motility.inheritables.runtime;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Lock-free pool of reusable instances of a type, e.g. messages created by a deserializer in
+ * the hot path. Instances are {@link #acquire() acquired} from the pool, or created when none
+ * is pooled, and {@link #release(Object) released} to it once no longer used, having their
+ * state reset.
+ * <p>
+ * The instances are held in a fixed number of slots, taken and filled by compare-and-set.
+ * Each thread starts looking at a slot of its own, spreading the threads over the slots (striping),
+ * and looks at {@value #PROBES} slots at most. An acquire finding no instance creates one, and a
+ * release finding no free slot leaves the instance to the garbage collector, so the pool never
+ * blocks nor grows. Instances may be released by other threads than the ones acquiring them.
+ * <p>
+ * Pools of the types checked by the <code>DefaultConstructorProcessor</code> are looked up with
+ * {@link Pools#forType(Class)}.
+ *
+ * @author M Tegling
+ *
+ */
+public final class Pool<T> {
+
+    /** Default number of slots of a pool */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    /** Maximum number of slots looked at by one acquire or release */
+    static final int PROBES = 8;
+
+    private final Supplier<? extends T> instantiator;
+    private final Consumer<? super T> resetHook;
+    // Null if instances are not to be reused
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final int probes;
+
+    /**
+     * @param instantiator creates new instances
+     * @param resetHook resets the state of a released instance, <code>null</code> if instances
+     * cannot be reset, in which case they are never reused
+     * @param capacity the maximum number of pooled instances, rounded up to a power of two
+     * @throws IllegalArgumentException if the capacity is not positive, or above 2<sup>30</sup>
+     */
+    public Pool(Supplier<? extends T> instantiator, Consumer<? super T> resetHook, int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        int slotCount = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.instantiator = instantiator;
+        this.resetHook = resetHook;
+        this.slots = resetHook != null ? new AtomicReferenceArray<>(slotCount) : null;
+        this.mask = slotCount - 1;
+        this.probes = Math.min(PROBES, slotCount);
+    }
+
+    /**
+     * @return a pooled instance, or a new instance if none is pooled
+     */
+    public T acquire() {
+        if (slots != null) {
+            int start = stripe();
+            for (int i = 0; i < probes; i++) {
+                int slot = (start + i) & mask;
+                T instance = slots.get(slot);
+                if (instance != null && slots.compareAndSet(slot, instance, null)) {
+                    return instance;
+                }
+            }
+        }
+        return instantiator.get();
+    }
+
+    /**
+     * Resets an instance and returns it to the pool. The instance must no longer be used by the
+     * caller, and must not be released twice.
+     * @param instance an instance acquired from this pool
+     */
+    public void release(T instance) {
+        if (slots == null || instance == null) {
+            return;
+        }
+        resetHook.accept(instance);
+        int start = stripe();
+        for (int i = 0; i < probes; i++) {
+            int slot = (start + i) & mask;
+            if (slots.get(slot) == null && slots.compareAndSet(slot, null, instance)) {
+                return;
+            }
+        }
+        // The pool is full around this stripe, leaving the instance to the garbage collector
+    }
+
+    /**
+     * @return <code>true</code> if released instances are reused
+     */
+    public boolean isReusing() {
+        return slots != null;
+    }
+
+    private int stripe() {
+        // Spreads consecutive thread ids over the slots
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+}
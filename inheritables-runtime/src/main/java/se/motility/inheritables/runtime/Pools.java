@@ -0,0 +1,55 @@
+package se.motility.inheritables.runtime;
+
+import java.util.function.Consumer;
+
+/**
+ * Look-up of {@link Pool Pools} for types having a default constructor, allowing e.g.
+ * deserializers to reuse instances rather than allocating new ones.
+ * <p>
+ * The pools create instances using {@link Instantiators}, and reset released instances of types
+ * implementing {@link Recyclable} by calling {@link Recyclable#reset()}. Only such types know the
+ * state of a fresh instance, so other types get a pool creating a new instance on each acquire,
+ * and never reusing released instances. Pools are created once per type, with
+ * {@value Pool#DEFAULT_CAPACITY} slots.
+ *
+ * @author M Tegling
+ *
+ */
+public final class Pools {
+
+    private static final ClassValue<Pool<?>> POOLS = new ClassValue<Pool<?>>() {
+        @Override
+        protected Pool<?> computeValue(Class<?> type) {
+            return newPool(type);
+        }
+    };
+
+    /**
+     * @param type the type to pool
+     * @return the pool of the type
+     * @throws IllegalArgumentException if the type has no default constructor
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Pool<T> forType(Class<T> type) {
+        return (Pool<T>) POOLS.get(type);
+    }
+
+    /**
+     * @param type the type
+     * @return <code>true</code> if the type implements {@link Recyclable}, making its pool reuse
+     * released instances
+     */
+    public static boolean isPooled(Class<?> type) {
+        return Recyclable.class.isAssignableFrom(type);
+    }
+
+    private static <T> Pool<T> newPool(Class<T> type) {
+        Consumer<? super T> resetHook = isPooled(type) ? instance -> ((Recyclable) instance).reset() : null;
+        return new Pool<>(Instantiators.forType(type), resetHook, Pool.DEFAULT_CAPACITY);
+    }
+
+    private Pools() {
+        throw new UnsupportedOperationException("Utility class: Do not instantiate");
+    }
+
+}
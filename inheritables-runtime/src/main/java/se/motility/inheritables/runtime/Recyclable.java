@@ -0,0 +1,19 @@
+package se.motility.inheritables.runtime;
+
+/**
+ * Implemented by types resetting their own state when released to a {@link Pool}. The pools
+ * looked up with {@link Pools#forType(Class)} only reuse instances of such types, calling
+ * {@link #reset()} on release, as only the type itself knows the state of a fresh instance
+ * (such as collections created by field initializers, to be cleared rather than discarded).
+ *
+ * @author M Tegling
+ *
+ */
+public interface Recyclable {
+
+    /**
+     * Resets the state of this instance to that of a new instance.
+     */
+    void reset();
+
+}
@@ -0,0 +1,257 @@
+package se.motility.inheritables.runtime;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Reverse index of the type hierarchy, from each supertype to its direct subtypes, for finding all
+ * types affected by a change to a supertype. When an interface gains or loses an inheritable
+ * annotation, only the types {@link #affectedBy(String) affected by} it need to be checked again.
+ * <p>
+ * The edges are taken from the indexes generated at compile-time by processors given the option
+ * <code>-Ainheritables.subtypeIndex</code>, located at <code>META-INF/inheritables/subtypes.idx</code>.
+ * The indexes of several modules are merged into one table of names and one array of subtypes per
+ * supertype, so that the transitive subtypes of a type are found in time proportional to their number.
+ * <p>
+ * Only the supertypes of classes and interfaces compiled with the option are known. Types are
+ * identified by their binary names, and <code>java.lang.Object</code> is not indexed.
+ * Instances are immutable and thread-safe.
+ *
+ * @author M Tegling
+ *
+ */
+public final class SubtypeIndex {
+
+    static final String LOCATION = "META-INF/inheritables/subtypes.idx";
+    static final int MAGIC = 0x49535542;
+    static final int VERSION = 1;
+
+    // Merged indexes per class loader, loaded on first use. The indexes hold type names only, never
+    // reaching back to their class loader.
+    private static final Map<ClassLoader, SubtypeIndex> INDEXES = new WeakHashMap<>();
+
+    private final String[] names;
+    private final Map<String, Integer> ids;
+    // Subtypes of type i are at subtypes[offsets[i]] until subtypes[offsets[i + 1]]
+    private final int[] offsets;
+    private final int[] subtypes;
+
+    private SubtypeIndex(String[] names, Map<String, Integer> ids, int[] offsets, int[] subtypes) {
+        this.names = names;
+        this.ids = ids;
+        this.offsets = offsets;
+        this.subtypes = subtypes;
+    }
+
+    /**
+     * @param classLoader the class loader to find the indexes with
+     * @return the merged indexes of all modules visible to the class loader, read on first use
+     * of each class loader
+     * @throws UncheckedIOException if an index cannot be read
+     */
+    public static SubtypeIndex of(ClassLoader classLoader) {
+        ClassLoader loader = classLoader != null ? classLoader : ClassLoader.getSystemClassLoader();
+        synchronized (INDEXES) {
+            SubtypeIndex index = INDEXES.get(loader);
+            if (index == null) {
+                index = read(loader);
+                INDEXES.put(loader, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Reads and merges indexes, e.g. from the class output directories of a build.
+     * @param indexes the contents of the index files, which are closed when read
+     * @return the merged indexes
+     * @throws IOException if an index cannot be read or is not a subtype index
+     */
+    public static SubtypeIndex read(InputStream... indexes) throws IOException {
+        Builder builder = new Builder();
+        for (InputStream index : indexes) {
+            try (InputStream in = index) {
+                builder.read(in);
+            }
+        }
+        return builder.build();
+    }
+
+    private static SubtypeIndex read(ClassLoader loader) {
+        Builder builder = new Builder();
+        try {
+            Enumeration<URL> files = loader.getResources(LOCATION);
+            while (files.hasMoreElements()) {
+                URLConnection connection = files.nextElement().openConnection();
+                // Do not keep jar files open through the JarURLConnection cache
+                connection.setUseCaches(false);
+                try (InputStream in = connection.getInputStream()) {
+                    builder.read(in);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + LOCATION, e);
+        }
+        return builder.build();
+    }
+
+    /**
+     * @param typeName the binary name of a type
+     * @return the binary names of the indexed types directly extending or implementing the type
+     */
+    public Set<String> directSubtypesOf(String typeName) {
+        Integer id = ids.get(typeName);
+        if (id == null) {
+            return Collections.emptySet();
+        }
+        Set<String> direct = new LinkedHashSet<>();
+        for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+            direct.add(names[subtypes[i]]);
+        }
+        return direct;
+    }
+
+    /**
+     * @param typeName the binary name of a changed type
+     * @return the binary names of all indexed types having the type as a supertype, directly or
+     * indirectly, breadth-first
+     */
+    public Set<String> affectedBy(String typeName) {
+        return affectedBy(Collections.singleton(typeName));
+    }
+
+    /**
+     * @param typeNames the binary names of changed types
+     * @return the binary names of all indexed types having any of the types as a supertype,
+     * directly or indirectly, breadth-first. The changed types are included only if they are
+     * subtypes of one another.
+     */
+    public Set<String> affectedBy(Collection<String> typeNames) {
+        Set<String> affected = new LinkedHashSet<>();
+        BitSet visited = new BitSet();
+        int[] queue = new int[16];
+        int head = 0;
+        int tail = 0;
+        for (String typeName : typeNames) {
+            Integer id = ids.get(typeName);
+            if (id != null) {
+                if (tail == queue.length) {
+                    queue = Arrays.copyOf(queue, tail * 2);
+                }
+                queue[tail++] = id;
+            }
+        }
+        while (head < tail) {
+            int id = queue[head++];
+            for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+                int subtype = subtypes[i];
+                if (!visited.get(subtype)) {
+                    visited.set(subtype);
+                    affected.add(names[subtype]);
+                    if (tail == queue.length) {
+                        queue = Arrays.copyOf(queue, tail * 2);
+                    }
+                    queue[tail++] = subtype;
+                }
+            }
+        }
+        return affected;
+    }
+
+    /**
+     * Merges the edges of several indexes, renumbering the types of each by a common name table.
+     */
+    private static final class Builder {
+
+        private final List<String> names = new ArrayList<>();
+        private final Map<String, Integer> ids = new HashMap<>();
+        private int[] supertypes = new int[256];
+        private int[] subtypes = new int[256];
+        private int edges;
+
+        void read(InputStream index) throws IOException {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(index));
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a subtype index");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported subtype index version " + version);
+            }
+            int types = in.readInt();
+            int[] localIds = new int[types];
+            for (int i = 0; i < types; i++) {
+                localIds[i] = idOf(in.readUTF());
+            }
+            int[] offsets = new int[types + 1];
+            for (int i = 0; i <= types; i++) {
+                offsets[i] = in.readInt();
+            }
+            for (int supertype = 0; supertype < types; supertype++) {
+                for (int i = offsets[supertype]; i < offsets[supertype + 1]; i++) {
+                    int subtype = in.readInt();
+                    if (subtype < 0 || subtype >= types) {
+                        throw new IOException("Corrupt subtype index");
+                    }
+                    add(localIds[supertype], localIds[subtype]);
+                }
+            }
+        }
+
+        SubtypeIndex build() {
+            int types = names.size();
+            int[] offsets = new int[types + 1];
+            for (int i = 0; i < edges; i++) {
+                offsets[supertypes[i] + 1]++;
+            }
+            for (int i = 0; i < types; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            int[] sorted = new int[edges];
+            int[] positions = Arrays.copyOf(offsets, types);
+            for (int i = 0; i < edges; i++) {
+                sorted[positions[supertypes[i]]++] = subtypes[i];
+            }
+            return new SubtypeIndex(names.toArray(new String[0]), ids, offsets, sorted);
+        }
+
+        private int idOf(String name) {
+            Integer id = ids.get(name);
+            if (id == null) {
+                id = names.size();
+                names.add(name);
+                ids.put(name, id);
+            }
+            return id;
+        }
+
+        private void add(int supertype, int subtype) {
+            if (edges == subtypes.length) {
+                supertypes = Arrays.copyOf(supertypes, edges * 2);
+                subtypes = Arrays.copyOf(subtypes, edges * 2);
+            }
+            supertypes[edges] = supertype;
+            subtypes[edges] = subtype;
+            edges++;
+        }
+
+    }
+
+}
@@ -0,0 +1,55 @@
+package se.motility.inheritables.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+/**
+ * Tests covering the look-up of annotated types by {@link AnnotatedTypes}, using the index in
+ * <code>META-INF/inheritables/types/</code> as generated by the annotation processor.
+ * 
+ * @author M. Tegling
+ *
+ */
+public class AnnotatedTypesTest {
+
+    @Retention(RetentionPolicy.CLASS)
+    public @interface Inheritable {}
+
+    @Inheritable
+    public interface Message {}
+
+    public interface Event extends Message {}
+
+    public static class Command implements Message {}
+
+    public static class Created implements Event {}
+
+    public static class Unindexed {}
+
+    @Test
+    public void allAnnotatedClassesFound() {
+        assertEquals(new HashSet<>(Arrays.asList(Command.class, Created.class)),
+                new HashSet<>(AnnotatedTypes.annotatedWith(Inheritable.class, getClass().getClassLoader())));
+    }
+
+    @Test
+    public void subtypesFound() {
+        assertEquals(Arrays.asList(Created.class), AnnotatedTypes.subtypesOf(Event.class, Inheritable.class));
+        assertEquals(2, AnnotatedTypes.subtypesOf(Message.class, Inheritable.class).size());
+    }
+
+    @Test
+    public void noSubtypesOfTypeNotIndexed() {
+        assertTrue(AnnotatedTypes.subtypesOf(Unindexed.class, Inheritable.class).isEmpty());
+        assertTrue(AnnotatedTypes.subtypeNames(Message.class.getName(), "test.Missing", getClass().getClassLoader())
+                .isEmpty());
+    }
+
+}
@@ -0,0 +1,104 @@
+package se.motility.inheritables.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+import se.motility.inheritables.runtime.TestRegistry.NoDefaultConstructorType;
+import se.motility.inheritables.runtime.TestRegistry.PooledType;
+import se.motility.inheritables.runtime.TestRegistry.RegisteredType;
+import se.motility.inheritables.runtime.TestRegistry.UnregisteredType;
+
+/**
+ * Tests covering the look-up of instantiators by {@link Instantiators}.
+ * 
+ * @author M. Tegling
+ *
+ */
+public class InstantiatorsTest {
+
+    @Test
+    public void registeredInstantiatorUsed() {
+        assertTrue(Instantiators.isRegistered(RegisteredType.class));
+        Supplier<RegisteredType> instantiator = Instantiators.forType(RegisteredType.class);
+        assertSame(instantiator, Instantiators.forType(RegisteredType.class));
+        RegisteredType first = instantiator.get();
+        assertNotSame(first, instantiator.get());
+    }
+
+    @Test
+    public void unregisteredTypeInstantiatedThroughReflection() {
+        assertFalse(Instantiators.isRegistered(UnregisteredType.class));
+        assertTrue(Instantiators.newInstance(UnregisteredType.class) instanceof UnregisteredType);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void failWhenMissingDefaultConstructor() {
+        Instantiators.forType(NoDefaultConstructorType.class);
+    }
+
+    @Test
+    public void discardedClassLoaderCollected() throws Exception {
+        WeakReference<ClassLoader> loader = useDiscardedLoader();
+        for (int i = 0; i < 50 && loader.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNull("Class loader still reachable", loader.get());
+    }
+
+    // Looks up the registry and indexes of a class loader defining its own copy of the test registry
+    private static WeakReference<ClassLoader> useDiscardedLoader() throws Exception {
+        URL classes = TestRegistry.class.getProtectionDomain().getCodeSource().getLocation();
+        try (URLClassLoader loader = new RegistryLoader(classes)) {
+            Class<?> type = loader.loadClass(PooledType.class.getName());
+            assertNotSame(PooledType.class, type);
+            assertTrue(Instantiators.isRegistered(type));
+            Pool<?> pool = Pools.forType(type);
+            assertTrue(pool.isReusing());
+            assertEquals(type, pool.acquire().getClass());
+            AnnotatedTypes.typeNames("test.Unknown", loader);
+            SubtypeIndex.of(loader);
+            return new WeakReference<>(loader);
+        }
+    }
+
+    /**
+     * Class loader defining the test registry and its types itself, rather than delegating.
+     */
+    private static final class RegistryLoader extends URLClassLoader {
+
+        RegistryLoader(URL classes) {
+            super(new URL[] {classes}, InstantiatorsTest.class.getClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.startsWith(TestRegistry.class.getName())) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> type = findLoadedClass(name);
+                if (type == null) {
+                    type = findClass(name);
+                }
+                if (resolve) {
+                    resolveClass(type);
+                }
+                return type;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,135 @@
+package se.motility.inheritables.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import se.motility.inheritables.runtime.TestRegistry.PooledType;
+import se.motility.inheritables.runtime.TestRegistry.RegisteredType;
+
+/**
+ * Tests covering the reuse of instances by {@link Pool} and the look-up of pools by {@link Pools}.
+ *
+ * @author M. Tegling
+ *
+ */
+public class PoolTest {
+
+    @Test
+    public void releasedInstanceResetAndReused() {
+        Pool<PooledType> pool = Pools.forType(PooledType.class);
+        assertTrue(Pools.isPooled(PooledType.class));
+        assertSame(pool, Pools.forType(PooledType.class));
+
+        PooledType instance = pool.acquire();
+        instance.value = 42;
+        pool.release(instance);
+        PooledType reused = pool.acquire();
+        assertSame(instance, reused);
+        assertEquals(0, reused.value);
+        assertNotSame(reused, pool.acquire());
+    }
+
+    @Test
+    public void instancesNotReusedUnlessRecyclable() {
+        Pool<RegisteredType> pool = Pools.forType(RegisteredType.class);
+        assertFalse(Pools.isPooled(RegisteredType.class));
+        assertFalse(pool.isReusing());
+
+        RegisteredType instance = pool.acquire();
+        pool.release(instance);
+        assertNotSame(instance, pool.acquire());
+    }
+
+    @Test
+    public void unregisteredRecyclableInstancesReused() {
+        Pool<UnregisteredRecyclable> pool = Pools.forType(UnregisteredRecyclable.class);
+        assertFalse(Instantiators.isRegistered(UnregisteredRecyclable.class));
+        assertTrue(pool.isReusing());
+
+        UnregisteredRecyclable instance = pool.acquire();
+        instance.value = 42;
+        pool.release(instance);
+        assertSame(instance, pool.acquire());
+        assertEquals(0, instance.value);
+    }
+
+    @Test
+    public void instancesBeyondCapacityDropped() {
+        AtomicInteger created = new AtomicInteger();
+        Pool<Object> pool = new Pool<>(() -> {
+            created.incrementAndGet();
+            return new Object();
+        }, instance -> {}, 2);
+        List<Object> instances = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            instances.add(pool.acquire());
+        }
+        instances.forEach(pool::release);
+        for (int i = 0; i < 4; i++) {
+            pool.acquire();
+        }
+        assertEquals(6, created.get());
+    }
+
+    @Test
+    public void instancesNeverHandedOutTwice() throws Exception {
+        Pool<PooledType> pool = new Pool<>(PooledType::new, instance -> instance.value = 0, 16);
+        Map<PooledType, Boolean> inUse = new IdentityHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int w = 0; w < 4; w++) {
+                workers.add(executor.submit(() -> {
+                    for (int i = 0; i < 20_000; i++) {
+                        PooledType instance = pool.acquire();
+                        synchronized (inUse) {
+                            if (inUse.put(instance, Boolean.TRUE) != null) {
+                                throw new AssertionError("Acquired twice: " + instance);
+                            }
+                        }
+                        synchronized (inUse) {
+                            inUse.remove(instance);
+                        }
+                        pool.release(instance);
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void failWhenCapacityNotPositive() {
+        new Pool<>(Object::new, instance -> {}, 0);
+    }
+
+    public static class UnregisteredRecyclable implements Recyclable {
+
+        int value;
+
+        @Override
+        public void reset() {
+            value = 0;
+        }
+
+    }
+
+}
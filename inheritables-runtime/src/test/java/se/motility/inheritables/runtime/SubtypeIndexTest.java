@@ -0,0 +1,75 @@
+package se.motility.inheritables.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+/**
+ * Tests covering the queries of {@link SubtypeIndex}, on indexes written here in the format of
+ * the annotation processor.
+ *
+ * @author M. Tegling
+ *
+ */
+public class SubtypeIndexTest {
+
+    @Test
+    public void diamondsAndCyclesVisitedOnce() throws IOException {
+        // A <- B, A <- C, B <- D, C <- D, D <- A
+        SubtypeIndex index = SubtypeIndex.read(index(new String[] {"A", "B", "C", "D"},
+                new int[] {0, 2, 3, 4, 5}, new int[] {1, 2, 3, 3, 0}));
+
+        assertEquals(new HashSet<>(Arrays.asList("B", "C")), index.directSubtypesOf("A"));
+        assertEquals(new HashSet<>(Arrays.asList("A", "B", "C", "D")), index.affectedBy("A"));
+        assertEquals(new HashSet<>(Arrays.asList("D", "A", "B", "C")), index.affectedBy("B"));
+    }
+
+    @Test
+    public void typesRenumberedWhenMerged() throws IOException {
+        SubtypeIndex index = SubtypeIndex.read(
+                index(new String[] {"A", "B"}, new int[] {0, 1, 1}, new int[] {1}),
+                index(new String[] {"C", "B"}, new int[] {0, 0, 1}, new int[] {0}));
+
+        assertEquals(new HashSet<>(Arrays.asList("B", "C")), index.affectedBy("A"));
+        assertTrue(index.affectedBy("C").isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void otherFilesRejected() throws IOException {
+        SubtypeIndex.read(new ByteArrayInputStream("A B\n".getBytes("UTF-8")));
+    }
+
+    @Test
+    public void emptyWithoutIndexes() {
+        SubtypeIndex index = SubtypeIndex.of(getClass().getClassLoader());
+        assertTrue(index.affectedBy(Object.class.getName()).isEmpty());
+    }
+
+    private static ByteArrayInputStream index(String[] names, int[] offsets, int[] subtypes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(SubtypeIndex.MAGIC);
+            out.writeInt(SubtypeIndex.VERSION);
+            out.writeInt(names.length);
+            for (String name : names) {
+                out.writeUTF(name);
+            }
+            for (int offset : offsets) {
+                out.writeInt(offset);
+            }
+            for (int subtype : subtypes) {
+                out.writeInt(subtype);
+            }
+        }
+        return new ByteArrayInputStream(bytes.toByteArray());
+    }
+
+}
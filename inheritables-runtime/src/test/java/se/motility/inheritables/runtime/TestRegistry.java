@@ -0,0 +1,47 @@
+package se.motility.inheritables.runtime;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Registry as generated by the annotation processor, registered in <code>META-INF/services/</code>.
+ * 
+ * @author M. Tegling
+ *
+ */
+public class TestRegistry implements InstantiatorRegistry {
+
+    public static class RegisteredType {
+
+    }
+
+    public static class PooledType implements Recyclable {
+
+        public int value;
+
+        @Override
+        public void reset() {
+            value = 0;
+        }
+
+    }
+
+    public static class UnregisteredType {
+
+        private UnregisteredType() {}
+
+    }
+
+    public static class NoDefaultConstructorType {
+
+        public NoDefaultConstructorType(Object arg) {}
+
+    }
+
+    @Override
+    public void registerInstantiators(Map<String, Supplier<?>> instantiators) {
+        instantiators.put(RegisteredType.class.getName(), RegisteredType::new);
+        instantiators.put(PooledType.class.getName(), PooledType::new);
+    }
+
+}
@@ -0,0 +1,340 @@
+package se.motility.inheritables.scanner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Checks compiled classes for the same rule as the <code>DefaultConstructorProcessor</code>:
+ * every class inheriting the annotation (via <i>extended inheritance</i>) must have a default
+ * constructor. Useful for checking third-party jars and classes compiled without the processor,
+ * which works only with annotations of <code>CLASS</code> or <code>RUNTIME</code> retention.
+ * <p>
+ * Jar files are memory-mapped and only their central directories are read sequentially; the
+ * class files are then inflated and parsed in parallel. Jars nested in jars (e.g. in Spring Boot
+ * fat jars) are scanned as well.
+ * <p>
+ * Inputs are given as jar files, directories of class files or single class files. Classes
+ * are <i>checked</i> if found in the checked inputs, while classes found on the class path are
+ * only used for resolving the supertypes of checked classes. As on the class path of the JVM,
+ * the first occurrence of a class wins. Supertypes not found at all (such as the JDK classes)
+ * are regarded as not annotated.
+ * 
+ * @author M Tegling
+ *
+ */
+public final class BytecodeScanner {
+
+    /** Binary name of the annotation checked by default, <code>RequireDefaultConstructor</code> */
+    public static final String DEFAULT_ANNOTATION = "se.motility.inheritables.annotations.RequireDefaultConstructor";
+
+    static final String ERROR_MESSAGE = "Missing default constructor. NB: This constructor can be set to 'private' access.";
+
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String JAR_SUFFIX = ".jar";
+    private static final String VERSIONS_PREFIX = "META-INF/versions/";
+
+    private final ClassFileParser parser;
+    private final int parallelism;
+
+    /**
+     * Creates a scanner checking {@link #DEFAULT_ANNOTATION} using all available processors.
+     */
+    public BytecodeScanner() {
+        this(DEFAULT_ANNOTATION, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param annotationName binary name of the inheritable annotation requiring a default constructor
+     * @param parallelism number of threads reading and parsing class files
+     */
+    public BytecodeScanner(String annotationName, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.parser = new ClassFileParser(annotationName);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @param inputs jar files, class file directories and class files to check
+     * @param classPath jar files, class file directories and class files used for resolving
+     * supertypes only
+     * @return the outcome of the scan
+     * @throws IOException if an input cannot be opened
+     */
+    public ScanResult scan(List<Path> inputs, List<Path> classPath) throws IOException {
+        List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        List<ClassFile> files = new ArrayList<>();
+        for (Path input : inputs) {
+            collect(input, true, files, errors);
+        }
+        for (Path input : classPath) {
+            collect(input, false, files, errors);
+        }
+
+        List<ParsedClass> parsed = parseAll(files, errors);
+
+        Map<String, ParsedClass> classes = new HashMap<>(parsed.size() * 2);
+        int checkedClasses = 0;
+        for (ParsedClass parsedClass : parsed) {
+            if (parsedClass.checked) {
+                checkedClasses++;
+            }
+            classes.putIfAbsent(parsedClass.info.getName(), parsedClass);
+        }
+
+        Map<String, Boolean> annotated = new HashMap<>(classes.size() * 2);
+        List<Violation> violations = new ArrayList<>();
+        for (ParsedClass parsedClass : classes.values()) {
+            ClassInfo info = parsedClass.info;
+            if (parsedClass.checked && info.isCheckable() && !info.hasDefaultConstructor()
+                    && isAnnotated(info.getName(), classes, annotated)) {
+                violations.add(new Violation(info.getName().replace('/', '.'), parsedClass.origin, ERROR_MESSAGE));
+            }
+        }
+        violations.sort(Comparator.comparing(Violation::getClassName));
+        List<String> sortedErrors = new ArrayList<>(errors);
+        Collections.sort(sortedErrors);
+        return new ScanResult(checkedClasses, violations, sortedErrors);
+    }
+
+    private List<ParsedClass> parseAll(List<ClassFile> files, List<String> errors) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            // Parallel streams run in the pool submitting them
+            return pool.submit(() -> files.parallelStream()
+                    .map(file -> parse(file, errors))
+                    .filter(parsedClass -> parsedClass != null)
+                    .collect(Collectors.toList()))
+                .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while scanning", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to scan", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private ParsedClass parse(ClassFile file, List<String> errors) {
+        try {
+            return new ParsedClass(parser.parse(file.read()), file.origin(), file.checked);
+        } catch (IOException | RuntimeException e) {
+            errors.add(file.origin() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Iterative DFS, memoizing the outcome for every visited type
+    private static boolean isAnnotated(String name, Map<String, ParsedClass> classes, Map<String, Boolean> memo) {
+        Boolean known = memo.get(name);
+        if (known != null) {
+            return known;
+        }
+        Deque<Frame> stack = new ArrayDeque<>();
+        Set<String> inProgress = new HashSet<>();
+        enter(name, classes, memo, stack, inProgress);
+        while (!stack.isEmpty()) {
+            Frame frame = stack.peek();
+            if (frame.annotated || !frame.supertypes.hasNext()) {
+                stack.pop();
+                inProgress.remove(frame.name);
+                memo.put(frame.name, frame.annotated);
+                if (frame.annotated && !stack.isEmpty()) {
+                    stack.peek().annotated = true;
+                }
+                continue;
+            }
+            String supertype = frame.supertypes.next();
+            Boolean superAnnotated = memo.get(supertype);
+            if (superAnnotated != null) {
+                frame.annotated = superAnnotated;
+            } else if (!inProgress.contains(supertype)) {
+                enter(supertype, classes, memo, stack, inProgress);
+            }
+            // else a cyclic hierarchy, only found in corrupt class files
+        }
+        return memo.get(name);
+    }
+
+    private static void enter(String name, Map<String, ParsedClass> classes, Map<String, Boolean> memo,
+            Deque<Frame> stack, Set<String> inProgress) {
+        ParsedClass parsedClass = classes.get(name);
+        if (parsedClass == null || parsedClass.info.isAnnotated()) {
+            memo.put(name, parsedClass != null);
+            if (parsedClass != null && !stack.isEmpty()) {
+                stack.peek().annotated = true;
+            }
+            return;
+        }
+        ClassInfo info = parsedClass.info;
+        List<String> supertypes = new ArrayList<>(info.getInterfaces());
+        if (info.getSuperName() != null) {
+            supertypes.add(info.getSuperName());
+        }
+        inProgress.add(name);
+        stack.push(new Frame(name, supertypes.iterator()));
+    }
+
+    private static void collect(Path input, boolean checked, List<ClassFile> files, List<String> errors)
+            throws IOException {
+        if (Files.isDirectory(input)) {
+            try (Stream<Path> paths = Files.walk(input)) {
+                paths.filter(path -> isClassFile(input.relativize(path).toString().replace('\\', '/')))
+                    .sorted()
+                    .forEach(path -> files.add(new PathClassFile(path, checked)));
+            }
+        } else if (input.toString().endsWith(CLASS_SUFFIX)) {
+            files.add(new PathClassFile(input, checked));
+        } else {
+            collect(map(input), input.toString(), checked, files, errors);
+        }
+    }
+
+    private static void collect(ByteBuffer archive, String origin, boolean checked, List<ClassFile> files,
+            List<String> errors) {
+        ZipArchive zip;
+        try {
+            zip = new ZipArchive(archive);
+        } catch (IOException | RuntimeException e) {
+            errors.add(origin + ": " + e.getMessage());
+            return;
+        }
+        for (ZipArchive.Entry entry : zip.entries()) {
+            if (isClassFile(entry.name)) {
+                files.add(new ZipClassFile(zip, entry, origin, checked));
+            } else if (entry.name.endsWith(JAR_SUFFIX)) {
+                String nestedOrigin = origin + "!/" + entry.name;
+                try {
+                    collect(zip.read(entry), nestedOrigin, checked, files, errors);
+                } catch (IOException | RuntimeException e) {
+                    errors.add(nestedOrigin + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static boolean isClassFile(String name) {
+        return name.endsWith(CLASS_SUFFIX) && !name.startsWith(VERSIONS_PREFIX)
+                && !name.endsWith("module-info.class") && !name.endsWith("package-info.class");
+    }
+
+    private static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Cannot scan " + file + ": Larger than 2 GB");
+            }
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private abstract static class ClassFile {
+
+        final boolean checked;
+
+        ClassFile(boolean checked) {
+            this.checked = checked;
+        }
+
+        abstract ByteBuffer read() throws IOException;
+
+        abstract String origin();
+
+    }
+
+    private static final class PathClassFile extends ClassFile {
+
+        private final Path path;
+
+        PathClassFile(Path path, boolean checked) {
+            super(checked);
+            this.path = path;
+        }
+
+        @Override
+        ByteBuffer read() throws IOException {
+            return ByteBuffer.wrap(Files.readAllBytes(path));
+        }
+
+        @Override
+        String origin() {
+            return path.toString();
+        }
+
+    }
+
+    private static final class ZipClassFile extends ClassFile {
+
+        private final ZipArchive zip;
+        private final ZipArchive.Entry entry;
+        private final String archiveOrigin;
+
+        ZipClassFile(ZipArchive zip, ZipArchive.Entry entry, String archiveOrigin, boolean checked) {
+            super(checked);
+            this.zip = zip;
+            this.entry = entry;
+            this.archiveOrigin = archiveOrigin;
+        }
+
+        @Override
+        ByteBuffer read() throws IOException {
+            return zip.read(entry);
+        }
+
+        @Override
+        String origin() {
+            return archiveOrigin + "!/" + entry.name;
+        }
+
+    }
+
+    private static final class Frame {
+
+        final String name;
+        final Iterator<String> supertypes;
+        boolean annotated;
+
+        Frame(String name, Iterator<String> supertypes) {
+            this.name = name;
+            this.supertypes = supertypes;
+        }
+
+    }
+
+    private static final class ParsedClass {
+
+        final ClassInfo info;
+        final String origin;
+        final boolean checked;
+
+        ParsedClass(ClassInfo info, String origin, boolean checked) {
+            this.info = info;
+            this.origin = origin;
+            this.checked = checked;
+        }
+
+    }
+
+}
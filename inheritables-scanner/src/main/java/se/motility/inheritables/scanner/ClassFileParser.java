@@ -0,0 +1,276 @@
+package se.motility.inheritables.scanner;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Minimal class file parser reading only the sections needed by the scanner: the constant
+ * pool, the class and supertype names, the constructors and the class annotations. Fields,
+ * method bodies and all other attributes are skipped without being decoded.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ * 
+ * @author M Tegling
+ *
+ */
+public final class ClassFileParser {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int ACC_STATIC = 0x0008;
+    private static final int ACC_INTERFACE = 0x0200;
+    private static final int ACC_SYNTHETIC = 0x1000;
+    private static final int ACC_ENUM = 0x4000;
+    private static final int ACC_MODULE = 0x8000;
+
+    private static final byte[] INIT = utf8("<init>");
+    private static final byte[] NO_ARGS = utf8("()V");
+    // Enum constructors take the name and ordinal of the constant as hidden arguments
+    private static final byte[] ENUM_NO_ARGS = utf8("(Ljava/lang/String;I)V");
+    private static final byte[] INVISIBLE_ANNOTATIONS = utf8("RuntimeInvisibleAnnotations");
+    private static final byte[] VISIBLE_ANNOTATIONS = utf8("RuntimeVisibleAnnotations");
+    private static final byte[] INNER_CLASSES = utf8("InnerClasses");
+
+    private final byte[] annotationDescriptor;
+
+    /**
+     * @param annotationName binary name of the annotation to look for, e.g. <code>com.example.MyAnnotation</code>
+     */
+    public ClassFileParser(String annotationName) {
+        this.annotationDescriptor = utf8('L' + annotationName.replace('.', '/') + ';');
+    }
+
+    /**
+     * Parses a class file. The position of the buffer is not modified.
+     * @param classFile the class file contents, from the current position to the limit
+     * @return the parsed class
+     * @throws IllegalArgumentException if the buffer does not hold a valid class file
+     */
+    public ClassInfo parse(ByteBuffer classFile) {
+        ByteBuffer buf = classFile.slice().order(ByteOrder.BIG_ENDIAN);
+        try {
+            return parseClass(buf);
+        } catch (RuntimeException e) {
+            // Typically BufferUnderflowException from a truncated or corrupt file
+            throw new IllegalArgumentException("Invalid class file: " + e, e);
+        }
+    }
+
+    private ClassInfo parseClass(ByteBuffer buf) {
+        if (buf.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a class file");
+        }
+        buf.position(buf.position() + 4); // minor and major version
+
+        int[] offsets = readConstantPool(buf);
+        int access = buf.getShort() & 0xFFFF;
+        String name = className(buf, offsets, buf.getShort() & 0xFFFF);
+        int superIndex = buf.getShort() & 0xFFFF;
+        String superName = superIndex == 0 ? null : className(buf, offsets, superIndex);
+        int interfaceCount = buf.getShort() & 0xFFFF;
+        List<String> interfaces = interfaceCount == 0 ? Collections.<String>emptyList() : new ArrayList<>(interfaceCount);
+        for (int i = 0; i < interfaceCount; i++) {
+            interfaces.add(className(buf, offsets, buf.getShort() & 0xFFFF));
+        }
+
+        skipMembers(buf); // fields
+
+        // The constructor descriptors depend on the kind of class, which is known only
+        // after reading the InnerClasses attribute; remember the descriptor indices till then
+        int methodCount = buf.getShort() & 0xFFFF;
+        int[] constructors = new int[methodCount];
+        int constructorCount = 0;
+        for (int i = 0; i < methodCount; i++) {
+            buf.getShort(); // access
+            int nameIndex = buf.getShort() & 0xFFFF;
+            int descriptorIndex = buf.getShort() & 0xFFFF;
+            if (utf8Equals(buf, offsets, nameIndex, INIT)) {
+                constructors[constructorCount++] = descriptorIndex;
+            }
+            skipAttributes(buf);
+        }
+
+        boolean annotated = false;
+        int outerIndex = -1;
+        int innerAccess = 0;
+        int attributeCount = buf.getShort() & 0xFFFF;
+        for (int i = 0; i < attributeCount; i++) {
+            int attributeName = buf.getShort() & 0xFFFF;
+            int length = buf.getInt();
+            int end = buf.position() + length;
+            if (utf8Equals(buf, offsets, attributeName, INVISIBLE_ANNOTATIONS)
+                    || utf8Equals(buf, offsets, attributeName, VISIBLE_ANNOTATIONS)) {
+                annotated |= hasAnnotation(buf, offsets);
+            } else if (utf8Equals(buf, offsets, attributeName, INNER_CLASSES)) {
+                int classes = buf.getShort() & 0xFFFF;
+                for (int c = 0; c < classes; c++) {
+                    int innerIndex = buf.getShort() & 0xFFFF;
+                    int outer = buf.getShort() & 0xFFFF;
+                    buf.getShort(); // inner name
+                    int flags = buf.getShort() & 0xFFFF;
+                    if (outerIndex < 0 && name.equals(className(buf, offsets, innerIndex))) {
+                        outerIndex = outer;
+                        innerAccess = flags;
+                    }
+                }
+            }
+            buf.position(end);
+        }
+
+        // Local and anonymous classes (no outer class) are never seen by the annotation processor
+        boolean checkable = (access & (ACC_INTERFACE | ACC_SYNTHETIC | ACC_MODULE)) == 0 && outerIndex != 0;
+        byte[] expected;
+        if ((access & ACC_ENUM) != 0) {
+            expected = ENUM_NO_ARGS;
+        } else if (outerIndex > 0 && (innerAccess & ACC_STATIC) == 0) {
+            // Inner classes take the enclosing instance as a hidden argument
+            expected = utf8("(L" + className(buf, offsets, outerIndex) + ";)V");
+        } else {
+            expected = NO_ARGS;
+        }
+        boolean defaultConstructor = false;
+        for (int i = 0; i < constructorCount && !defaultConstructor; i++) {
+            defaultConstructor = utf8Equals(buf, offsets, constructors[i], expected);
+        }
+        return new ClassInfo(name, superName, interfaces, access, annotated, checkable, defaultConstructor);
+    }
+
+    // Returns the offset of each constant pool entry, pointing at its tag
+    private static int[] readConstantPool(ByteBuffer buf) {
+        int count = buf.getShort() & 0xFFFF;
+        int[] offsets = new int[count];
+        for (int i = 1; i < count; i++) {
+            offsets[i] = buf.position();
+            int tag = buf.get();
+            switch (tag) {
+                case 1: // Utf8
+                    int length = buf.getShort() & 0xFFFF;
+                    buf.position(buf.position() + length);
+                    break;
+                case 7: // Class
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    buf.position(buf.position() + 2);
+                    break;
+                case 15: // MethodHandle
+                    buf.position(buf.position() + 3);
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    buf.position(buf.position() + 4);
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    buf.position(buf.position() + 8);
+                    i++; // Takes two slots
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown constant pool tag " + tag);
+            }
+        }
+        return offsets;
+    }
+
+    private boolean hasAnnotation(ByteBuffer buf, int[] offsets) {
+        boolean found = false;
+        int count = buf.getShort() & 0xFFFF;
+        for (int i = 0; i < count; i++) {
+            int typeIndex = buf.getShort() & 0xFFFF;
+            found |= utf8Equals(buf, offsets, typeIndex, annotationDescriptor);
+            skipElementValuePairs(buf);
+        }
+        return found;
+    }
+
+    private static void skipElementValuePairs(ByteBuffer buf) {
+        int pairs = buf.getShort() & 0xFFFF;
+        for (int p = 0; p < pairs; p++) {
+            buf.getShort(); // element name
+            skipElementValue(buf);
+        }
+    }
+
+    private static void skipElementValue(ByteBuffer buf) {
+        int tag = buf.get();
+        switch (tag) {
+            case 'e': // enum constant: type and name
+                buf.position(buf.position() + 4);
+                break;
+            case '@':
+                buf.getShort(); // type
+                skipElementValuePairs(buf);
+                break;
+            case '[':
+                int values = buf.getShort() & 0xFFFF;
+                for (int v = 0; v < values; v++) {
+                    skipElementValue(buf);
+                }
+                break;
+            default: // constant or class: one constant pool index
+                buf.position(buf.position() + 2);
+        }
+    }
+
+    private static void skipMembers(ByteBuffer buf) {
+        int count = buf.getShort() & 0xFFFF;
+        for (int i = 0; i < count; i++) {
+            buf.position(buf.position() + 6); // access, name, descriptor
+            skipAttributes(buf);
+        }
+    }
+
+    private static void skipAttributes(ByteBuffer buf) {
+        int count = buf.getShort() & 0xFFFF;
+        for (int i = 0; i < count; i++) {
+            buf.getShort(); // name
+            int length = buf.getInt();
+            buf.position(buf.position() + length);
+        }
+    }
+
+    private static String className(ByteBuffer buf, int[] offsets, int classIndex) {
+        int nameIndex = buf.getShort(offsets[classIndex] + 1) & 0xFFFF;
+        return utf8String(buf, offsets[nameIndex]);
+    }
+
+    private static boolean utf8Equals(ByteBuffer buf, int[] offsets, int index, byte[] expected) {
+        int offset = offsets[index];
+        if (buf.get(offset) != 1 || (buf.getShort(offset + 1) & 0xFFFF) != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buf.get(offset + 3 + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Modified UTF-8 equals standard UTF-8 except for NUL and supplementary characters,
+    // neither of which is expected in class names
+    private static String utf8String(ByteBuffer buf, int offset) {
+        int length = buf.getShort(offset + 1) & 0xFFFF;
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buf.get(offset + 3 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
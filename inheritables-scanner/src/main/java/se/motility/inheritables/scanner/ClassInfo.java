@@ -0,0 +1,89 @@
+package se.motility.inheritables.scanner;
+
+import java.util.List;
+
+/**
+ * The parts of a class file needed for resolving extended inheritance and checking
+ * for a default constructor. Class names are internal names, e.g. <code>java/lang/Object</code>.
+ * 
+ * @author M Tegling
+ *
+ */
+public final class ClassInfo {
+
+    private final String name;
+    private final String superName;
+    private final List<String> interfaces;
+    private final int access;
+    private final boolean annotated;
+    private final boolean checkable;
+    private final boolean defaultConstructor;
+
+    ClassInfo(String name, String superName, List<String> interfaces, int access,
+            boolean annotated, boolean checkable, boolean defaultConstructor) {
+        this.name = name;
+        this.superName = superName;
+        this.interfaces = interfaces;
+        this.access = access;
+        this.annotated = annotated;
+        this.checkable = checkable;
+        this.defaultConstructor = defaultConstructor;
+    }
+
+    /**
+     * @return the internal name of the class
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the internal name of the superclass, <code>null</code> for <code>java/lang/Object</code>
+     * and <code>module-info</code>
+     */
+    public String getSuperName() {
+        return superName;
+    }
+
+    /**
+     * @return the internal names of the directly implemented interfaces
+     */
+    public List<String> getInterfaces() {
+        return interfaces;
+    }
+
+    /**
+     * @return the access flags of the class file
+     */
+    public int getAccess() {
+        return access;
+    }
+
+    /**
+     * @return <code>true</code> if the class is annotated directly with the annotation looked for
+     */
+    public boolean isAnnotated() {
+        return annotated;
+    }
+
+    /**
+     * @return <code>true</code> if the class would be checked by the annotation processor, i.e.
+     * it is a class (not an interface) declared in source, not a synthetic, local or anonymous class
+     */
+    public boolean isCheckable() {
+        return checkable;
+    }
+
+    /**
+     * @return <code>true</code> if the class has a constructor taking no arguments in source
+     */
+    public boolean hasDefaultConstructor() {
+        return defaultConstructor;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+}
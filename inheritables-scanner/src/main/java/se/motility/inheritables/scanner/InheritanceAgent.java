@@ -0,0 +1,65 @@
+package se.motility.inheritables.scanner;
+
+import java.lang.instrument.Instrumentation;
+
+/**
+ * Java agent checking every class loaded by the JVM using a {@link VerifyingTransformer},
+ * as a run-time safety net for classes not compiled with the annotation processor (e.g. plugins).
+ * <pre>
+ * java -javaagent:inheritables-scanner.jar[=&lt;options&gt;] ...
+ *
+ *   mode=log|fail          report violations only (default), or also make violating classes fail to load
+ *   annotation=&lt;name&gt;      binary name of the annotation (default RequireDefaultConstructor)
+ * </pre>
+ * Options are separated by commas, e.g. <code>-javaagent:inheritables-scanner.jar=mode=fail</code>.
+ * When attached to a running JVM, only classes loaded after attaching are checked.
+ *
+ * @author M Tegling
+ *
+ */
+public final class InheritanceAgent {
+
+    public static void premain(String args, Instrumentation instrumentation) {
+        VerifyingTransformer transformer = createTransformer(args);
+        instrumentation.addTransformer(transformer);
+        // Checks the classes last loaded by each thread, still waiting for their supertypes
+        Runtime.getRuntime().addShutdownHook(new Thread(transformer::settle, "inheritables-agent"));
+    }
+
+    public static void agentmain(String args, Instrumentation instrumentation) {
+        premain(args, instrumentation);
+    }
+
+    /**
+     * @param args the agent options
+     * @return the transformer configured by the options
+     * @throws IllegalArgumentException if the options are invalid
+     */
+    static VerifyingTransformer createTransformer(String args) {
+        String annotation = BytecodeScanner.DEFAULT_ANNOTATION;
+        VerifyingTransformer.Mode mode = VerifyingTransformer.Mode.LOG;
+        if (args != null) {
+            for (String option : args.split(",")) {
+                if (option.isEmpty()) {
+                    continue;
+                }
+                int separator = option.indexOf('=');
+                String name = separator < 0 ? option : option.substring(0, separator);
+                String value = separator < 0 ? "" : option.substring(separator + 1);
+                if ("mode".equals(name) && ("log".equals(value) || "fail".equals(value))) {
+                    mode = "fail".equals(value) ? VerifyingTransformer.Mode.FAIL : VerifyingTransformer.Mode.LOG;
+                } else if ("annotation".equals(name) && !value.isEmpty()) {
+                    annotation = value;
+                } else {
+                    throw new IllegalArgumentException("Invalid inheritables agent option: " + option);
+                }
+            }
+        }
+        return new VerifyingTransformer(annotation, mode, System.err);
+    }
+
+    private InheritanceAgent() {
+        throw new UnsupportedOperationException("Utility class: Do not instantiate");
+    }
+
+}
@@ -0,0 +1,99 @@
+package se.motility.inheritables.scanner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command line interface of the {@link BytecodeScanner}.
+ * <pre>
+ * java -jar inheritables-scanner.jar [options] &lt;jar|directory|class file&gt;...
+ *
+ *   --classpath &lt;path&gt;      jars and directories used for resolving supertypes only
+ *   --annotation &lt;name&gt;     binary name of the annotation (default RequireDefaultConstructor)
+ *   --threads &lt;n&gt;           number of parsing threads (default: available processors)
+ * </pre>
+ * Exits with status 0 if no violations are found, 1 if violations are found or inputs
+ * cannot be read, and 2 on incorrect usage.
+ * 
+ * @author M Tegling
+ *
+ */
+public final class Main {
+
+    private static final String USAGE = "Usage: java -jar inheritables-scanner.jar [--classpath <path>]"
+            + " [--annotation <name>] [--threads <n>] <jar|directory|class file>...";
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        List<Path> inputs = new ArrayList<>();
+        List<Path> classPath = new ArrayList<>();
+        String annotation = BytecodeScanner.DEFAULT_ANNOTATION;
+        int threads = Runtime.getRuntime().availableProcessors();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if ("--classpath".equals(arg) || "-cp".equals(arg)) {
+                    for (String element : value(args, ++i).split(File.pathSeparator)) {
+                        if (!element.isEmpty()) {
+                            classPath.add(Paths.get(element));
+                        }
+                    }
+                } else if ("--annotation".equals(arg)) {
+                    annotation = value(args, ++i);
+                } else if ("--threads".equals(arg)) {
+                    threads = Integer.parseInt(value(args, ++i));
+                } else if (arg.startsWith("-")) {
+                    throw new IllegalArgumentException("Unknown option " + arg);
+                } else {
+                    inputs.add(Paths.get(arg));
+                }
+            }
+            if (inputs.isEmpty()) {
+                throw new IllegalArgumentException("No input given");
+            }
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println(USAGE);
+            return 2;
+        }
+
+        long start = System.nanoTime();
+        ScanResult result;
+        try {
+            result = new BytecodeScanner(annotation, threads).scan(inputs, classPath);
+        } catch (IOException | IllegalArgumentException e) {
+            err.println("Scan failed: " + e.getMessage());
+            return 1;
+        }
+
+        for (Violation violation : result.getViolations()) {
+            out.println("ERROR: " + violation);
+        }
+        for (String error : result.getErrors()) {
+            out.println("ERROR: Could not read " + error);
+        }
+        out.println("Checked " + result.getCheckedClasses() + " classes in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms: " + result.getViolations().size() + " violations");
+        return result.isSuccessful() ? 0 : 1;
+    }
+
+    private static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value of " + args[index - 1]);
+        }
+        return args[index];
+    }
+
+    private Main() {
+        throw new UnsupportedOperationException("Utility class: Do not instantiate");
+    }
+
+}
@@ -0,0 +1,52 @@
+package se.motility.inheritables.scanner;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a scan by the {@link BytecodeScanner}.
+ * 
+ * @author M Tegling
+ *
+ */
+public final class ScanResult {
+
+    private final int checkedClasses;
+    private final List<Violation> violations;
+    private final List<String> errors;
+
+    ScanResult(int checkedClasses, List<Violation> violations, List<String> errors) {
+        this.checkedClasses = checkedClasses;
+        this.violations = Collections.unmodifiableList(violations);
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * @return the number of classes read from the checked inputs
+     */
+    public int getCheckedClasses() {
+        return checkedClasses;
+    }
+
+    /**
+     * @return the violations found, sorted by class name
+     */
+    public List<Violation> getViolations() {
+        return violations;
+    }
+
+    /**
+     * @return descriptions of the files and entries which could not be read
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return <code>true</code> if all inputs could be read and no violations were found
+     */
+    public boolean isSuccessful() {
+        return violations.isEmpty() && errors.isEmpty();
+    }
+
+}
@@ -0,0 +1,463 @@
+package se.motility.inheritables.scanner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.instrument.ClassFileTransformer;
+import java.nio.ByteBuffer;
+import java.security.ProtectionDomain;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class file transformer checking each class as it is loaded for the same rule as the
+ * {@link BytecodeScanner}: every class inheriting the annotation must have a default constructor.
+ * The class files are never modified, except for making violating classes fail to load in
+ * {@link Mode#FAIL} mode.
+ * <p>
+ * Each class file is parsed at most once per class loader. The JVM loads the supertypes of a class
+ * right after passing the class to the transformers, so in {@link Mode#LOG} mode a type waits for
+ * its supertypes not yet resolved, indexed by their names, and is resolved as soon as the last of
+ * them is, or one of them is found to be annotated. Each type is thus resolved once, without
+ * reading any class file twice. Supertypes never passed to the transformer, having been loaded
+ * before the agent, are read through {@link ClassLoader#getResourceAsStream(String)} of the loader
+ * of their subclass once the thread loads an unrelated class, or when {@link #settle() settling}.
+ * In {@link Mode#FAIL} mode the outcome is needed before the class is defined, so supertypes not
+ * yet loaded are read right away instead, and their parsed form is kept for when they are loaded.
+ * The outcome of the resolution is memoized per type. Classes of the boot class loader and the
+ * JDK packages are never checked and regarded as not annotated.
+ * <p>
+ * Instances are thread-safe.
+ *
+ * @author M Tegling
+ *
+ */
+public final class VerifyingTransformer implements ClassFileTransformer {
+
+    /** What to do when finding a violation */
+    public enum Mode {
+        /** Report the violation and let the class load */
+        LOG,
+        /** Report the violation and make the class fail to load with a {@link ClassFormatError} */
+        FAIL
+    }
+
+    private static final String[] JDK_PACKAGES = {"java/", "javax/", "jdk/", "sun/", "com/sun/"};
+
+    // Placeholder for supertypes not found by the class loader, regarded as not annotated
+    private static final Node MISSING = new Node();
+
+    private final ClassFileParser parser;
+    private final Mode mode;
+    private final PrintStream log;
+
+    // Parsed and resolved types per class loader, keyed by internal name
+    private final Map<ClassLoader, Map<String, Node>> loaders = new WeakHashMap<>();
+    private final AtomicLong parsedClasses = new AtomicLong();
+    private final AtomicLong violations = new AtomicLong();
+    // Types waiting for a supertype to be resolved, keyed by the name of the supertype. Guards all waiting.
+    private final Map<String, List<Waiter>> waiters = new HashMap<>();
+    // Supertypes not passed to the transformer yet, awaited by the types loaded by each thread
+    private final ThreadLocal<Set<String>> awaited = ThreadLocal.withInitial(HashSet::new);
+
+    /**
+     * @param annotationName binary name of the inheritable annotation requiring a default constructor
+     * @param mode what to do when finding a violation
+     * @param log stream to report violations and unreadable class files to
+     */
+    public VerifyingTransformer(String annotationName, Mode mode, PrintStream log) {
+        this.parser = new ClassFileParser(annotationName);
+        this.mode = mode;
+        this.log = log;
+    }
+
+    @Override
+    public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined,
+            ProtectionDomain protectionDomain, byte[] classfileBuffer) {
+        if (loader == null || className == null || classBeingRedefined != null || isJdkClass(className)) {
+            return null;
+        }
+        Map<String, Node> nodes = nodesOf(loader);
+        Node node = nodes.get(className);
+        if (node == null || node == MISSING) {
+            // Classes not found as resources (e.g. generated at run-time) are parsed when defined
+            Node parsed = parse(className, ByteBuffer.wrap(classfileBuffer));
+            if (parsed == null) {
+                return null;
+            }
+            node = nodes.merge(className, parsed, (existing, added) -> existing != MISSING ? existing : added);
+        }
+        boolean checked = node.checkable && !node.defaultConstructor;
+        if (mode == Mode.LOG) {
+            loaded(new Waiter(className, node, loader), checked);
+            return null;
+        }
+        if (!checked || !isAnnotated(node, loader, nodes)) {
+            return null;
+        }
+
+        report(className);
+        // Transformers cannot throw, so an invalid class file is the only way to stop the class loading
+        byte[] invalid = classfileBuffer.clone();
+        invalid[0] = 0;
+        return invalid;
+    }
+
+    /**
+     * Checks the classes waiting for supertypes not passed to the transformer, reading the
+     * supertypes through the class loaders. Called when no more supertypes are expected to be
+     * loaded, e.g. at shutdown.
+     */
+    public void settle() {
+        synchronized (waiters) {
+            readMissing(new ArrayList<>(waiters.keySet()));
+        }
+    }
+
+    /**
+     * @return number of class files parsed, including supertypes read ahead of being loaded
+     */
+    public long getParsedClasses() {
+        return parsedClasses.get();
+    }
+
+    /**
+     * @return number of violations found, having {@link #settle() settled} the classes waiting for
+     * their supertypes
+     */
+    public long getViolations() {
+        settle();
+        return violations.get();
+    }
+
+    private Map<String, Node> nodesOf(ClassLoader loader) {
+        synchronized (loaders) {
+            return loaders.computeIfAbsent(loader, l -> new ConcurrentHashMap<>());
+        }
+    }
+
+    private Node parse(String className, ByteBuffer classFile) {
+        try {
+            parsedClasses.incrementAndGet();
+            return new Node(parser.parse(classFile));
+        } catch (IllegalArgumentException e) {
+            log.println("inheritables: Could not check " + className.replace('/', '.') + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void report(String className) {
+        violations.incrementAndGet();
+        log.println("inheritables: " + className.replace('/', '.') + ": " + BytecodeScanner.ERROR_MESSAGE);
+    }
+
+    // Resolves a type passed to the transformer as far as its supertypes are known
+    private void loaded(Waiter type, boolean checked) {
+        synchronized (waiters) {
+            Set<String> missing = awaited.get();
+            if (!missing.isEmpty() && !missing.remove(type.name)) {
+                // Not loaded for the waiting types, so the supertypes they miss were loaded earlier
+                readMissing(new ArrayList<>(missing));
+                missing.clear();
+            }
+            if (checked && !type.node.reported) {
+                type.node.reported = true;
+                if (type.node.resolved == Boolean.TRUE) {
+                    report(type.name);
+                }
+            }
+            await(type, missing);
+        }
+    }
+
+    // Makes a type wait for its unresolved supertypes, adding those not passed to the transformer to missing
+    private void await(Waiter type, Set<String> missing) {
+        Node node = type.node;
+        if (node.resolved == null && !node.waiting) {
+            node.waiting = true;
+            for (String name : node.supertypes) {
+                if (isJdkClass(name)) {
+                    continue;
+                }
+                Node supertype = find(name, type.loader);
+                if (supertype == null || supertype.resolved == null) {
+                    waiters.computeIfAbsent(name, n -> new ArrayList<>()).add(type);
+                    node.unresolved++;
+                    if (supertype == null) {
+                        missing.add(name);
+                    }
+                } else if (supertype.resolved) {
+                    node.annotated = true;
+                    break;
+                }
+            }
+            if (node.annotated || node.unresolved == 0) {
+                resolve(type, node.annotated);
+            }
+        }
+        if (node.resolved != null) {
+            resolved(type);
+        }
+    }
+
+    // Resolves the types waiting for a resolved type, and in turn those waiting for them
+    private void resolved(Waiter type) {
+        Deque<Waiter> queue = new ArrayDeque<>();
+        queue.add(type);
+        while (!queue.isEmpty()) {
+            Waiter supertype = queue.poll();
+            List<Waiter> waiting = waiters.get(supertype.name);
+            if (waiting == null) {
+                continue;
+            }
+            Iterator<Waiter> iterator = waiting.iterator();
+            while (iterator.hasNext()) {
+                Waiter subtype = iterator.next();
+                if (!isVisible(supertype.loader, subtype.loader)) {
+                    // A type of the same name, of another class loader
+                    continue;
+                }
+                iterator.remove();
+                Node node = subtype.node;
+                if (node.resolved != null) {
+                    continue;
+                }
+                if (supertype.node.resolved) {
+                    node.annotated = true;
+                } else if (--node.unresolved > 0) {
+                    continue;
+                }
+                resolve(subtype, node.annotated);
+                queue.add(subtype);
+            }
+            if (waiting.isEmpty()) {
+                waiters.remove(supertype.name);
+            }
+        }
+    }
+
+    private void resolve(Waiter type, boolean annotated) {
+        type.node.resolved = annotated;
+        if (annotated && type.node.reported) {
+            report(type.name);
+        }
+    }
+
+    // Reads the awaited supertypes not passed to the transformer, and those they miss in turn
+    private void readMissing(List<String> names) {
+        Deque<String> queue = new ArrayDeque<>(names);
+        while (!queue.isEmpty()) {
+            String name = queue.poll();
+            List<Waiter> waiting = waiters.get(name);
+            if (waiting == null) {
+                continue;
+            }
+            for (Waiter subtype : new ArrayList<>(waiting)) {
+                if (find(name, subtype.loader) != null) {
+                    // Passed to the transformer since, waiting for its own supertypes
+                    continue;
+                }
+                Map<String, Node> nodes = nodesOf(subtype.loader);
+                byte[] classFile = read(subtype.loader, name);
+                Node node = classFile != null ? parse(name, ByteBuffer.wrap(classFile)) : null;
+                Node existing = nodes.putIfAbsent(name, node != null ? node : MISSING);
+                node = existing != null ? existing : node;
+                Set<String> missing = new HashSet<>();
+                await(new Waiter(name, node != null ? node : MISSING, subtype.loader), missing);
+                queue.addAll(missing);
+            }
+        }
+    }
+
+    // The type of the given name visible to a loader, passed to the transformer or read
+    private Node find(String name, ClassLoader loader) {
+        for (ClassLoader l = loader; l != null; l = l.getParent()) {
+            Map<String, Node> nodes;
+            synchronized (loaders) {
+                nodes = loaders.get(l);
+            }
+            Node node = nodes != null ? nodes.get(name) : null;
+            if (node != null && (node != MISSING || l == loader)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isVisible(ClassLoader definingLoader, ClassLoader loader) {
+        for (ClassLoader l = loader; l != null; l = l.getParent()) {
+            if (l == definingLoader) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Iterative DFS over the supertypes, memoizing the outcome for every visited type
+    private boolean isAnnotated(Node start, ClassLoader loader, Map<String, Node> nodes) {
+        if (start.resolved != null) {
+            return start.resolved;
+        }
+        // Usually all supertypes are resolved already, not requiring a traversal
+        boolean allResolved = true;
+        for (String name : start.supertypes) {
+            Node supertype = lookup(name, loader, nodes);
+            if (supertype == null) {
+                continue;
+            }
+            Boolean resolved = supertype.resolved;
+            if (resolved == null) {
+                allResolved = false;
+            } else if (resolved) {
+                start.annotated = true;
+                start.resolved = Boolean.TRUE;
+                return true;
+            }
+        }
+        if (allResolved) {
+            start.resolved = Boolean.FALSE;
+            return false;
+        }
+
+        Deque<Node> stack = new ArrayDeque<>();
+        Deque<Integer> nexts = new ArrayDeque<>();
+        Set<Node> inProgress = new HashSet<>();
+        stack.push(start);
+        nexts.push(0);
+        inProgress.add(start);
+        while (!stack.isEmpty()) {
+            Node node = stack.peek();
+            int next = nexts.pop();
+            if (node.annotated || next == node.supertypes.length) {
+                stack.pop();
+                inProgress.remove(node);
+                node.resolved = node.annotated;
+                if (node.annotated && !stack.isEmpty()) {
+                    stack.peek().annotated = true;
+                }
+                continue;
+            }
+            nexts.push(next + 1);
+            Node supertype = lookup(node.supertypes[next], loader, nodes);
+            if (supertype == null) {
+                continue;
+            }
+            if (supertype.resolved != null) {
+                node.annotated |= supertype.resolved;
+            } else if (inProgress.add(supertype)) {
+                stack.push(supertype);
+                nexts.push(0);
+            }
+            // else a cyclic hierarchy, only found in corrupt class files
+        }
+        return start.resolved;
+    }
+
+    private Node lookup(String name, ClassLoader loader, Map<String, Node> nodes) {
+        if (isJdkClass(name)) {
+            return null;
+        }
+        Node node = find(name, loader);
+        if (node == null) {
+            byte[] classFile = read(loader, name);
+            node = classFile != null ? parse(name, ByteBuffer.wrap(classFile)) : null;
+            Node existing = nodes.putIfAbsent(name, node != null ? node : MISSING);
+            node = existing != null ? existing : node;
+        }
+        return node != MISSING ? node : null;
+    }
+
+    private static byte[] read(ClassLoader loader, String name) {
+        try (InputStream in = loader.getResourceAsStream(name + ".class")) {
+            if (in == null) {
+                return null;
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static boolean isJdkClass(String name) {
+        for (String jdkPackage : JDK_PACKAGES) {
+            if (name.startsWith(jdkPackage)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A type of a class loader, waiting for its supertypes or waited for by its subtypes
+     */
+    private static final class Waiter {
+
+        final String name;
+        final Node node;
+        final ClassLoader loader;
+
+        Waiter(String name, Node node, ClassLoader loader) {
+            this.name = name;
+            this.node = node;
+            this.loader = loader;
+        }
+
+    }
+
+    private static final class Node {
+
+        final String[] supertypes;
+        final boolean checkable;
+        final boolean defaultConstructor;
+        // Directly annotated, or found to inherit the annotation during resolution
+        boolean annotated;
+        // Outcome of the resolution, null until resolved
+        volatile Boolean resolved;
+        // Log mode only, guarded by the waiters: whether waiting for its supertypes, the number of
+        // supertypes waited for, and whether to report the class once found annotated
+        boolean waiting;
+        int unresolved;
+        boolean reported;
+
+        Node() {
+            this.supertypes = new String[0];
+            this.checkable = false;
+            this.defaultConstructor = false;
+            this.resolved = Boolean.FALSE;
+        }
+
+        Node(ClassInfo info) {
+            int interfaces = info.getInterfaces().size();
+            this.supertypes = new String[interfaces + (info.getSuperName() != null ? 1 : 0)];
+            info.getInterfaces().toArray(supertypes);
+            if (info.getSuperName() != null) {
+                supertypes[interfaces] = info.getSuperName();
+            }
+            this.checkable = info.isCheckable();
+            this.defaultConstructor = info.hasDefaultConstructor();
+            this.annotated = info.isAnnotated();
+            if (annotated) {
+                resolved = Boolean.TRUE;
+            }
+        }
+
+    }
+
+}
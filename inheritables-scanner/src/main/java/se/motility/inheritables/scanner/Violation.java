@@ -0,0 +1,47 @@
+package se.motility.inheritables.scanner;
+
+/**
+ * A class inheriting the annotation looked for without having a default constructor.
+ * 
+ * @author M Tegling
+ *
+ */
+public final class Violation {
+
+    private final String className;
+    private final String origin;
+    private final String message;
+
+    Violation(String className, String origin, String message) {
+        this.className = className;
+        this.origin = origin;
+        this.message = message;
+    }
+
+    /**
+     * @return the binary name of the class, e.g. <code>com.example.Outer$Inner</code>
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * @return the file, or jar and entry, the class was read from
+     */
+    public String getOrigin() {
+        return origin;
+    }
+
+    /**
+     * @return description of the violation
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return className + " (" + origin + "): " + message;
+    }
+
+}
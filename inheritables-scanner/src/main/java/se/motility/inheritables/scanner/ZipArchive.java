@@ -0,0 +1,204 @@
+package se.motility.inheritables.scanner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads zip archives (such as jar files) from a buffer, typically a memory-mapped file.
+ * Only the central directory is read up front; entry contents are located and inflated
+ * on demand, allowing entries to be read from several threads at once.
+ * <p>
+ * Archives of up to 2 GB are supported, including the Zip64 format for archives with
+ * more than 65535 entries.
+ * 
+ * @author M Tegling
+ *
+ */
+final class ZipArchive {
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int ZIP64_LOCATOR = 0x07064b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY = 0x06064b50;
+    private static final int ZIP64_EXTRA = 0x0001;
+
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+
+    /** An entry of the central directory */
+    static final class Entry {
+
+        final String name;
+        final int method;
+        final long compressedSize;
+        final long size;
+        final long localHeaderOffset;
+
+        Entry(String name, int method, long compressedSize, long size, long localHeaderOffset) {
+            this.name = name;
+            this.method = method;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+    }
+
+    private final ByteBuffer buffer;
+    private final List<Entry> entries;
+
+    /**
+     * @param buffer the whole archive; not modified
+     * @throws IOException if the buffer does not hold a valid zip archive
+     */
+    ZipArchive(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        this.entries = readCentralDirectory();
+    }
+
+    List<Entry> entries() {
+        return entries;
+    }
+
+    /**
+     * Reads the contents of an entry. Thread-safe.
+     * @param entry an entry of this archive
+     * @return the uncompressed contents, positioned at zero
+     * @throws IOException if the entry is corrupt or uses an unsupported compression method
+     */
+    ByteBuffer read(Entry entry) throws IOException {
+        ByteBuffer buf = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int header = checkedOffset(entry.localHeaderOffset);
+        if (buf.getInt(header) != LOCAL_HEADER) {
+            throw new IOException("Corrupt local header of " + entry.name);
+        }
+        int dataOffset = header + 30 + (buf.getShort(header + 26) & 0xFFFF) + (buf.getShort(header + 28) & 0xFFFF);
+        buf.position(dataOffset);
+        buf.limit(checkedOffset(dataOffset + entry.compressedSize));
+        ByteBuffer data = buf.slice();
+        if (entry.method == STORED) {
+            return data;
+        }
+        if (entry.method != DEFLATED) {
+            throw new IOException("Unsupported compression method " + entry.method + " of " + entry.name);
+        }
+
+        byte[] compressed = new byte[data.remaining()];
+        data.get(compressed);
+        if (entry.size > Integer.MAX_VALUE - 8) {
+            throw new IOException("Entry " + entry.name + " larger than 2 GB");
+        }
+        byte[] inflated = new byte[(int) entry.size];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            int length = 0;
+            while (length < inflated.length && !inflater.finished()) {
+                int n = inflater.inflate(inflated, length, inflated.length - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += n;
+            }
+            if (length != inflated.length) {
+                throw new IOException("Truncated entry " + entry.name);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt entry " + entry.name, e);
+        } finally {
+            inflater.end();
+        }
+        return ByteBuffer.wrap(inflated);
+    }
+
+    private List<Entry> readCentralDirectory() throws IOException {
+        int end = findEndOfCentralDirectory();
+        long count = buffer.getShort(end + 10) & 0xFFFF;
+        long offset = buffer.getInt(end + 16) & 0xFFFFFFFFL;
+        if ((count == 0xFFFF || offset == 0xFFFFFFFFL) && end >= 20 && buffer.getInt(end - 20) == ZIP64_LOCATOR) {
+            int zip64End = checkedOffset(buffer.getLong(end - 20 + 8));
+            if (buffer.getInt(zip64End) != ZIP64_END_OF_CENTRAL_DIRECTORY) {
+                throw new IOException("Corrupt Zip64 end of central directory");
+            }
+            count = buffer.getLong(zip64End + 32);
+            offset = buffer.getLong(zip64End + 48);
+        }
+
+        List<Entry> result = new ArrayList<>((int) Math.min(count, 1 << 16));
+        int pos = checkedOffset(offset);
+        for (long i = 0; i < count; i++) {
+            if (buffer.getInt(pos) != CENTRAL_HEADER) {
+                throw new IOException("Corrupt central directory");
+            }
+            int method = buffer.getShort(pos + 10) & 0xFFFF;
+            long compressedSize = buffer.getInt(pos + 20) & 0xFFFFFFFFL;
+            long size = buffer.getInt(pos + 24) & 0xFFFFFFFFL;
+            int nameLength = buffer.getShort(pos + 28) & 0xFFFF;
+            int extraLength = buffer.getShort(pos + 30) & 0xFFFF;
+            int commentLength = buffer.getShort(pos + 32) & 0xFFFF;
+            long localHeaderOffset = buffer.getInt(pos + 42) & 0xFFFFFFFFL;
+            String name = string(pos + 46, nameLength);
+
+            // Values not fitting 32 bits are found in the Zip64 extra field, in this order
+            int extra = pos + 46 + nameLength;
+            int extraEnd = extra + extraLength;
+            while (extra + 4 <= extraEnd) {
+                int id = buffer.getShort(extra) & 0xFFFF;
+                int length = buffer.getShort(extra + 2) & 0xFFFF;
+                if (id == ZIP64_EXTRA) {
+                    int field = extra + 4;
+                    if (size == 0xFFFFFFFFL) {
+                        size = buffer.getLong(field);
+                        field += 8;
+                    }
+                    if (compressedSize == 0xFFFFFFFFL) {
+                        compressedSize = buffer.getLong(field);
+                        field += 8;
+                    }
+                    if (localHeaderOffset == 0xFFFFFFFFL) {
+                        localHeaderOffset = buffer.getLong(field);
+                    }
+                }
+                extra += 4 + length;
+            }
+
+            result.add(new Entry(name, method, compressedSize, size, localHeaderOffset));
+            pos = extraEnd + commentLength;
+        }
+        return result;
+    }
+
+    private int findEndOfCentralDirectory() throws IOException {
+        // The record is followed by a comment of at most 65535 bytes
+        int min = Math.max(0, buffer.limit() - 22 - 0xFFFF);
+        for (int pos = buffer.limit() - 22; pos >= min; pos--) {
+            if (buffer.getInt(pos) == END_OF_CENTRAL_DIRECTORY) {
+                return pos;
+            }
+        }
+        throw new IOException("Not a zip archive");
+    }
+
+    private String string(int offset, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int checkedOffset(long offset) throws IOException {
+        if (offset < 0 || offset > buffer.limit()) {
+            throw new IOException("Offset " + offset + " out of bounds, archive corrupt or larger than 2 GB");
+        }
+        return (int) offset;
+    }
+
+}
@@ -0,0 +1,180 @@
+package se.motility.inheritables.scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import se.motility.inheritables.scanner.types.AnnotatedInterface;
+
+/**
+ * Tests covering the {@link BytecodeScanner} using the compiled classes of the
+ * <code>types</code> package.
+ * 
+ * @author M. Tegling
+ *
+ */
+public class BytecodeScannerTest {
+
+    private static final String PACKAGE = "se.motility.inheritables.scanner.types.";
+    private static final List<String> EXPECTED_VIOLATIONS = Arrays.asList(
+            PACKAGE + "IncorrectClass",
+            PACKAGE + "IncorrectEnum",
+            PACKAGE + "IncorrectSubclass",
+            PACKAGE + "Outer$IncorrectInner",
+            PACKAGE + "Outer$IncorrectNested");
+
+    private static Path classesRoot;
+    private static List<Path> classFiles;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void findClassFiles() throws IOException, URISyntaxException {
+        Path typesDirectory = Paths.get(AnnotatedInterface.class.getResource("AnnotatedInterface.class").toURI())
+                .getParent();
+        classesRoot = typesDirectory.getParent().getParent().getParent().getParent().getParent();
+        try (Stream<Path> files = Files.list(typesDirectory)) {
+            classFiles = files.filter(file -> file.toString().endsWith(".class"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    public void violationsFoundInClassFiles() throws IOException {
+        ScanResult result = new BytecodeScanner().scan(classFiles, Collections.<Path>emptyList());
+        assertEquals(EXPECTED_VIOLATIONS, classNames(result));
+        assertEquals(classFiles.size(), result.getCheckedClasses());
+        assertTrue(result.getErrors().isEmpty());
+    }
+
+    @Test
+    public void violationsFoundInCompressedJar() throws IOException {
+        Path jar = writeJar("deflated.jar", ZipEntry.DEFLATED, classFiles);
+        ScanResult result = new BytecodeScanner().scan(Collections.singletonList(jar), Collections.<Path>emptyList());
+        assertEquals(EXPECTED_VIOLATIONS, classNames(result));
+        assertEquals(classFiles.size(), result.getCheckedClasses());
+    }
+
+    @Test
+    public void violationsFoundInStoredJarSingleThreaded() throws IOException {
+        Path jar = writeJar("stored.jar", ZipEntry.STORED, classFiles);
+        ScanResult result = new BytecodeScanner(BytecodeScanner.DEFAULT_ANNOTATION, 1)
+            .scan(Collections.singletonList(jar), Collections.<Path>emptyList());
+        assertEquals(EXPECTED_VIOLATIONS, classNames(result));
+    }
+
+    @Test
+    public void violationsFoundInNestedJar() throws IOException {
+        Path nested = writeJar("nested.jar", ZipEntry.STORED, classFiles);
+        Path fatJar = folder.getRoot().toPath().resolve("fat.jar");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(fatJar))) {
+            out.putNextEntry(new ZipEntry("BOOT-INF/lib/nested.jar"));
+            out.write(Files.readAllBytes(nested));
+            out.closeEntry();
+        }
+        ScanResult result = new BytecodeScanner().scan(Collections.singletonList(fatJar), Collections.<Path>emptyList());
+        assertEquals(EXPECTED_VIOLATIONS, classNames(result));
+        assertTrue(result.getViolations().get(0).getOrigin().contains("fat.jar!/BOOT-INF/lib/nested.jar!/"));
+    }
+
+    @Test
+    public void annotationInheritedFromClassPath() throws IOException {
+        List<Path> annotated = filesNamed("AnnotatedInterface");
+        List<Path> others = new ArrayList<>(classFiles);
+        others.removeAll(annotated);
+        Path api = writeJar("api.jar", ZipEntry.DEFLATED, annotated);
+        Path impl = writeJar("impl.jar", ZipEntry.DEFLATED, others);
+
+        ScanResult withClassPath = new BytecodeScanner().scan(Collections.singletonList(impl),
+                Collections.singletonList(api));
+        assertEquals(EXPECTED_VIOLATIONS, classNames(withClassPath));
+        assertEquals(others.size(), withClassPath.getCheckedClasses());
+
+        ScanResult withoutClassPath = new BytecodeScanner().scan(Collections.singletonList(impl),
+                Collections.<Path>emptyList());
+        assertTrue(withoutClassPath.isSuccessful());
+    }
+
+    @Test
+    public void corruptClassFileReported() throws IOException {
+        Path corrupt = folder.newFile("Corrupt.class").toPath();
+        Files.write(corrupt, new byte[] {(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE, 0, 0});
+        ScanResult result = new BytecodeScanner().scan(Collections.singletonList(corrupt),
+                Collections.<Path>emptyList());
+        assertEquals(1, result.getErrors().size());
+        assertTrue(result.getErrors().get(0).startsWith(corrupt.toString()));
+    }
+
+    @Test
+    public void commandLineExitStatus() throws IOException {
+        Path jar = writeJar("cli.jar", ZipEntry.DEFLATED, classFiles);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrintStream discard = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        });
+        assertEquals(1, Main.run(new String[] {jar.toString()}, new PrintStream(out), discard));
+        assertTrue(out.toString().contains(PACKAGE + "IncorrectClass"));
+        assertEquals(0, Main.run(new String[] {filesNamed("CorrectClass").get(0).toString()}, discard, discard));
+        assertEquals(2, Main.run(new String[] {"--unknown"}, discard, discard));
+    }
+
+    private List<Path> filesNamed(String simpleName) {
+        return classFiles.stream()
+                .filter(file -> file.getFileName().toString().equals(simpleName + ".class"))
+                .collect(Collectors.toList());
+    }
+
+    private Path writeJar(String name, int method, List<Path> files) throws IOException {
+        Path jar = folder.getRoot().toPath().resolve(name);
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            for (Path file : files) {
+                byte[] bytes = Files.readAllBytes(file);
+                ZipEntry entry = new ZipEntry(classesRoot.relativize(file).toString().replace('\\', '/'));
+                entry.setMethod(method);
+                if (method == ZipEntry.STORED) {
+                    CRC32 crc = new CRC32();
+                    crc.update(bytes);
+                    entry.setSize(bytes.length);
+                    entry.setCrc(crc.getValue());
+                }
+                out.putNextEntry(entry);
+                out.write(bytes);
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    private static List<String> classNames(ScanResult result) {
+        return result.getViolations().stream()
+                .map(Violation::getClassName)
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,178 @@
+package se.motility.inheritables.scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+
+import org.junit.Test;
+
+import se.motility.inheritables.scanner.VerifyingTransformer.Mode;
+
+/**
+ * Tests covering the class load-time checks of the {@link VerifyingTransformer}, using the
+ * compiled classes of the <code>types</code> package.
+ * 
+ * @author M. Tegling
+ *
+ */
+public class VerifyingTransformerTest {
+
+    private static final String PACKAGE = "se/motility/inheritables/scanner/types/";
+
+    private final ByteArrayOutputStream log = new ByteArrayOutputStream();
+
+    @Test
+    public void violationLogged() throws IOException {
+        VerifyingTransformer transformer = transformer(Mode.LOG);
+        assertNull(transform(transformer, "IncorrectSubclass"));
+        assertNull(transform(transformer, "Outer$IncorrectInner"));
+        assertEquals(2, transformer.getViolations());
+        String output = log.toString("UTF-8");
+        assertTrue(output.contains("se.motility.inheritables.scanner.types.IncorrectSubclass: Missing default constructor"));
+        assertTrue(output.contains("se.motility.inheritables.scanner.types.Outer$IncorrectInner"));
+    }
+
+    @Test
+    public void correctClassesAccepted() throws IOException {
+        VerifyingTransformer transformer = transformer(Mode.FAIL);
+        assertNull(transform(transformer, "CorrectClass"));
+        assertNull(transform(transformer, "CorrectEnum"));
+        assertNull(transform(transformer, "UnaffectedClass"));
+        assertNull(transform(transformer, "AnnotatedInterface"));
+        assertEquals(0, transformer.getViolations());
+        assertEquals("", log.toString("UTF-8"));
+    }
+
+    @Test(expected = ClassFormatError.class)
+    public void violatingClassFailsToLoad() throws IOException {
+        byte[] transformed = transform(transformer(Mode.FAIL), "IncorrectClass");
+        assertNotNull(transformed);
+        new DefiningClassLoader().define(transformed);
+    }
+
+    @Test
+    public void classFilesParsedOnce() throws IOException {
+        VerifyingTransformer transformer = transformer(Mode.FAIL);
+        // Reads the supertypes CorrectClass and AnnotatedInterface ahead of them being loaded
+        transform(transformer, "IncorrectSubclass");
+        transform(transformer, "CorrectClass");
+        transform(transformer, "AnnotatedInterface");
+        transform(transformer, "IncorrectClass");
+        assertEquals(4, transformer.getParsedClasses());
+    }
+
+    @Test
+    public void classCheckedOnceSupertypesLoaded() throws IOException {
+        VerifyingTransformer transformer = transformer(Mode.LOG);
+        CountingClassLoader loader = new CountingClassLoader();
+        // In the order of the JVM, loading the supertypes after the class
+        transform(transformer, loader, "IncorrectSubclass");
+        transform(transformer, loader, "CorrectClass");
+        assertEquals("", log.toString("UTF-8"));
+        transform(transformer, loader, "AnnotatedInterface");
+        assertTrue(log.toString("UTF-8").contains("se.motility.inheritables.scanner.types.IncorrectSubclass"));
+        assertEquals(0, loader.classFilesRead);
+        assertEquals(3, transformer.getParsedClasses());
+    }
+
+    @Test
+    public void supertypesOfParentLoaderAwaited() throws IOException {
+        VerifyingTransformer transformer = transformer(Mode.LOG);
+        CountingClassLoader loader = new CountingClassLoader();
+        transform(transformer, loader, "IncorrectSubclass");
+        // Defined by the parent of the loader
+        transform(transformer, "CorrectClass");
+        transform(transformer, "AnnotatedInterface");
+        assertTrue(log.toString("UTF-8").contains("se.motility.inheritables.scanner.types.IncorrectSubclass"));
+        assertEquals(0, loader.classFilesRead);
+    }
+
+    @Test
+    public void supertypesLoadedEarlierRead() throws IOException {
+        VerifyingTransformer transformer = transformer(Mode.LOG);
+        CountingClassLoader loader = new CountingClassLoader();
+        // AnnotatedInterface loaded before the transformer was added
+        transform(transformer, loader, "IncorrectClass");
+        transform(transformer, loader, "UnaffectedClass");
+        assertTrue(log.toString("UTF-8").contains("se.motility.inheritables.scanner.types.IncorrectClass"));
+        assertEquals(1, loader.classFilesRead);
+
+        transform(transformer, loader, "IncorrectEnum");
+        assertEquals(2, transformer.getViolations());
+        assertEquals(1, loader.classFilesRead);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void failOnInvalidAgentOption() {
+        InheritanceAgent.createTransformer("mode=strict");
+    }
+
+    @Test
+    public void agentOptionsParsed() {
+        assertNotNull(InheritanceAgent.createTransformer("mode=fail,annotation=com.example.Annotation"));
+        assertNotNull(InheritanceAgent.createTransformer(null));
+    }
+
+    private VerifyingTransformer transformer(Mode mode) throws IOException {
+        return new VerifyingTransformer(BytecodeScanner.DEFAULT_ANNOTATION, mode, new PrintStream(log, true, "UTF-8"));
+    }
+
+    private static byte[] transform(VerifyingTransformer transformer, String simpleName) throws IOException {
+        return transform(transformer, VerifyingTransformerTest.class.getClassLoader(), simpleName);
+    }
+
+    private static byte[] transform(VerifyingTransformer transformer, ClassLoader loader, String simpleName)
+            throws IOException {
+        byte[] classFile = read(VerifyingTransformerTest.class.getClassLoader(), PACKAGE + simpleName);
+        return transformer.transform(loader, PACKAGE + simpleName, null, null, classFile);
+    }
+
+    private static byte[] read(ClassLoader loader, String name) throws IOException {
+        try (InputStream in = loader.getResourceAsStream(name + ".class")) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static final class CountingClassLoader extends ClassLoader {
+
+        int classFilesRead;
+
+        CountingClassLoader() {
+            super(VerifyingTransformerTest.class.getClassLoader());
+        }
+
+        @Override
+        public InputStream getResourceAsStream(String name) {
+            if (name.endsWith(".class")) {
+                classFilesRead++;
+            }
+            return super.getResourceAsStream(name);
+        }
+
+    }
+
+    private static final class DefiningClassLoader extends ClassLoader {
+
+        DefiningClassLoader() {
+            super(VerifyingTransformerTest.class.getClassLoader());
+        }
+
+        Class<?> define(byte[] classFile) {
+            return defineClass(null, classFile, 0, classFile.length);
+        }
+
+    }
+
+}
@@ -0,0 +1,8 @@
+package se.motility.inheritables.scanner.types;
+
+import se.motility.inheritables.annotations.RequireDefaultConstructor;
+
+@RequireDefaultConstructor
+public interface AnnotatedInterface {
+
+}
@@ -0,0 +1,12 @@
+package se.motility.inheritables.scanner.types;
+
+public class CorrectClass implements AnnotatedInterface {
+
+    // Anonymous classes are not checked
+    static final AnnotatedInterface ANONYMOUS = new AnnotatedInterface() {};
+
+    public CorrectClass(int arg) {}
+
+    private CorrectClass() {}
+
+}
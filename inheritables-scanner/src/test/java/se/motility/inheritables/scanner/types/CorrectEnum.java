@@ -0,0 +1,9 @@
+package se.motility.inheritables.scanner.types;
+
+public enum CorrectEnum implements AnnotatedInterface {
+
+    CONSTANT {
+        // Constant bodies are anonymous classes, not checked
+    };
+
+}
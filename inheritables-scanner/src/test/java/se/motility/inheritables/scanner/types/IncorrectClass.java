@@ -0,0 +1,7 @@
+package se.motility.inheritables.scanner.types;
+
+public class IncorrectClass implements AnnotatedInterface {
+
+    public IncorrectClass(int arg) {}
+
+}
@@ -0,0 +1,9 @@
+package se.motility.inheritables.scanner.types;
+
+public enum IncorrectEnum implements AnnotatedInterface {
+
+    CONSTANT(1);
+
+    IncorrectEnum(int arg) {}
+
+}
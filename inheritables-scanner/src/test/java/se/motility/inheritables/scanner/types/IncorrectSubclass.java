@@ -0,0 +1,9 @@
+package se.motility.inheritables.scanner.types;
+
+public class IncorrectSubclass extends CorrectClass {
+
+    public IncorrectSubclass(int arg) {
+        super(arg);
+    }
+
+}
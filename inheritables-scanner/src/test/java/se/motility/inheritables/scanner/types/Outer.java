@@ -0,0 +1,21 @@
+package se.motility.inheritables.scanner.types;
+
+public class Outer {
+
+    public static class IncorrectNested implements AnnotatedInterface {
+
+        public IncorrectNested(int arg) {}
+
+    }
+
+    public class CorrectInner implements AnnotatedInterface {
+
+    }
+
+    public class IncorrectInner implements AnnotatedInterface {
+
+        public IncorrectInner(int arg) {}
+
+    }
+
+}
@@ -0,0 +1,7 @@
+package se.motility.inheritables.scanner.types;
+
+public class UnaffectedClass {
+
+    public UnaffectedClass(int arg) {}
+
+}